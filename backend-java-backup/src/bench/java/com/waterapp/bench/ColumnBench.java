@@ -0,0 +1,75 @@
+package com.waterapp.bench;
+
+import com.waterapp.entity.WaterReservoir;
+import com.waterapp.index.ReservoirColumnStore;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Times {@link ReservoirColumnStore} single-threaded: publishing one level reading through
+ * {@code update}, and {@code aggregate} over one county and over every reservoir, alternately.
+ * Prints the publish time per reading for five rounds after five warm-up rounds, then the aggregate
+ * time per query for three rounds of 2,000 queries after two warm-up rounds.
+ * Usage: {@code ColumnBench <reservoirs>}
+ */
+public class ColumnBench {
+    
+    private static volatile long sink;
+    
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        ReservoirColumnStore store = new ReservoirColumnStore();
+        List<WaterReservoir> reservoirs = new ArrayList<>(n);
+        for (long id = 1; id <= n; id++) {
+            reservoirs.add(reservoir(id, 0, (int) (id * 37 % 100_000)));
+        }
+        store.rebuild(reservoirs);
+        
+        ReservoirColumnStore.Filter county = new ReservoirColumnStore.Filter("County3", null, null, 0, 0, null, null);
+        ReservoirColumnStore.Filter everything = new ReservoirColumnStore.Filter(null, null, null, 0, 0, null, null);
+        Random random = new Random(1);
+        long revision = 1;
+        int readings = 20_000;
+        for (int round = 0; round < 10; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < readings; i++) {
+                store.update(reservoir(1 + random.nextInt(n), revision++, random.nextInt(100_000)));
+            }
+            double publishMicros = (System.nanoTime() - start) / 1e3 / readings;
+            // Keep the aggregate path compiled alongside the publish path
+            for (int i = 0; i < 200; i++) {
+                sink += store.aggregate(i % 2 == 0 ? county : everything).getTotalReservoirs();
+            }
+            if (round >= 5) {
+                System.out.printf("reservoirs=%d publish=%.2f us/reading%n", n, publishMicros);
+            }
+        }
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < 2_000; i++) {
+                sink += store.aggregate(i % 2 == 0 ? county : everything).getTotalReservoirs();
+            }
+            if (round >= 2) {
+                System.out.printf("reservoirs=%d aggregate=%.1f us/query%n", n, (System.nanoTime() - start) / 1e3 / 2_000);
+            }
+        }
+    }
+    
+    private static WaterReservoir reservoir(long id, long revision, int levelM3) {
+        WaterReservoir reservoir = new WaterReservoir();
+        reservoir.setId(id);
+        reservoir.setRevision(revision);
+        reservoir.setIsActive(true);
+        reservoir.setLatitude(BigDecimal.valueOf(-1.0 + id % 100 / 100.0));
+        reservoir.setLongitude(BigDecimal.valueOf(36 + id % 77 / 100.0));
+        reservoir.setTotalCapacityM3(BigDecimal.valueOf(100_000));
+        reservoir.setCurrentLevelM3(BigDecimal.valueOf(levelM3));
+        reservoir.setCurrentLevelPercentage(BigDecimal.valueOf(levelM3 / 1000.0));
+        reservoir.setCounty("County" + id % 47);
+        reservoir.setSubCounty("Sub" + id % 300);
+        reservoir.setWard("Ward" + id % 1400);
+        return reservoir;
+    }
+}
@@ -0,0 +1,161 @@
+package com.waterapp.bench;
+
+import com.waterapp.entity.WaterReservoir;
+import com.waterapp.index.DistanceMatch;
+import com.waterapp.index.SpatialGridIndex;
+import com.waterapp.util.GeoUtil;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.ToIntFunction;
+
+/**
+ * Times 10 km radius queries on {@link SpatialGridIndex} against a haversine scan over every
+ * reservoir in memory, and against the replaced {@code acos} query on in-memory H2.
+ * With no argument every reservoir is placed inside Kenya, so the matches per query grow with
+ * the number of reservoirs. With {@code same-density} the area grows with the number of
+ * reservoirs at the density of 10,000 over Kenya, so each query finds about 3 matches.
+ * Each figure is the median of three rounds over 1,000 random centers after a warm-up round.
+ */
+public class GridBench {
+    
+    private static final int[] SIZES = {12, 1_000, 10_000, 100_000, 1_000_000};
+    private static final double RADIUS_KM = 10;
+    private static final int QUERIES = 1_000;
+    
+    private static volatile long sink;
+    
+    public static void main(String[] args) throws SQLException {
+        boolean sameDensity = args.length > 0 && args[0].equals("same-density");
+        for (int n : SIZES) {
+            Random random = new Random(42);
+            double scale = sameDensity ? Math.sqrt(n / 10_000.0) : 1;
+            double latitudeSpan = 9.7 * scale;
+            double longitudeSpan = 8.0 * scale;
+            double minLatitude = -latitudeSpan / 2;
+            double minLongitude = 33.9;
+            
+            double[] latitudes = new double[n];
+            double[] longitudes = new double[n];
+            List<WaterReservoir> reservoirs = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                latitudes[i] = minLatitude + random.nextDouble() * latitudeSpan;
+                longitudes[i] = minLongitude + random.nextDouble() * longitudeSpan;
+                WaterReservoir reservoir = new WaterReservoir();
+                reservoir.setId((long) i + 1);
+                reservoir.setLatitude(BigDecimal.valueOf(latitudes[i]));
+                reservoir.setLongitude(BigDecimal.valueOf(longitudes[i]));
+                reservoir.setRevision(0L);
+                reservoirs.add(reservoir);
+            }
+            SpatialGridIndex grid = new SpatialGridIndex(0.1);
+            grid.rebuild(reservoirs);
+            reservoirs = null;
+            
+            double[][] centers = new double[QUERIES][2];
+            for (double[] center : centers) {
+                center[0] = minLatitude + random.nextDouble() * latitudeSpan;
+                center[1] = minLongitude + random.nextDouble() * longitudeSpan;
+            }
+            
+            double gridTime = time(centers, 3, center -> grid.findWithinRadius(center[0], center[1], RADIUS_KM).size());
+            double scanTime = time(centers, n >= 100_000 ? 1 : 3, center -> scan(latitudes, longitudes, center));
+            long matches = 0;
+            for (double[] center : centers) {
+                matches += grid.findWithinRadius(center[0], center[1], RADIUS_KM).size();
+            }
+            String h2Time = !sameDensity && n <= 100_000
+                    ? String.format("%.0f us", h2(latitudes, longitudes, centers)) : "-";
+            System.out.printf("reservoirs=%,d matches=%.1f grid=%.1f us scan=%.1f us h2=%s%n",
+                    n, (double) matches / centers.length, gridTime, scanTime, h2Time);
+        }
+    }
+    
+    private static int scan(double[] latitudes, double[] longitudes, double[] center) {
+        List<DistanceMatch> matches = new ArrayList<>();
+        for (int i = 0; i < latitudes.length; i++) {
+            double distance = GeoUtil.haversineKm(center[0], center[1], latitudes[i], longitudes[i]);
+            if (distance <= RADIUS_KM) {
+                matches.add(new DistanceMatch(i + 1, distance));
+            }
+        }
+        Collections.sort(matches);
+        return matches.size();
+    }
+    
+    /**
+     * Median over rounds of the mean time per query in microseconds, after a warm-up round.
+     * A single round only runs the first 100 centers, for scans too slow to run all of them.
+     */
+    private static double time(double[][] centers, int rounds, ToIntFunction<double[]> query) {
+        int count = rounds == 1 ? 100 : centers.length;
+        for (int i = 0; i < count; i++) {
+            sink += query.applyAsInt(centers[i]);
+        }
+        double[] results = new double[rounds];
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                sink += query.applyAsInt(centers[i]);
+            }
+            results[round] = (System.nanoTime() - start) / 1e3 / count;
+        }
+        Arrays.sort(results);
+        return results[rounds / 2];
+    }
+    
+    /**
+     * Mean time per query in microseconds of the replaced JPQL radius query, run as SQL on
+     * in-memory H2, after a warm-up round
+     */
+    private static double h2(double[] latitudes, double[] longitudes, double[][] centers) throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:gridbench" + latitudes.length)) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE r (id BIGINT PRIMARY KEY, latitude DECIMAL(10,8), longitude DECIMAL(11,8))");
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO r VALUES (?, ?, ?)")) {
+                for (int i = 0; i < latitudes.length; i++) {
+                    insert.setLong(1, i + 1);
+                    insert.setBigDecimal(2, BigDecimal.valueOf(latitudes[i]));
+                    insert.setBigDecimal(3, BigDecimal.valueOf(longitudes[i]));
+                    insert.addBatch();
+                    if (i % 10_000 == 9_999) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+            try (PreparedStatement select = connection.prepareStatement("SELECT id, latitude, longitude FROM r WHERE "
+                    + "(6371 * acos(cos(radians(?)) * cos(radians(latitude)) * cos(radians(longitude) - radians(?)) "
+                    + "+ sin(radians(?)) * sin(radians(latitude)))) <= ?")) {
+                int count = latitudes.length >= 100_000 ? 20 : 200;
+                double result = 0;
+                for (int round = 0; round < 2; round++) {
+                    long start = System.nanoTime();
+                    for (int i = 0; i < count; i++) {
+                        select.setDouble(1, centers[i][0]);
+                        select.setDouble(2, centers[i][1]);
+                        select.setDouble(3, centers[i][0]);
+                        select.setDouble(4, RADIUS_KM);
+                        try (ResultSet rows = select.executeQuery()) {
+                            while (rows.next()) {
+                                sink += rows.getLong(1);
+                            }
+                        }
+                    }
+                    result = (System.nanoTime() - start) / 1e3 / count;
+                }
+                return result;
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.waterapp.bench;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load on {@code GET /reservoirs/nearby}: each connection sends its next request as
+ * soon as the previous one has completed, so the number of requests in flight stays at the number
+ * of connections. The server is started separately, see the load test in the README.
+ * Prints throughput, median, 99th percentile and maximum latency over the measured interval.
+ * Usage: {@code LoadTest <connections> <warm-up seconds> <measured seconds> [base URL]}
+ */
+public class LoadTest {
+    
+    private static final int MAX_SAMPLES = 5_000_000;
+    
+    private static volatile boolean running = true;
+    private static volatile boolean measuring;
+    
+    public static void main(String[] args) throws InterruptedException {
+        int connections = Integer.parseInt(args[0]);
+        int warmupSeconds = Integer.parseInt(args[1]);
+        int measuredSeconds = Integer.parseInt(args[2]);
+        String baseUrl = args.length > 3 ? args[3] : "http://localhost:8080/api";
+        
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newFixedThreadPool(4))
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        long[] latencies = new long[MAX_SAMPLES];
+        AtomicInteger samples = new AtomicInteger();
+        AtomicLong errors = new AtomicLong();
+        for (int connection = 0; connection < connections; connection++) {
+            // Spread the centers over Kenya so requests hit different grid cells
+            double latitude = -4 + (connection * 7919 % 800) / 100.0;
+            double longitude = 34 + (connection * 104729 % 700) / 100.0;
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/reservoirs/nearby?latitude="
+                            + latitude + "&longitude=" + longitude + "&radius=25&limit=20"))
+                    .timeout(Duration.ofSeconds(120))
+                    .build();
+            send(client, request, latencies, samples, errors);
+        }
+        
+        Thread.sleep(warmupSeconds * 1000L);
+        long errorsBefore = errors.get();
+        measuring = true;
+        long start = System.nanoTime();
+        Thread.sleep(measuredSeconds * 1000L);
+        measuring = false;
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        running = false;
+        
+        int count = Math.min(samples.get(), MAX_SAMPLES);
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        if (count == 0) {
+            System.out.printf("connections=%d requests=0 errors=%d%n", connections, errors.get() - errorsBefore);
+        } else {
+            System.out.printf("connections=%d requests=%d throughput=%.0f req/s p50=%.1f ms p99=%.1f ms max=%.1f ms errors=%d%n",
+                    connections, count, count / elapsedSeconds, sorted[count / 2] / 1e6,
+                    sorted[(int) (count * 0.99)] / 1e6, sorted[count - 1] / 1e6, errors.get() - errorsBefore);
+        }
+        System.exit(0);
+    }
+    
+    private static void send(HttpClient client, HttpRequest request, long[] latencies, AtomicInteger samples,
+                             AtomicLong errors) {
+        if (!running) {
+            return;
+        }
+        long start = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).whenComplete((response, error) -> {
+            long latency = System.nanoTime() - start;
+            if (error != null || response.statusCode() != 200) {
+                errors.incrementAndGet();
+            } else if (measuring) {
+                int sample = samples.getAndIncrement();
+                if (sample < latencies.length) {
+                    latencies[sample] = latency;
+                }
+            }
+            send(client, request, latencies, samples, errors);
+        });
+    }
+}
@@ -0,0 +1,95 @@
+package com.waterapp.bench;
+
+import com.waterapp.WaterReservoirApplication;
+import com.waterapp.dto.WaterReservoirDto;
+import com.waterapp.entity.WaterReservoir;
+import com.waterapp.repository.WaterReservoirRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Times one page of active reservoirs read three ways: as managed entities mapped to DTOs, as a
+ * DTO projection through a Spring Data {@code @Query} string, and as the DTO named query the
+ * service uses. Boots the application context without the web server on the 5,000 reservoirs of
+ * {@code src/bench/resources/bench-seed.sql}.
+ * Prints CPU time and allocated bytes per call, measured on the calling thread, for three rounds
+ * after a warm-up round.
+ */
+public class ProjectionBench {
+    
+    private static final int ROUNDS = 3;
+    
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    
+    private static volatile long sink;
+    
+    public static void main(String[] args) {
+        ConfigurableApplicationContext context = SpringApplication.run(WaterReservoirApplication.class,
+                "--spring.main.web-application-type=none",
+                "--logging.level.root=WARN",
+                "--spring.jpa.show-sql=false",
+                "--spring.sql.init.mode=always",
+                "--spring.sql.init.data-locations=file:src/bench/resources/bench-seed.sql",
+                "--spring.jpa.defer-datasource-initialization=true",
+                "--reservoir.history.directory=target/bench/history",
+                "--reservoir.alerts.state-file=target/bench/alerts.json");
+        WaterReservoirRepository namedQueries = context.getBean(WaterReservoirRepository.class);
+        StringQueryReservoirRepository stringQueries = context.getBean(StringQueryReservoirRepository.class);
+        EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(
+                context.getBean(EntityManagerFactory.class));
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        TransactionTemplate writable = new TransactionTemplate(transactionManager);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        
+        for (int limit : new int[] {100, 1000}) {
+            IntSupplier entities = () -> writable.execute(status -> {
+                List<WaterReservoir> rows = entityManager.createQuery(
+                        "SELECT r FROM WaterReservoir r WHERE r.isActive = true AND r.id > :afterId ORDER BY r.id",
+                        WaterReservoir.class)
+                        .setParameter("afterId", 0L)
+                        .setMaxResults(limit)
+                        .getResultList();
+                return rows.stream().map(WaterReservoirDto::new).collect(Collectors.toList()).size();
+            });
+            IntSupplier stringQuery = () -> readOnly.execute(status ->
+                    stringQueries.findActiveDtos(0L, Limit.of(limit)).size());
+            IntSupplier namedQuery = () -> readOnly.execute(status ->
+                    namedQueries.findActiveDtos(0L, Limit.of(limit)).size());
+            for (int round = 0; round <= ROUNDS; round++) {
+                // Round 0 warms up every path
+                report(round > 0, "entities", limit, entities);
+                report(round > 0, "@Query", limit, stringQuery);
+                report(round > 0, "named query", limit, namedQuery);
+            }
+        }
+        context.close();
+    }
+    
+    private static void report(boolean print, String path, int limit, IntSupplier read) {
+        int calls = limit == 100 ? 3000 : 500;
+        System.gc();
+        long thread = Thread.currentThread().getId();
+        long allocated = THREADS.getThreadAllocatedBytes(thread);
+        long cpu = THREADS.getCurrentThreadCpuTime();
+        for (int i = 0; i < calls; i++) {
+            sink += read.getAsInt();
+        }
+        double cpuMicros = (THREADS.getCurrentThreadCpuTime() - cpu) / 1e3 / calls;
+        double allocatedKb = (THREADS.getThreadAllocatedBytes(thread) - allocated) / 1024.0 / calls;
+        if (print) {
+            System.out.printf("page=%d path=%s cpu=%.1f us allocated=%.1f KB%n", limit, path, cpuMicros, allocatedKb);
+        }
+    }
+}
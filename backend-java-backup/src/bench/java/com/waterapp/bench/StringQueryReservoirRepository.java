@@ -0,0 +1,24 @@
+package com.waterapp.bench;
+
+import com.waterapp.dto.WaterReservoirDto;
+import com.waterapp.entity.WaterReservoir;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import java.util.List;
+
+/**
+ * The active-reservoir page as the {@code @Query} string it was before the DTO reads became named
+ * queries, so {@link ProjectionBench} can compare both
+ */
+public interface StringQueryReservoirRepository extends Repository<WaterReservoir, Long> {
+    
+    @Query("SELECT new com.waterapp.dto.WaterReservoirDto(" +
+            "r.id, r.name, r.county, r.subCounty, r.ward, r.specificLocation, r.latitude, r.longitude, " +
+            "r.totalCapacityM3, r.currentLevelM3, r.currentLevelPercentage, r.waterQuality, r.lastUpdated, " +
+            "r.estimatedRunoutDate, r.depletionRateM3PerDay, r.isActive, r.description, r.managedBy, " +
+            "r.contactPhone, r.contactEmail, r.status, r.revision) FROM WaterReservoir r " +
+            "WHERE r.isActive = true AND r.id > :afterId ORDER BY r.id")
+    List<WaterReservoirDto> findActiveDtos(@Param("afterId") Long afterId, Limit limit);
+}
@@ -0,0 +1,14 @@
+-- 5,000 generated reservoirs spread over Kenya, for the benchmarks and load tests.
+-- Load on startup with:
+--   --spring.sql.init.mode=always --spring.sql.init.data-locations=file:src/bench/resources/bench-seed.sql
+--   --spring.jpa.defer-datasource-initialization=true
+INSERT INTO water_reservoirs (name, county, sub_county, ward, latitude, longitude, total_capacity_m3,
+    current_level_m3, current_level_percentage, status, last_updated, is_active, revision, version)
+SELECT 'Synthetic ' || X, 'County' || MOD(X, 47), 'Sub' || MOD(X, 300), 'Ward' || MOD(X, 1400),
+    -4.5 + MOD(X * 7919, 9000) / 1000.0, 34.0 + MOD(X * 104729, 8000) / 1000.0, 100000,
+    MOD(X * 37, 100000), MOD(X * 37, 100000) / 1000.0,
+    CASE WHEN MOD(X * 37, 100000) >= 70000 THEN 'GOOD'
+         WHEN MOD(X * 37, 100000) >= 40000 THEN 'WARNING'
+         ELSE 'CRITICAL' END,
+    CURRENT_TIMESTAMP, TRUE, 0, 0
+FROM SYSTEM_RANGE(1, 5000);
@@ -0,0 +1,104 @@
+package com.waterapp.alert;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Transition of a reservoir between alert levels.
+ * The latest transition of a reservoir whose level is not NONE is also its active alert.
+ */
+public class Alert {
+    
+    public static final String RAISED = "RAISED";
+    public static final String CLEARED = "CLEARED";
+    
+    private Long reservoirId;
+    private String reservoirName;
+    private String county;
+    private String type;
+    private AlertLevel level;
+    private AlertLevel previousLevel;
+    private BigDecimal levelPercentage;
+    private LocalDateTime timestamp;
+    
+    // Default constructor
+    public Alert() {}
+    
+    // Constructor with fields
+    public Alert(Long reservoirId, String reservoirName, String county, String type, AlertLevel level,
+                 AlertLevel previousLevel, BigDecimal levelPercentage, LocalDateTime timestamp) {
+        this.reservoirId = reservoirId;
+        this.reservoirName = reservoirName;
+        this.county = county;
+        this.type = type;
+        this.level = level;
+        this.previousLevel = previousLevel;
+        this.levelPercentage = levelPercentage;
+        this.timestamp = timestamp;
+    }
+    
+    // Getters and Setters
+    public Long getReservoirId() {
+        return reservoirId;
+    }
+    
+    public void setReservoirId(Long reservoirId) {
+        this.reservoirId = reservoirId;
+    }
+    
+    public String getReservoirName() {
+        return reservoirName;
+    }
+    
+    public void setReservoirName(String reservoirName) {
+        this.reservoirName = reservoirName;
+    }
+    
+    public String getCounty() {
+        return county;
+    }
+    
+    public void setCounty(String county) {
+        this.county = county;
+    }
+    
+    public String getType() {
+        return type;
+    }
+    
+    public void setType(String type) {
+        this.type = type;
+    }
+    
+    public AlertLevel getLevel() {
+        return level;
+    }
+    
+    public void setLevel(AlertLevel level) {
+        this.level = level;
+    }
+    
+    public AlertLevel getPreviousLevel() {
+        return previousLevel;
+    }
+    
+    public void setPreviousLevel(AlertLevel previousLevel) {
+        this.previousLevel = previousLevel;
+    }
+    
+    public BigDecimal getLevelPercentage() {
+        return levelPercentage;
+    }
+    
+    public void setLevelPercentage(BigDecimal levelPercentage) {
+        this.levelPercentage = levelPercentage;
+    }
+    
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+    
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.timestamp = timestamp;
+    }
+}
@@ -0,0 +1,262 @@
+package com.waterapp.alert;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.waterapp.entity.ReservoirStatusThresholds;
+import com.waterapp.entity.WaterReservoir;
+import com.waterapp.index.ReservoirIndex;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Raises and clears level alerts as committed writes arrive.
+ * Each write is compared with the reservoir's current alert level only, so evaluation is O(1).
+ * A reservoir enters WARNING below the GOOD threshold and CRITICAL below the WARNING threshold,
+ * but only leaves a level once its percentage is the hysteresis margin above the threshold, so
+ * readings hovering around a threshold do not flap.
+ * Active alerts are kept in memory and saved to a JSON file, so they survive restarts of the
+ * in-memory database. Transitions are queued and handed to the {@link AlertSink} in batches,
+ * every batch interval or, once a full batch is queued, on the engine's own flush thread, so
+ * sink I/O never runs on the thread that committed the write.
+ */
+@Component
+public class AlertEngine implements ReservoirIndex {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AlertEngine.class);
+    
+    @Autowired
+    private AlertSink alertSink;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private final BigDecimal hysteresis;
+    private final Path stateFile;
+    private final int batchSize;
+    
+    // reservoir id -> transition into its current level, NONE when it has no active alert
+    private final Map<Long, Alert> states = new ConcurrentHashMap<>();
+    // reservoir id -> revision last evaluated, updated under the states entry of the reservoir
+    private final Map<Long, Long> revisions = new ConcurrentHashMap<>();
+    private final Queue<Alert> outbox = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger outboxSize = new AtomicInteger();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    // Held while a batch is handed to the sink, which may block on I/O
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // Set while a flush of a full batch is queued on the flush thread
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final ExecutorService flusher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "alert-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    public AlertEngine(@Value("${reservoir.alerts.hysteresis-percent:2}") BigDecimal hysteresis,
+                       @Value("${reservoir.alerts.state-file:data/alerts/state.json}") String stateFile,
+                       @Value("${reservoir.alerts.batch-size:100}") int batchSize) {
+        if (hysteresis.signum() < 0) {
+            throw new IllegalArgumentException("Alert hysteresis must not be negative");
+        }
+        this.hysteresis = hysteresis;
+        this.stateFile = Paths.get(stateFile);
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Load the active alerts saved by the previous run
+     * @throws IOException if the state file cannot be read
+     */
+    @PostConstruct
+    public void load() throws IOException {
+        if (!Files.exists(stateFile)) {
+            return;
+        }
+        List<Alert> saved = objectMapper.readValue(stateFile.toFile(), new TypeReference<List<Alert>>() {});
+        for (Alert alert : saved) {
+            states.put(alert.getReservoirId(), alert);
+        }
+        logger.info("Loaded {} active reservoir alerts", saved.size());
+    }
+    
+    /**
+     * Deliver queued alerts and save the active ones
+     */
+    @PreDestroy
+    public void close() {
+        flusher.shutdown();
+        flush();
+        save();
+    }
+    
+    @Override
+    public void rebuild(List<WaterReservoir> reservoirs) {
+        // Runs at startup, against the saved alerts, and after the thresholds changed
+        for (WaterReservoir reservoir : reservoirs) {
+            evaluate(reservoir);
+        }
+    }
+    
+    @Override
+    public void update(WaterReservoir reservoir) {
+        evaluate(reservoir);
+    }
+    
+    /**
+     * Get the active alerts, most severe first
+     * @return alerts of reservoirs not at level NONE
+     */
+    public List<Alert> getActiveAlerts() {
+        return states.values().stream()
+                .filter(alert -> alert.getLevel() != AlertLevel.NONE)
+                .sorted(Comparator.comparing(Alert::getLevel).reversed()
+                        .thenComparing(Alert::getTimestamp, Comparator.nullsLast(Comparator.naturalOrder())))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Hand the queued alerts to the sink in batches
+     */
+    @Scheduled(fixedDelayString = "${reservoir.alerts.batch-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<Alert> batch = new ArrayList<>(batchSize);
+            Alert alert;
+            while ((alert = outbox.poll()) != null) {
+                outboxSize.decrementAndGet();
+                batch.add(alert);
+                if (batch.size() == batchSize) {
+                    deliver(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                deliver(batch);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    /**
+     * Save the active alerts if they changed since the last save
+     */
+    @Scheduled(fixedDelayString = "${reservoir.alerts.persist-interval-ms:5000}")
+    public void save() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            if (stateFile.getParent() != null) {
+                Files.createDirectories(stateFile.getParent());
+            }
+            Path temporary = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+            objectMapper.writeValue(temporary.toFile(), getActiveAlerts());
+            Files.move(temporary, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty.set(true);
+            logger.error("Failed to save reservoir alert state", e);
+        }
+    }
+    
+    private void evaluate(WaterReservoir reservoir) {
+        Long id = reservoir.getId();
+        BigDecimal percentage = reservoir.getCurrentLevelPercentage();
+        if (id == null || percentage == null) {
+            return;
+        }
+        Alert[] transition = new Alert[1];
+        long revision = reservoir.getRevision() == null ? 0 : reservoir.getRevision();
+        states.compute(id, (key, current) -> {
+            Long evaluated = revisions.get(id);
+            if (evaluated != null && evaluated > revision) {
+                // An older write delivered late must not move the alert back
+                return current;
+            }
+            revisions.put(id, revision);
+            AlertLevel previous = current == null ? AlertLevel.NONE : current.getLevel();
+            AlertLevel level = level(percentage, previous);
+            if (level == previous) {
+                return current;
+            }
+            String type = level.compareTo(previous) > 0 ? Alert.RAISED : Alert.CLEARED;
+            Alert alert = new Alert(id, reservoir.getName(), reservoir.getCounty(), type, level, previous,
+                    percentage, reservoir.getLastUpdated() == null ? LocalDateTime.now() : reservoir.getLastUpdated());
+            transition[0] = alert;
+            return alert;
+        });
+        if (transition[0] != null) {
+            dirty.set(true);
+            outbox.add(transition[0]);
+            if (outboxSize.incrementAndGet() >= batchSize && flushQueued.compareAndSet(false, true)) {
+                flushAsync();
+            }
+        }
+    }
+    
+    private void flushAsync() {
+        try {
+            flusher.execute(() -> {
+                // Cleared first: alerts queued while this flush runs request another one
+                flushQueued.set(false);
+                flush();
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down; close() flushes what is left
+            flushQueued.set(false);
+        }
+    }
+    
+    /**
+     * Alert level for a percentage given the current level; a level is only left once the
+     * percentage clears its threshold by the hysteresis margin
+     */
+    private AlertLevel level(BigDecimal percentage, AlertLevel current) {
+        BigDecimal warning = ReservoirStatusThresholds.getWarning();
+        BigDecimal good = ReservoirStatusThresholds.getGood();
+        if (percentage.compareTo(warning) < 0
+                || (current == AlertLevel.CRITICAL && percentage.compareTo(warning.add(hysteresis)) < 0)) {
+            return AlertLevel.CRITICAL;
+        }
+        if (percentage.compareTo(good) < 0
+                || (current != AlertLevel.NONE && percentage.compareTo(good.add(hysteresis)) < 0)) {
+            return AlertLevel.WARNING;
+        }
+        return AlertLevel.NONE;
+    }
+    
+    private void deliver(List<Alert> batch) {
+        try {
+            alertSink.deliver(batch);
+        } catch (Exception e) {
+            logger.error("Failed to deliver {} reservoir alerts", batch.size(), e);
+        }
+    }
+}
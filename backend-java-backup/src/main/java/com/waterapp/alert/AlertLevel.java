@@ -0,0 +1,8 @@
+package com.waterapp.alert;
+
+/**
+ * Severity of a reservoir level alert, in increasing order
+ */
+public enum AlertLevel {
+    NONE, WARNING, CRITICAL
+}
@@ -0,0 +1,18 @@
+package com.waterapp.alert;
+
+import java.util.List;
+
+/**
+ * Destination of alert transitions. Exactly one sink bean is active, selected with
+ * reservoir.alerts.sink. Alerts are handed over in batches from the scheduler, the alert flush
+ * thread or shutdown, but never concurrently: one batch is delivered at a time.
+ */
+public interface AlertSink {
+    
+    /**
+     * Deliver a batch of alerts
+     * @param alerts alerts in the order they were raised
+     * @throws Exception if delivery failed; the batch is logged and dropped
+     */
+    void deliver(List<Alert> alerts) throws Exception;
+}
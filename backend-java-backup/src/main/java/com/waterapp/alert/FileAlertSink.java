@@ -0,0 +1,46 @@
+package com.waterapp.alert;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends alerts to a file as newline-delimited JSON, one batch per write
+ */
+@Component
+@ConditionalOnProperty(name = "reservoir.alerts.sink", havingValue = "file")
+public class FileAlertSink implements AlertSink {
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private final Path file;
+    
+    public FileAlertSink(@Value("${reservoir.alerts.file:data/alerts/alerts.ndjson}") String file) {
+        this.file = Paths.get(file);
+    }
+    
+    @Override
+    public void deliver(List<Alert> alerts) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (Alert alert : alerts) {
+                writer.write(objectMapper.writeValueAsString(alert));
+                writer.newLine();
+            }
+        }
+    }
+}
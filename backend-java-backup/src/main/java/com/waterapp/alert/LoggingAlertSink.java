@@ -0,0 +1,25 @@
+package com.waterapp.alert;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import java.util.List;
+
+/**
+ * Writes alerts to the application log
+ */
+@Component
+@ConditionalOnProperty(name = "reservoir.alerts.sink", havingValue = "log", matchIfMissing = true)
+public class LoggingAlertSink implements AlertSink {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LoggingAlertSink.class);
+    
+    @Override
+    public void deliver(List<Alert> alerts) {
+        for (Alert alert : alerts) {
+            logger.warn("Reservoir alert {}: {} ({}) {} -> {} at {}%", alert.getType(), alert.getReservoirName(),
+                    alert.getReservoirId(), alert.getPreviousLevel(), alert.getLevel(), alert.getLevelPercentage());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.waterapp.config;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.waterapp.dto.LevelChangeDto;
+import com.waterapp.dto.MapClusterDto;
+import com.waterapp.dto.ReservoirDistanceDto;
+import com.waterapp.dto.ReservoirLevelDto;
+import com.waterapp.dto.WaterLevelItemResult;
+import com.waterapp.dto.WaterReservoirDto;
+import com.waterapp.entity.ReservoirStatusThresholds;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Compact binary encoding for clients that send Accept: application/cbor.
+ * The CBOR mapper uses its own schema: statuses are written as their code in
+ * {@link ReservoirStatusThresholds#code(String)}, enums such as water quality as their ordinal, timestamps as epoch
+ * milliseconds, and null fields are left out. JSON responses are unchanged.
+ * Since every controller response is negotiated on the Accept header, all responses carry
+ * Vary: Accept so shared caches keep the JSON and CBOR representations apart.
+ */
+@Configuration
+public class CompactEncodingConfig implements WebMvcConfigurer {
+    
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+                return true;
+            }
+        });
+    }
+    
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter() {
+        SimpleModule compact = new SimpleModule("compact-encoding");
+        compact.addSerializer(LocalDateTime.class, new EpochMillisSerializer());
+        return new MappingJackson2CborHttpMessageConverter(Jackson2ObjectMapperBuilder.cbor()
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .featuresToEnable(SerializationFeature.WRITE_ENUMS_USING_INDEX)
+                .modulesToInstall(compact)
+                .mixIn(WaterReservoirDto.class, StatusCodeMixin.class)
+                .mixIn(ReservoirLevelDto.class, StatusCodeMixin.class)
+                .mixIn(MapClusterDto.class, StatusCodeMixin.class)
+                .mixIn(ReservoirDistanceDto.class, StatusCodeMixin.class)
+                .mixIn(WaterLevelItemResult.class, StatusCodeMixin.class)
+                .mixIn(LevelChangeDto.class, LevelChangeMixin.class)
+                .build());
+    }
+    
+    /**
+     * Writes the status property as its small-integer code
+     */
+    private abstract static class StatusCodeMixin {
+        @JsonSerialize(using = StatusCodeSerializer.class)
+        abstract String getStatus();
+    }
+    
+    /**
+     * Writes the new and the previous status of a level change as their codes
+     */
+    private abstract static class LevelChangeMixin {
+        @JsonSerialize(using = StatusCodeSerializer.class)
+        abstract String getStatus();
+        
+        @JsonSerialize(using = StatusCodeSerializer.class)
+        abstract String getPreviousStatus();
+    }
+    
+    private static final class StatusCodeSerializer extends JsonSerializer<String> {
+        @Override
+        public void serialize(String status, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeNumber(ReservoirStatusThresholds.codeOrUnknown(status));
+        }
+    }
+    
+    /**
+     * Writes timestamps as epoch milliseconds in the server time zone, like the history store
+     */
+    private static final class EpochMillisSerializer extends JsonSerializer<LocalDateTime> {
+        @Override
+        public void serialize(LocalDateTime time, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeNumber(time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.waterapp.entity.User;
 import com.waterapp.entity.WaterReservoir;
 import com.waterapp.repository.UserRepository;
 import com.waterapp.repository.WaterReservoirRepository;
+import com.waterapp.service.RunoutProjectionEngine;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -23,6 +24,9 @@ public class DataInitializer implements CommandLineRunner {
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private RunoutProjectionEngine runoutProjectionEngine;
+    
     @Override
     public void run(String... args) throws Exception {
         // Initialize users if none exist
@@ -155,13 +159,9 @@ public class DataInitializer implements CommandLineRunner {
         reservoir.setContactPhone(contactPhone);
         reservoir.setContactEmail(contactEmail);
         
-        // Calculate estimated runout date based on current level and usage patterns
-        if (currentLevel.compareTo(BigDecimal.ZERO) > 0) {
-            // Simple estimation: assume daily usage of 1% of current level
-            double dailyUsagePercent = 0.01;
-            double daysUntilRunout = currentLevel.doubleValue() / (currentLevel.doubleValue() * dailyUsagePercent);
-            reservoir.setEstimatedRunoutDate(LocalDateTime.now().plusDays((long) daysUntilRunout));
-        }
+        // Seed the depletion rate assuming daily usage of 1% of the current level
+        reservoir.setDepletionRateM3PerDay(currentLevel.multiply(new BigDecimal("0.01")));
+        runoutProjectionEngine.projectRunout(reservoir, currentLevel, reservoir.getLastUpdated());
         
         waterReservoirRepository.save(reservoir);
     }
@@ -0,0 +1,25 @@
+package com.waterapp.config;
+
+import com.waterapp.entity.ReservoirStatusThresholds;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import java.math.BigDecimal;
+
+@Configuration
+public class ReservoirStatusConfig {
+    
+    @Value("${reservoir.status.good-threshold:70}")
+    private BigDecimal goodThreshold;
+    
+    @Value("${reservoir.status.warning-threshold:40}")
+    private BigDecimal warningThreshold;
+    
+    /**
+     * Apply the configured status thresholds before any reservoir is written
+     */
+    @PostConstruct
+    public void applyThresholds() {
+        ReservoirStatusThresholds.set(goodThreshold, warningThreshold);
+    }
+}
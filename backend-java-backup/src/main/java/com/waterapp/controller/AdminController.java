@@ -0,0 +1,155 @@
+package com.waterapp.controller;
+
+import com.waterapp.alert.Alert;
+import com.waterapp.alert.AlertEngine;
+import com.waterapp.dto.CacheStatsDto;
+import com.waterapp.dto.ContentionStatsDto;
+import com.waterapp.dto.ForecastRunDto;
+import com.waterapp.dto.HistoryStatsDto;
+import com.waterapp.dto.StatusThresholdsDto;
+import com.waterapp.entity.ReservoirStatusThresholds;
+import com.waterapp.history.WaterLevelHistoryStore;
+import com.waterapp.index.ReservoirStateStore;
+import com.waterapp.service.DepletionForecastService;
+import com.waterapp.service.OptimisticRetry;
+import com.waterapp.service.ReservoirCache;
+import com.waterapp.service.ResponseBodyCache;
+import com.waterapp.service.StatusReclassificationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import java.math.BigDecimal;
+import java.util.List;
+
+@RestController
+@RequestMapping("/admin")
+@CrossOrigin(origins = "${cors.allowed-origins}")
+public class AdminController {
+    
+    @Autowired
+    private StatusReclassificationService statusReclassificationService;
+    
+    @Autowired
+    private ReservoirCache reservoirCache;
+    
+    @Autowired
+    private ResponseBodyCache responseBodyCache;
+    
+    @Autowired
+    private DepletionForecastService depletionForecastService;
+    
+    @Autowired
+    private AlertEngine alertEngine;
+    
+    @Autowired
+    private ReservoirStateStore reservoirStateStore;
+    
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+    
+    @Autowired
+    private WaterLevelHistoryStore waterLevelHistoryStore;
+    
+    /**
+     * Get the current status thresholds and reclassification progress
+     * @return ResponseEntity with thresholds
+     */
+    @GetMapping("/status-thresholds")
+    public ResponseEntity<StatusThresholdsDto> getStatusThresholds() {
+        return ResponseEntity.ok(currentThresholds());
+    }
+    
+    /**
+     * Change the status thresholds and start reclassifying every reservoir in the background
+     * @param good minimum level percentage for GOOD
+     * @param warning minimum level percentage for WARNING
+     * @return ResponseEntity (202 Accepted) with the new thresholds
+     */
+    @PutMapping("/status-thresholds")
+    public ResponseEntity<StatusThresholdsDto> updateStatusThresholds(
+            @RequestParam BigDecimal good,
+            @RequestParam BigDecimal warning) {
+        
+        statusReclassificationService.changeThresholds(good, warning);
+        statusReclassificationService.reclassifyAll();
+        return ResponseEntity.accepted().body(currentThresholds());
+    }
+    
+    /**
+     * Get hit, miss and eviction counts of the reservoir caches and the response body cache
+     * @return ResponseEntity with one entry per cache
+     */
+    @GetMapping("/cache-stats")
+    public ResponseEntity<List<CacheStatsDto>> getCacheStats() {
+        List<CacheStatsDto> stats = reservoirCache.getStats();
+        stats.add(responseBodyCache.getStats());
+        return ResponseEntity.ok(stats);
+    }
+    
+    /**
+     * Get how often concurrent reservoir writers collided
+     * @return ResponseEntity with the in-memory compare-and-set and database optimistic lock counts
+     */
+    @GetMapping("/contention")
+    public ResponseEntity<ContentionStatsDto> getContentionStats() {
+        return ResponseEntity.ok(new ContentionStatsDto(reservoirStateStore.getCasRetries(),
+                reservoirStateStore.getStaleUpdates(), optimisticRetry.getRetries(), optimisticRetry.getFailures()));
+    }
+    
+    /**
+     * Get the size of the water-level history and how many readings it had to drop
+     * @return ResponseEntity with the stored, queued and dropped reading counts
+     */
+    @GetMapping("/history-stats")
+    public ResponseEntity<HistoryStatsDto> getHistoryStats() {
+        return ResponseEntity.ok(new HistoryStatsDto(waterLevelHistoryStore.size(),
+                waterLevelHistoryStore.getQueued(), waterLevelHistoryStore.getDropped()));
+    }
+    
+    /**
+     * Get the state of the depletion forecast and the metrics of its last run
+     * @return ResponseEntity with the forecast run status
+     */
+    @GetMapping("/forecast")
+    public ResponseEntity<ForecastRunDto> getForecastStatus() {
+        return ResponseEntity.ok(depletionForecastService.getStatus());
+    }
+    
+    /**
+     * Start forecasting the depletion of every active reservoir in the background
+     * @return ResponseEntity (202 Accepted) with the forecast run status
+     */
+    @PostMapping("/forecast")
+    public ResponseEntity<ForecastRunDto> runForecast() {
+        depletionForecastService.forecastAll();
+        return ResponseEntity.accepted().body(depletionForecastService.getStatus());
+    }
+    
+    /**
+     * Get the active level alerts
+     * @return ResponseEntity with the alerts, CRITICAL first
+     */
+    @GetMapping("/alerts")
+    public ResponseEntity<List<Alert>> getActiveAlerts() {
+        return ResponseEntity.ok(alertEngine.getActiveAlerts());
+    }
+    
+    /**
+     * Map invalid arguments to 400 Bad Request
+     * @param e the rejected argument
+     * @return ResponseEntity with the error message
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+    
+    private StatusThresholdsDto currentThresholds() {
+        return new StatusThresholdsDto(
+                ReservoirStatusThresholds.getGood(),
+                ReservoirStatusThresholds.getWarning(),
+                statusReclassificationService.isRunning(),
+                statusReclassificationService.getLastCompletedAt(),
+                statusReclassificationService.getLastUpdatedRows());
+    }
+}
@@ -1,107 +1,341 @@
 package com.waterapp.controller;
 
+import com.waterapp.dto.BulkWaterLevelResponse;
+import com.waterapp.dto.CursorPage;
+import com.waterapp.dto.DownsampledHistoryDto;
+import com.waterapp.dto.MapClusterDto;
+import com.waterapp.dto.NearestBatchRequest;
+import com.waterapp.dto.NearestReservoirsResult;
+import com.waterapp.dto.ReservoirLevelDto;
+import com.waterapp.dto.WaterLevelPointDto;
+import com.waterapp.dto.WaterLevelReadingDto;
 import com.waterapp.dto.WaterReservoirDto;
+import com.waterapp.index.RegionStatistics;
+import com.waterapp.index.ReservoirVersionIndex;
+import com.waterapp.push.LevelChangeBroadcaster;
+import com.waterapp.service.ResponseBodyCache;
+import com.waterapp.service.WaterLevelHistoryService;
+import com.waterapp.service.WaterLevelIngestionService;
 import com.waterapp.service.WaterReservoirService;
+import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/reservoirs")
-@CrossOrigin(origins = "${cors.allowed-origins}")
+@CrossOrigin(origins = "${cors.allowed-origins}", exposedHeaders = {WaterReservoirController.NEXT_CURSOR_HEADER, HttpHeaders.LINK})
 public class WaterReservoirController {
     
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    
     @Autowired
     private WaterReservoirService waterReservoirService;
     
+    @Autowired
+    private WaterLevelIngestionService waterLevelIngestionService;
+    
+    @Autowired
+    private WaterLevelHistoryService waterLevelHistoryService;
+    
+    @Autowired
+    private LevelChangeBroadcaster levelChangeBroadcaster;
+    
+    @Autowired
+    private ResponseBodyCache responseBodyCache;
+    
+    @Value("${reservoir.pagination.default-limit:100}")
+    private int defaultLimit;
+    
+    @Value("${reservoir.pagination.max-limit:1000}")
+    private int maxLimit;
+    
     /**
      * Get all active reservoirs
+     * @param cursor cursor from the previous page's X-Next-Cursor header
+     * @param limit page size (default and maximum are configurable)
+     * @param request used to answer If-None-Match / If-Modified-Since with 304
      * @return ResponseEntity with list of all active reservoirs
      */
     @GetMapping
-    public ResponseEntity<List<WaterReservoirDto>> getAllReservoirs() {
-        List<WaterReservoirDto> reservoirs = waterReservoirService.getAllActiveReservoirs();
-        return ResponseEntity.ok(reservoirs);
+    public ResponseEntity<?> getAllReservoirs(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            WebRequest request) {
+        
+        ReservoirVersionIndex.Version version = waterReservoirService.getDatasetVersion();
+        String etag = waterReservoirService.getDatasetTag(version);
+        int pageLimit = resolveLimit(limit);
+        if (servesCachedJson(request)) {
+            ResponseBodyCache.Body body = responseBodyCache.getPage(cacheKey("reservoirs", cursor, pageLimit),
+                    () -> waterReservoirService.getAllActiveReservoirs(cursor, pageLimit));
+            // The gzip body is a different representation, so it gets its own strong ETag
+            if (request.checkNotModified("\"" + etag + (sendsGzip(body, request) ? "-gz" : "") + "\"",
+                    version.getLastModified())) {
+                return null;
+            }
+            return cached(body, request);
+        }
+        if (request.checkNotModified("\"" + etag + representationSuffix(request) + "\"", version.getLastModified())) {
+            return null;
+        }
+        return page(waterReservoirService.getAllActiveReservoirs(cursor, pageLimit));
+    }
+    
+    /**
+     * Subscribe to live level changes as Server-Sent Events. Each "level" event carries the
+     * reservoir's new level, status and previous status; rapid updates of one reservoir are
+     * coalesced into its latest state.
+     * @param ids reservoir IDs to follow
+     * @param counties counties to follow
+     * @param statuses statuses to follow, matched against both the old and the new status
+     * @return event stream of changes matching any filter, or every change without filters
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLevelChanges(
+            @RequestParam(required = false) List<Long> ids,
+            @RequestParam(required = false) List<String> counties,
+            @RequestParam(required = false) List<String> statuses) {
+        
+        return levelChangeBroadcaster.subscribe(ids, counties, statuses);
+    }
+    
+    /**
+     * Export all active reservoirs in one response, streamed as they are read
+     * @return ResponseEntity streaming a JSON array of reservoirs
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportReservoirs() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(waterReservoirService::exportActiveReservoirs);
+    }
+    
+    /**
+     * Export every reservoir matching a location search in one response, streamed as they are read
+     * @param search search term
+     * @return ResponseEntity streaming a JSON array of reservoirs, best matches first
+     */
+    @GetMapping("/search/export")
+    public ResponseEntity<StreamingResponseBody> exportSearchResults(@RequestParam String search) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> waterReservoirService.exportSearchResults(search, out));
     }
     
     /**
      * Get reservoir by ID
      * @param id reservoir ID
+     * @param request used to answer If-None-Match / If-Modified-Since with 304
      * @return ResponseEntity with reservoir data
      */
     @GetMapping("/{id}")
-    public ResponseEntity<WaterReservoirDto> getReservoirById(@PathVariable Long id) {
+    public ResponseEntity<WaterReservoirDto> getReservoirById(@PathVariable Long id, WebRequest request) {
+        ReservoirVersionIndex.Version version = waterReservoirService.getReservoirVersion(id);
+        if (version != null && request.checkNotModified(
+                "\"r" + id + "-" + version.getRevision() + representationSuffix(request) + "\"",
+                version.getLastModified())) {
+            return null;
+        }
         return waterReservoirService.getReservoirById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    /**
+     * Get the current level and status of a reservoir, served from memory
+     * @param id reservoir ID
+     * @param request used to answer If-None-Match with 304
+     * @return ResponseEntity with the current level
+     */
+    @GetMapping("/{id}/level")
+    public ResponseEntity<ReservoirLevelDto> getCurrentLevel(@PathVariable Long id, WebRequest request) {
+        Optional<ReservoirLevelDto> level = waterReservoirService.getCurrentLevel(id);
+        if (level.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (request.checkNotModified("\"l" + id + "-" + level.get().getRevision() + representationSuffix(request) + "\"")) {
+            return null;
+        }
+        return ResponseEntity.ok(level.get());
+    }
+    
+    /**
+     * Get the recorded water levels of a reservoir
+     * @param id reservoir ID
+     * @param from start of the range (inclusive, ISO date-time), defaults to the first reading
+     * @param to end of the range (inclusive, ISO date-time), defaults to the last reading
+     * @param limit maximum number of readings (default and maximum are configurable)
+     * @return ResponseEntity with the readings in time order
+     */
+    @GetMapping("/{id}/history")
+    public ResponseEntity<List<WaterLevelPointDto>> getWaterLevelHistory(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer limit) {
+        
+        return ResponseEntity.ok(waterLevelHistoryService.getHistory(id, from, to, resolveLimit(limit)));
+    }
+    
+    /**
+     * Get the water-level history of a reservoir downsampled to hourly or daily buckets
+     * @param id reservoir ID
+     * @param from start of the range (inclusive, ISO date-time), defaults to 30 days before to
+     * @param to end of the range (inclusive, ISO date-time), defaults to now
+     * @param points number of points wanted, the coarsest resolution yielding at least that many is used
+     * @return ResponseEntity with the resolution used and min/max/avg/last points in time order
+     */
+    @GetMapping("/{id}/history/downsampled")
+    public ResponseEntity<DownsampledHistoryDto> getDownsampledWaterLevelHistory(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "200") int points) {
+        
+        return ResponseEntity.ok(waterLevelHistoryService.getDownsampledHistory(id, from, to, points));
+    }
+    
     /**
      * Search reservoirs by location (county, sub-county, ward, or name)
      * @param search search term
+     * @param cursor cursor from the previous page's X-Next-Cursor header
+     * @param limit page size (default and maximum are configurable)
      * @return ResponseEntity with list of matching reservoirs
      */
     @GetMapping("/search")
-    public ResponseEntity<List<WaterReservoirDto>> searchReservoirs(@RequestParam String search) {
-        List<WaterReservoirDto> reservoirs = waterReservoirService.searchReservoirsByLocation(search);
-        return ResponseEntity.ok(reservoirs);
+    public ResponseEntity<List<WaterReservoirDto>> searchReservoirs(
+            @RequestParam String search,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        
+        return page(waterReservoirService.searchReservoirsByLocation(search, cursor, resolveLimit(limit)));
     }
     
     /**
      * Get reservoirs by county
      * @param county county name
+     * @param cursor cursor from the previous page's X-Next-Cursor header
+     * @param limit page size (default and maximum are configurable)
      * @return ResponseEntity with list of reservoirs in the county
      */
     @GetMapping("/county/{county}")
-    public ResponseEntity<List<WaterReservoirDto>> getReservoirsByCounty(@PathVariable String county) {
-        List<WaterReservoirDto> reservoirs = waterReservoirService.getReservoirsByCounty(county);
-        return ResponseEntity.ok(reservoirs);
+    public ResponseEntity<List<WaterReservoirDto>> getReservoirsByCounty(
+            @PathVariable String county,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        
+        return page(waterReservoirService.getReservoirsByCounty(county, cursor, resolveLimit(limit)));
     }
     
     /**
      * Get reservoirs by sub-county
      * @param subCounty sub-county name
+     * @param cursor cursor from the previous page's X-Next-Cursor header
+     * @param limit page size (default and maximum are configurable)
      * @return ResponseEntity with list of reservoirs in the sub-county
      */
     @GetMapping("/subcounty/{subCounty}")
-    public ResponseEntity<List<WaterReservoirDto>> getReservoirsBySubCounty(@PathVariable String subCounty) {
-        List<WaterReservoirDto> reservoirs = waterReservoirService.getReservoirsBySubCounty(subCounty);
-        return ResponseEntity.ok(reservoirs);
+    public ResponseEntity<List<WaterReservoirDto>> getReservoirsBySubCounty(
+            @PathVariable String subCounty,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        
+        return page(waterReservoirService.getReservoirsBySubCounty(subCounty, cursor, resolveLimit(limit)));
     }
     
     /**
      * Get reservoirs by ward
      * @param ward ward name
+     * @param cursor cursor from the previous page's X-Next-Cursor header
+     * @param limit page size (default and maximum are configurable)
      * @return ResponseEntity with list of reservoirs in the ward
      */
     @GetMapping("/ward/{ward}")
-    public ResponseEntity<List<WaterReservoirDto>> getReservoirsByWard(@PathVariable String ward) {
-        List<WaterReservoirDto> reservoirs = waterReservoirService.getReservoirsByWard(ward);
-        return ResponseEntity.ok(reservoirs);
+    public ResponseEntity<List<WaterReservoirDto>> getReservoirsByWard(
+            @PathVariable String ward,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        
+        return page(waterReservoirService.getReservoirsByWard(ward, cursor, resolveLimit(limit)));
     }
     
     /**
      * Get reservoirs by name
      * @param name reservoir name
+     * @param cursor cursor from the previous page's X-Next-Cursor header
+     * @param limit page size (default and maximum are configurable)
      * @return ResponseEntity with list of reservoirs matching the name
      */
     @GetMapping("/name/{name}")
-    public ResponseEntity<List<WaterReservoirDto>> getReservoirsByName(@PathVariable String name) {
-        List<WaterReservoirDto> reservoirs = waterReservoirService.getReservoirsByName(name);
-        return ResponseEntity.ok(reservoirs);
+    public ResponseEntity<List<WaterReservoirDto>> getReservoirsByName(
+            @PathVariable String name,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        
+        return page(waterReservoirService.getReservoirsByName(name, cursor, resolveLimit(limit)));
+    }
+    
+    /**
+     * Filter active reservoirs by region, status, water quality and fill percentage
+     * @param county optional county name
+     * @param subCounty optional sub-county name
+     * @param ward optional ward name
+     * @param status optional comma-separated statuses, e.g. GOOD,WARNING
+     * @param quality optional comma-separated water qualities, e.g. EXCELLENT,GOOD
+     * @param minPercentage optional minimum fill percentage (inclusive)
+     * @param maxPercentage optional maximum fill percentage (inclusive)
+     * @param cursor cursor from the previous page's X-Next-Cursor header
+     * @param limit page size (default and maximum are configurable)
+     * @return ResponseEntity with list of matching reservoirs
+     */
+    @GetMapping("/filter")
+    public ResponseEntity<List<WaterReservoirDto>> filterReservoirs(
+            @RequestParam(required = false) String county,
+            @RequestParam(required = false) String subCounty,
+            @RequestParam(required = false) String ward,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String quality,
+            @RequestParam(required = false) BigDecimal minPercentage,
+            @RequestParam(required = false) BigDecimal maxPercentage,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        
+        return page(waterReservoirService.filterReservoirs(county, subCounty, ward, status, quality,
+                minPercentage, maxPercentage, cursor, resolveLimit(limit)));
     }
     
     /**
      * Get reservoirs by status
      * @param status GOOD, WARNING, or CRITICAL
+     * @param cursor cursor from the previous page's X-Next-Cursor header
+     * @param limit page size (default and maximum are configurable)
      * @return ResponseEntity with list of reservoirs with the specified status
      */
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<WaterReservoirDto>> getReservoirsByStatus(@PathVariable String status) {
-        List<WaterReservoirDto> reservoirs = waterReservoirService.getReservoirsByStatus(status);
-        return ResponseEntity.ok(reservoirs);
+    public ResponseEntity<List<WaterReservoirDto>> getReservoirsByStatus(
+            @PathVariable String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        
+        return page(waterReservoirService.getReservoirsByStatus(status, cursor, resolveLimit(limit)));
     }
     
     /**
@@ -109,51 +343,194 @@ public class WaterReservoirController {
      * @param latitude center latitude
      * @param longitude center longitude
      * @param radius radius in kilometers
-     * @return ResponseEntity with list of reservoirs within the radius
+     * @param cursor cursor from the previous page's X-Next-Cursor header
+     * @param limit page size (default and maximum are configurable)
+     * @return ResponseEntity with list of reservoirs within the radius, nearest first
      */
     @GetMapping("/nearby")
     public ResponseEntity<List<WaterReservoirDto>> getReservoirsNearby(
             @RequestParam BigDecimal latitude,
             @RequestParam BigDecimal longitude,
-            @RequestParam(defaultValue = "10.0") double radius) {
+            @RequestParam(defaultValue = "10.0") double radius,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
         
-        List<WaterReservoirDto> reservoirs = waterReservoirService.getReservoirsWithinRadius(latitude, longitude, radius);
+        return page(waterReservoirService.getReservoirsWithinRadius(latitude, longitude, radius, cursor, resolveLimit(limit)));
+    }
+    
+    /**
+     * Get the k reservoirs closest to a point
+     * @param latitude query latitude
+     * @param longitude query longitude
+     * @param k number of reservoirs to return (1-100, default: 5)
+     * @param status optional comma-separated statuses, e.g. GOOD,WARNING
+     * @param active optional active flag filter
+     * @return ResponseEntity with list of nearest reservoirs, nearest first
+     */
+    @GetMapping("/nearest")
+    public ResponseEntity<List<WaterReservoirDto>> getNearestReservoirs(
+            @RequestParam BigDecimal latitude,
+            @RequestParam BigDecimal longitude,
+            @RequestParam(defaultValue = "5") int k,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Boolean active) {
+        
+        if (k < 1 || k > 100) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<WaterReservoirDto> reservoirs = waterReservoirService.getNearestReservoirs(latitude, longitude, k, status, active);
         return ResponseEntity.ok(reservoirs);
     }
     
     /**
-     * Get critical reservoirs (water level below 40%)
+     * Get map clusters of the active reservoirs in a viewport
+     * @param minLat southern edge of the viewport
+     * @param maxLat northern edge of the viewport
+     * @param minLon western edge of the viewport
+     * @param maxLon eastern edge of the viewport
+     * @param zoom map zoom level (0 shows the whole world)
+     * @return ResponseEntity with list of clusters with centroid, count and worst status
+     */
+    @GetMapping("/viewport")
+    public ResponseEntity<List<MapClusterDto>> getViewportClusters(
+            @RequestParam double minLat,
+            @RequestParam double maxLat,
+            @RequestParam double minLon,
+            @RequestParam double maxLon,
+            @RequestParam int zoom) {
+        
+        return ResponseEntity.ok(waterReservoirService.getViewportClusters(minLat, maxLat, minLon, maxLon, zoom));
+    }
+    
+    /**
+     * Get the k nearest reservoirs for many points in one call
+     * @param request points, k and filters
+     * @return ResponseEntity with one result per point, in request order
+     */
+    @PostMapping("/nearest/batch")
+    public ResponseEntity<List<NearestReservoirsResult>> getNearestReservoirsBatch(
+            @Valid @RequestBody NearestBatchRequest request) {
+        return ResponseEntity.ok(waterReservoirService.getNearestReservoirsBatch(request));
+    }
+    
+    /**
+     * Get critical reservoirs (water level below the warning threshold)
+     * @param cursor cursor from the previous page's X-Next-Cursor header
+     * @param limit page size (default and maximum are configurable)
+     * @param request used to serve the stored JSON body, gzip-compressed if accepted
      * @return ResponseEntity with list of critical reservoirs
      */
     @GetMapping("/critical")
-    public ResponseEntity<List<WaterReservoirDto>> getCriticalReservoirs() {
-        List<WaterReservoirDto> reservoirs = waterReservoirService.getCriticalReservoirs();
-        return ResponseEntity.ok(reservoirs);
+    public ResponseEntity<?> getCriticalReservoirs(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            WebRequest request) {
+        
+        int pageLimit = resolveLimit(limit);
+        if (servesCachedJson(request)) {
+            return cached(responseBodyCache.getPage(cacheKey("critical", cursor, pageLimit),
+                    () -> waterReservoirService.getCriticalReservoirs(cursor, pageLimit)), request);
+        }
+        return page(waterReservoirService.getCriticalReservoirs(cursor, pageLimit));
     }
     
     /**
      * Get reservoirs running out soon
      * @param days number of days to check (default: 30)
+     * @param cursor cursor from the previous page's X-Next-Cursor header
+     * @param limit page size (default and maximum are configurable)
      * @return ResponseEntity with list of reservoirs running out soon
      */
     @GetMapping("/running-out")
     public ResponseEntity<List<WaterReservoirDto>> getReservoirsRunningOutSoon(
-            @RequestParam(defaultValue = "30") int days) {
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
         
-        List<WaterReservoirDto> reservoirs = waterReservoirService.getReservoirsRunningOutSoon(days);
-        return ResponseEntity.ok(reservoirs);
+        return page(waterReservoirService.getReservoirsRunningOutSoon(days, cursor, resolveLimit(limit)));
     }
     
     /**
      * Get reservoir statistics
+     * @param request used to serve the stored JSON body, gzip-compressed if accepted
      * @return ResponseEntity with reservoir statistics
      */
     @GetMapping("/statistics")
-    public ResponseEntity<WaterReservoirService.ReservoirStatistics> getReservoirStatistics() {
+    public ResponseEntity<?> getReservoirStatistics(WebRequest request) {
+        if (servesCachedJson(request)) {
+            return cached(responseBodyCache.getObject("statistics", waterReservoirService::getReservoirStatistics),
+                    request);
+        }
         WaterReservoirService.ReservoirStatistics stats = waterReservoirService.getReservoirStatistics();
         return ResponseEntity.ok(stats);
     }
     
+    /**
+     * Get statistics of the active reservoirs matching a filter
+     * @param county optional county name
+     * @param subCounty optional sub-county name
+     * @param ward optional ward name
+     * @param status optional comma-separated statuses
+     * @param quality optional comma-separated water qualities
+     * @param minPercentage optional minimum fill percentage (inclusive)
+     * @param maxPercentage optional maximum fill percentage (inclusive)
+     * @return ResponseEntity with the statistics of the matching reservoirs
+     */
+    @GetMapping("/statistics/filter")
+    public ResponseEntity<RegionStatistics> getFilterStatistics(
+            @RequestParam(required = false) String county,
+            @RequestParam(required = false) String subCounty,
+            @RequestParam(required = false) String ward,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String quality,
+            @RequestParam(required = false) BigDecimal minPercentage,
+            @RequestParam(required = false) BigDecimal maxPercentage) {
+        
+        return ResponseEntity.ok(waterReservoirService.getFilterStatistics(county, subCounty, ward, status, quality,
+                minPercentage, maxPercentage));
+    }
+    
+    /**
+     * Get statistics of every county, with their sub-counties and wards
+     * @return ResponseEntity with the whole region tree
+     */
+    @GetMapping("/statistics/regions")
+    public ResponseEntity<List<RegionStatistics>> getAllRegionStatistics() {
+        return ResponseEntity.ok(waterReservoirService.getAllRegionStatistics());
+    }
+    
+    /**
+     * Get statistics of a county, sub-county or ward
+     * @param level county, subcounty or ward
+     * @param name region name
+     * @return ResponseEntity with the region statistics
+     */
+    @GetMapping("/statistics/{level}/{name}")
+    public ResponseEntity<RegionStatistics> getRegionStatistics(
+            @PathVariable String level,
+            @PathVariable String name) {
+        
+        return waterReservoirService.getRegionStatistics(level, name, false)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Get statistics of a county, sub-county or ward together with every region below it
+     * @param level county, subcounty or ward
+     * @param name region name
+     * @return ResponseEntity with the region statistics and nested children
+     */
+    @GetMapping("/statistics/{level}/{name}/drilldown")
+    public ResponseEntity<RegionStatistics> getRegionStatisticsDrillDown(
+            @PathVariable String level,
+            @PathVariable String name) {
+        
+        return waterReservoirService.getRegionStatistics(level, name, true)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
     /**
      * Update reservoir water level
      * @param id reservoir ID
@@ -170,6 +547,172 @@ public class WaterReservoirController {
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    /**
+     * Update the water level of many reservoirs at once
+     * @param readings readings of (id, currentLevelM3, optional timestamp)
+     * @return ResponseEntity with the outcome of every reading, in request order
+     */
+    @PostMapping(value = "/water-levels", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkWaterLevelResponse> updateWaterLevels(
+            @RequestBody List<WaterLevelReadingDto> readings) {
+        
+        return ResponseEntity.ok(new BulkWaterLevelResponse(waterLevelIngestionService.ingest(readings)));
+    }
+    
+    /**
+     * Update the water level of many reservoirs from a newline-delimited JSON stream
+     * @param body one reading object per line
+     * @return ResponseEntity with the outcome of every reading, in request order
+     * @throws IOException if reading the body fails
+     */
+    @PostMapping(value = "/water-levels", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<BulkWaterLevelResponse> updateWaterLevelsNdjson(InputStream body) throws IOException {
+        return ResponseEntity.ok(new BulkWaterLevelResponse(waterLevelIngestionService.ingestNdjson(body)));
+    }
+    
+    /**
+     * Map invalid arguments (bad cursor, limit or filter) to 400 Bad Request
+     * @param e the rejected argument
+     * @return ResponseEntity with the error message
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+    
+    /**
+     * Map updates that kept losing to concurrent writers to 409 Conflict
+     * @param e the failed optimistic lock check
+     * @return ResponseEntity with the error message
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleOptimisticLockingFailure(OptimisticLockingFailureException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("Reservoir was updated concurrently, please retry");
+    }
+    
+    /**
+     * Resolve the requested page size
+     * @param limit requested limit, null for the default
+     * @return limit capped at the configured maximum
+     */
+    private int resolveLimit(Integer limit) {
+        if (limit == null) {
+            return defaultLimit;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        return Math.min(limit, maxLimit);
+    }
+    
+    /**
+     * Build a list response for one page; the next page is advertised through the
+     * X-Next-Cursor and Link headers so the body stays a plain JSON array
+     * @param page page of reservoirs
+     * @return ResponseEntity with the page items
+     */
+    private ResponseEntity<List<WaterReservoirDto>> page(CursorPage<WaterReservoirDto> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        addNextPageHeaders(response, page.getNextCursor());
+        return response.body(page.getItems());
+    }
+    
+    private void addNextPageHeaders(ResponseEntity.BodyBuilder response, String nextCursor) {
+        if (nextCursor != null) {
+            String nextUrl = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", nextCursor)
+                    .build()
+                    .toUriString();
+            response.header(NEXT_CURSOR_HEADER, nextCursor);
+            response.header(HttpHeaders.LINK, "<" + nextUrl + ">; rel=\"next\"");
+        }
+    }
+    
+    /**
+     * Build a response from a stored body, sending the gzip encoding if the client accepts it
+     * @param body stored body
+     * @param request request with the Accept-Encoding header
+     * @return ResponseEntity with the serialized JSON
+     */
+    private ResponseEntity<byte[]> cached(ResponseBodyCache.Body body, WebRequest request) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        addNextPageHeaders(response, body.getNextCursor());
+        if (sendsGzip(body, request)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(body.getGzip());
+        }
+        return response.body(body.getJson());
+    }
+    
+    private static boolean sendsGzip(ResponseBodyCache.Body body, WebRequest request) {
+        return body.getGzip() != null && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+    }
+    
+    /**
+     * Whether a request can be answered from the response cache, which only stores JSON
+     * @param request request with the Accept header
+     * @return true if the cache is enabled and JSON is the client's preferred type
+     */
+    private boolean servesCachedJson(WebRequest request) {
+        if (!responseBodyCache.isEnabled()) {
+            return false;
+        }
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || accept.isBlank()) {
+            return true;
+        }
+        MediaType preferred = preferredType(accept);
+        return preferred != null && preferred.isCompatibleWith(MediaType.APPLICATION_JSON);
+    }
+    
+    /**
+     * ETag suffix of the negotiated representation, so JSON and CBOR bodies never share a strong ETag
+     * @param request request with the Accept header
+     * @return "-cbor" if the client prefers CBOR, otherwise an empty string
+     */
+    private static String representationSuffix(WebRequest request) {
+        MediaType preferred = preferredType(request.getHeader(HttpHeaders.ACCEPT));
+        // JSON is negotiated first, so a type matching both (such as */*) gets JSON
+        return preferred != null && preferred.isCompatibleWith(MediaType.APPLICATION_CBOR)
+                && !preferred.isCompatibleWith(MediaType.APPLICATION_JSON) ? "-cbor" : "";
+    }
+    
+    private static MediaType preferredType(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return null;
+        }
+        try {
+            MediaType preferred = null;
+            for (MediaType type : MediaType.parseMediaTypes(accept)) {
+                if (preferred == null || type.getQualityValue() > preferred.getQualityValue()) {
+                    preferred = type;
+                }
+            }
+            return preferred;
+        } catch (InvalidMediaTypeException e) {
+            // Left to the regular content negotiation
+            return null;
+        }
+    }
+    
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+    
+    private static String cacheKey(String endpoint, String cursor, int limit) {
+        return endpoint + ":" + limit + ":" + (cursor == null ? "" : cursor);
+    }
+    
     /**
      * Health check endpoint
      * @return ResponseEntity with health status
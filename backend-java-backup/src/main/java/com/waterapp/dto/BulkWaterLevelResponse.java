@@ -0,0 +1,49 @@
+package com.waterapp.dto;
+
+import java.util.List;
+
+public class BulkWaterLevelResponse {
+    private int updated;
+    private int failed;
+    private List<WaterLevelItemResult> results;
+    
+    // Default constructor
+    public BulkWaterLevelResponse() {}
+    
+    // Constructor from per-item results
+    public BulkWaterLevelResponse(List<WaterLevelItemResult> results) {
+        this.results = results;
+        for (WaterLevelItemResult result : results) {
+            if (result.isSuccess()) {
+                updated++;
+            } else {
+                failed++;
+            }
+        }
+    }
+    
+    // Getters and Setters
+    public int getUpdated() {
+        return updated;
+    }
+    
+    public void setUpdated(int updated) {
+        this.updated = updated;
+    }
+    
+    public int getFailed() {
+        return failed;
+    }
+    
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+    
+    public List<WaterLevelItemResult> getResults() {
+        return results;
+    }
+    
+    public void setResults(List<WaterLevelItemResult> results) {
+        this.results = results;
+    }
+}
@@ -0,0 +1,53 @@
+package com.waterapp.dto;
+
+public class ContentionStatsDto {
+    private long casRetries;
+    private long staleUpdates;
+    private long optimisticLockRetries;
+    private long optimisticLockFailures;
+    
+    // Default constructor
+    public ContentionStatsDto() {}
+    
+    // Constructor with fields
+    public ContentionStatsDto(long casRetries, long staleUpdates, long optimisticLockRetries,
+                              long optimisticLockFailures) {
+        this.casRetries = casRetries;
+        this.staleUpdates = staleUpdates;
+        this.optimisticLockRetries = optimisticLockRetries;
+        this.optimisticLockFailures = optimisticLockFailures;
+    }
+    
+    // Getters and Setters
+    public long getCasRetries() {
+        return casRetries;
+    }
+    
+    public void setCasRetries(long casRetries) {
+        this.casRetries = casRetries;
+    }
+    
+    public long getStaleUpdates() {
+        return staleUpdates;
+    }
+    
+    public void setStaleUpdates(long staleUpdates) {
+        this.staleUpdates = staleUpdates;
+    }
+    
+    public long getOptimisticLockRetries() {
+        return optimisticLockRetries;
+    }
+    
+    public void setOptimisticLockRetries(long optimisticLockRetries) {
+        this.optimisticLockRetries = optimisticLockRetries;
+    }
+    
+    public long getOptimisticLockFailures() {
+        return optimisticLockFailures;
+    }
+    
+    public void setOptimisticLockFailures(long optimisticLockFailures) {
+        this.optimisticLockFailures = optimisticLockFailures;
+    }
+}
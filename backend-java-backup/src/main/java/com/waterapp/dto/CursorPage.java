@@ -0,0 +1,28 @@
+package com.waterapp.dto;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing
+ * @param <T> item type
+ */
+public class CursorPage<T> {
+    private final List<T> items;
+    private final String nextCursor;
+    
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+    
+    public List<T> getItems() {
+        return items;
+    }
+    
+    /**
+     * @return cursor of the next page, null on the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
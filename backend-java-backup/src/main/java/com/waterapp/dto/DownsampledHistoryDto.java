@@ -0,0 +1,34 @@
+package com.waterapp.dto;
+
+import java.util.List;
+
+public class DownsampledHistoryDto {
+    private String resolution;
+    private List<WaterLevelBucketDto> points;
+    
+    // Default constructor
+    public DownsampledHistoryDto() {}
+    
+    // Constructor with fields
+    public DownsampledHistoryDto(String resolution, List<WaterLevelBucketDto> points) {
+        this.resolution = resolution;
+        this.points = points;
+    }
+    
+    // Getters and Setters
+    public String getResolution() {
+        return resolution;
+    }
+    
+    public void setResolution(String resolution) {
+        this.resolution = resolution;
+    }
+    
+    public List<WaterLevelBucketDto> getPoints() {
+        return points;
+    }
+    
+    public void setPoints(List<WaterLevelBucketDto> points) {
+        this.points = points;
+    }
+}
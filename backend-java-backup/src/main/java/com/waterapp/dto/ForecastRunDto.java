@@ -0,0 +1,116 @@
+package com.waterapp.dto;
+
+import java.time.LocalDateTime;
+
+public class ForecastRunDto {
+    private boolean running;
+    private int parallelism;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+    private long durationMs;
+    private long reservoirs;
+    private long forecasted;
+    private long skipped;
+    private long updatedRows;
+    private double reservoirsPerSecond;
+    
+    // Default constructor
+    public ForecastRunDto() {}
+    
+    // Constructor with fields
+    public ForecastRunDto(boolean running, int parallelism, LocalDateTime startedAt, LocalDateTime completedAt,
+                          long durationMs, long reservoirs, long forecasted, long skipped, long updatedRows,
+                          double reservoirsPerSecond) {
+        this.running = running;
+        this.parallelism = parallelism;
+        this.startedAt = startedAt;
+        this.completedAt = completedAt;
+        this.durationMs = durationMs;
+        this.reservoirs = reservoirs;
+        this.forecasted = forecasted;
+        this.skipped = skipped;
+        this.updatedRows = updatedRows;
+        this.reservoirsPerSecond = reservoirsPerSecond;
+    }
+    
+    // Getters and Setters
+    public boolean isRunning() {
+        return running;
+    }
+    
+    public void setRunning(boolean running) {
+        this.running = running;
+    }
+    
+    public int getParallelism() {
+        return parallelism;
+    }
+    
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+    
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+    
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+    
+    public long getDurationMs() {
+        return durationMs;
+    }
+    
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+    
+    public long getReservoirs() {
+        return reservoirs;
+    }
+    
+    public void setReservoirs(long reservoirs) {
+        this.reservoirs = reservoirs;
+    }
+    
+    public long getForecasted() {
+        return forecasted;
+    }
+    
+    public void setForecasted(long forecasted) {
+        this.forecasted = forecasted;
+    }
+    
+    public long getSkipped() {
+        return skipped;
+    }
+    
+    public void setSkipped(long skipped) {
+        this.skipped = skipped;
+    }
+    
+    public long getUpdatedRows() {
+        return updatedRows;
+    }
+    
+    public void setUpdatedRows(long updatedRows) {
+        this.updatedRows = updatedRows;
+    }
+    
+    public double getReservoirsPerSecond() {
+        return reservoirsPerSecond;
+    }
+    
+    public void setReservoirsPerSecond(double reservoirsPerSecond) {
+        this.reservoirsPerSecond = reservoirsPerSecond;
+    }
+}
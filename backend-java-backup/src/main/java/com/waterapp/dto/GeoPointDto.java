@@ -0,0 +1,39 @@
+package com.waterapp.dto;
+
+import jakarta.validation.constraints.NotNull;
+import java.math.BigDecimal;
+
+public class GeoPointDto {
+    
+    @NotNull(message = "Latitude is required")
+    private BigDecimal latitude;
+    
+    @NotNull(message = "Longitude is required")
+    private BigDecimal longitude;
+    
+    // Default constructor
+    public GeoPointDto() {}
+    
+    // Constructor with fields
+    public GeoPointDto(BigDecimal latitude, BigDecimal longitude) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+    
+    // Getters and Setters
+    public BigDecimal getLatitude() {
+        return latitude;
+    }
+    
+    public void setLatitude(BigDecimal latitude) {
+        this.latitude = latitude;
+    }
+    
+    public BigDecimal getLongitude() {
+        return longitude;
+    }
+    
+    public void setLongitude(BigDecimal longitude) {
+        this.longitude = longitude;
+    }
+}
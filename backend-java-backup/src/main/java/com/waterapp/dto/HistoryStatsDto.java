@@ -0,0 +1,42 @@
+package com.waterapp.dto;
+
+public class HistoryStatsDto {
+    private long readings;
+    private int queued;
+    private long dropped;
+    
+    // Default constructor
+    public HistoryStatsDto() {}
+    
+    // Constructor with fields
+    public HistoryStatsDto(long readings, int queued, long dropped) {
+        this.readings = readings;
+        this.queued = queued;
+        this.dropped = dropped;
+    }
+    
+    // Getters and Setters
+    public long getReadings() {
+        return readings;
+    }
+    
+    public void setReadings(long readings) {
+        this.readings = readings;
+    }
+    
+    public int getQueued() {
+        return queued;
+    }
+    
+    public void setQueued(int queued) {
+        this.queued = queued;
+    }
+    
+    public long getDropped() {
+        return dropped;
+    }
+    
+    public void setDropped(long dropped) {
+        this.dropped = dropped;
+    }
+}
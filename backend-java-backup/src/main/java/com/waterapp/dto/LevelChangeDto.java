@@ -0,0 +1,96 @@
+package com.waterapp.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class LevelChangeDto {
+    private Long id;
+    private String county;
+    private String status;
+    private String previousStatus;
+    private BigDecimal currentLevelM3;
+    private BigDecimal currentLevelPercentage;
+    private LocalDateTime lastUpdated;
+    private Long revision;
+    
+    // Default constructor
+    public LevelChangeDto() {}
+    
+    // Constructor with fields
+    public LevelChangeDto(Long id, String county, String status, String previousStatus, BigDecimal currentLevelM3,
+                          BigDecimal currentLevelPercentage, LocalDateTime lastUpdated, Long revision) {
+        this.id = id;
+        this.county = county;
+        this.status = status;
+        this.previousStatus = previousStatus;
+        this.currentLevelM3 = currentLevelM3;
+        this.currentLevelPercentage = currentLevelPercentage;
+        this.lastUpdated = lastUpdated;
+        this.revision = revision;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getCounty() {
+        return county;
+    }
+    
+    public void setCounty(String county) {
+        this.county = county;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public String getPreviousStatus() {
+        return previousStatus;
+    }
+    
+    public void setPreviousStatus(String previousStatus) {
+        this.previousStatus = previousStatus;
+    }
+    
+    public BigDecimal getCurrentLevelM3() {
+        return currentLevelM3;
+    }
+    
+    public void setCurrentLevelM3(BigDecimal currentLevelM3) {
+        this.currentLevelM3 = currentLevelM3;
+    }
+    
+    public BigDecimal getCurrentLevelPercentage() {
+        return currentLevelPercentage;
+    }
+    
+    public void setCurrentLevelPercentage(BigDecimal currentLevelPercentage) {
+        this.currentLevelPercentage = currentLevelPercentage;
+    }
+    
+    public LocalDateTime getLastUpdated() {
+        return lastUpdated;
+    }
+    
+    public void setLastUpdated(LocalDateTime lastUpdated) {
+        this.lastUpdated = lastUpdated;
+    }
+    
+    public Long getRevision() {
+        return revision;
+    }
+    
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
+}
@@ -0,0 +1,62 @@
+package com.waterapp.dto;
+
+public class MapClusterDto {
+    private double latitude;
+    private double longitude;
+    private int count;
+    private String status;
+    private Long reservoirId;
+    
+    // Default constructor
+    public MapClusterDto() {}
+    
+    // Constructor with fields
+    public MapClusterDto(double latitude, double longitude, int count, String status, Long reservoirId) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.count = count;
+        this.status = status;
+        this.reservoirId = reservoirId;
+    }
+    
+    // Getters and Setters
+    public double getLatitude() {
+        return latitude;
+    }
+    
+    public void setLatitude(double latitude) {
+        this.latitude = latitude;
+    }
+    
+    public double getLongitude() {
+        return longitude;
+    }
+    
+    public void setLongitude(double longitude) {
+        this.longitude = longitude;
+    }
+    
+    public int getCount() {
+        return count;
+    }
+    
+    public void setCount(int count) {
+        this.count = count;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public Long getReservoirId() {
+        return reservoirId;
+    }
+    
+    public void setReservoirId(Long reservoirId) {
+        this.reservoirId = reservoirId;
+    }
+}
@@ -0,0 +1,60 @@
+package com.waterapp.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+public class NearestBatchRequest {
+    
+    @NotEmpty(message = "At least one point is required")
+    @Size(max = 10000, message = "At most 10000 points per batch")
+    private List<@Valid GeoPointDto> points;
+    
+    @Min(value = 1, message = "k must be at least 1")
+    @Max(value = 100, message = "k must be at most 100")
+    private int k = 5;
+    
+    // Comma-separated list of statuses, e.g. GOOD,WARNING
+    private String status;
+    
+    private Boolean active;
+    
+    // Default constructor
+    public NearestBatchRequest() {}
+    
+    // Getters and Setters
+    public List<GeoPointDto> getPoints() {
+        return points;
+    }
+    
+    public void setPoints(List<GeoPointDto> points) {
+        this.points = points;
+    }
+    
+    public int getK() {
+        return k;
+    }
+    
+    public void setK(int k) {
+        this.k = k;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public Boolean getActive() {
+        return active;
+    }
+    
+    public void setActive(Boolean active) {
+        this.active = active;
+    }
+}
@@ -0,0 +1,45 @@
+package com.waterapp.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public class NearestReservoirsResult {
+    private BigDecimal latitude;
+    private BigDecimal longitude;
+    private List<ReservoirDistanceDto> reservoirs;
+    
+    // Default constructor
+    public NearestReservoirsResult() {}
+    
+    // Constructor with fields
+    public NearestReservoirsResult(BigDecimal latitude, BigDecimal longitude, List<ReservoirDistanceDto> reservoirs) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.reservoirs = reservoirs;
+    }
+    
+    // Getters and Setters
+    public BigDecimal getLatitude() {
+        return latitude;
+    }
+    
+    public void setLatitude(BigDecimal latitude) {
+        this.latitude = latitude;
+    }
+    
+    public BigDecimal getLongitude() {
+        return longitude;
+    }
+    
+    public void setLongitude(BigDecimal longitude) {
+        this.longitude = longitude;
+    }
+    
+    public List<ReservoirDistanceDto> getReservoirs() {
+        return reservoirs;
+    }
+    
+    public void setReservoirs(List<ReservoirDistanceDto> reservoirs) {
+        this.reservoirs = reservoirs;
+    }
+}
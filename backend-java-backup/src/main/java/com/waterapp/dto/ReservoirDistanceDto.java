@@ -0,0 +1,52 @@
+package com.waterapp.dto;
+
+public class ReservoirDistanceDto {
+    private Long id;
+    private String name;
+    private String status;
+    private double distanceKm;
+    
+    // Default constructor
+    public ReservoirDistanceDto() {}
+    
+    // Constructor with fields
+    public ReservoirDistanceDto(Long id, String name, String status, double distanceKm) {
+        this.id = id;
+        this.name = name;
+        this.status = status;
+        this.distanceKm = distanceKm;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+    
+    public void setDistanceKm(double distanceKm) {
+        this.distanceKm = distanceKm;
+    }
+}
@@ -0,0 +1,76 @@
+package com.waterapp.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class ReservoirLevelDto {
+    private Long id;
+    private BigDecimal currentLevelM3;
+    private BigDecimal currentLevelPercentage;
+    private String status;
+    private LocalDateTime lastUpdated;
+    private Long revision;
+    
+    // Default constructor
+    public ReservoirLevelDto() {}
+    
+    // Constructor with fields
+    public ReservoirLevelDto(Long id, BigDecimal currentLevelM3, BigDecimal currentLevelPercentage,
+                             String status, LocalDateTime lastUpdated, Long revision) {
+        this.id = id;
+        this.currentLevelM3 = currentLevelM3;
+        this.currentLevelPercentage = currentLevelPercentage;
+        this.status = status;
+        this.lastUpdated = lastUpdated;
+        this.revision = revision;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public BigDecimal getCurrentLevelM3() {
+        return currentLevelM3;
+    }
+    
+    public void setCurrentLevelM3(BigDecimal currentLevelM3) {
+        this.currentLevelM3 = currentLevelM3;
+    }
+    
+    public BigDecimal getCurrentLevelPercentage() {
+        return currentLevelPercentage;
+    }
+    
+    public void setCurrentLevelPercentage(BigDecimal currentLevelPercentage) {
+        this.currentLevelPercentage = currentLevelPercentage;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public LocalDateTime getLastUpdated() {
+        return lastUpdated;
+    }
+    
+    public void setLastUpdated(LocalDateTime lastUpdated) {
+        this.lastUpdated = lastUpdated;
+    }
+    
+    public Long getRevision() {
+        return revision;
+    }
+    
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
+}
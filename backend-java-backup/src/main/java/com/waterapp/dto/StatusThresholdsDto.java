@@ -0,0 +1,67 @@
+package com.waterapp.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class StatusThresholdsDto {
+    private BigDecimal goodThreshold;
+    private BigDecimal warningThreshold;
+    private boolean reclassificationRunning;
+    private LocalDateTime lastReclassifiedAt;
+    private long lastReclassifiedRows;
+    
+    // Default constructor
+    public StatusThresholdsDto() {}
+    
+    // Constructor with fields
+    public StatusThresholdsDto(BigDecimal goodThreshold, BigDecimal warningThreshold,
+                               boolean reclassificationRunning, LocalDateTime lastReclassifiedAt,
+                               long lastReclassifiedRows) {
+        this.goodThreshold = goodThreshold;
+        this.warningThreshold = warningThreshold;
+        this.reclassificationRunning = reclassificationRunning;
+        this.lastReclassifiedAt = lastReclassifiedAt;
+        this.lastReclassifiedRows = lastReclassifiedRows;
+    }
+    
+    // Getters and Setters
+    public BigDecimal getGoodThreshold() {
+        return goodThreshold;
+    }
+    
+    public void setGoodThreshold(BigDecimal goodThreshold) {
+        this.goodThreshold = goodThreshold;
+    }
+    
+    public BigDecimal getWarningThreshold() {
+        return warningThreshold;
+    }
+    
+    public void setWarningThreshold(BigDecimal warningThreshold) {
+        this.warningThreshold = warningThreshold;
+    }
+    
+    public boolean isReclassificationRunning() {
+        return reclassificationRunning;
+    }
+    
+    public void setReclassificationRunning(boolean reclassificationRunning) {
+        this.reclassificationRunning = reclassificationRunning;
+    }
+    
+    public LocalDateTime getLastReclassifiedAt() {
+        return lastReclassifiedAt;
+    }
+    
+    public void setLastReclassifiedAt(LocalDateTime lastReclassifiedAt) {
+        this.lastReclassifiedAt = lastReclassifiedAt;
+    }
+    
+    public long getLastReclassifiedRows() {
+        return lastReclassifiedRows;
+    }
+    
+    public void setLastReclassifiedRows(long lastReclassifiedRows) {
+        this.lastReclassifiedRows = lastReclassifiedRows;
+    }
+}
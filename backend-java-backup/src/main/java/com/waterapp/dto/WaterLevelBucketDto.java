@@ -0,0 +1,115 @@
+package com.waterapp.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class WaterLevelBucketDto {
+    private LocalDateTime timestamp;
+    private Long readings;
+    private BigDecimal minLevelM3;
+    private BigDecimal maxLevelM3;
+    private BigDecimal avgLevelM3;
+    private BigDecimal lastLevelM3;
+    private BigDecimal minLevelPercentage;
+    private BigDecimal maxLevelPercentage;
+    private BigDecimal avgLevelPercentage;
+    private BigDecimal lastLevelPercentage;
+    
+    // Default constructor
+    public WaterLevelBucketDto() {}
+    
+    // Constructor with fields
+    public WaterLevelBucketDto(LocalDateTime timestamp, Long readings, BigDecimal minLevelM3, BigDecimal maxLevelM3, BigDecimal avgLevelM3, BigDecimal lastLevelM3, BigDecimal minLevelPercentage, BigDecimal maxLevelPercentage, BigDecimal avgLevelPercentage, BigDecimal lastLevelPercentage) {
+        this.timestamp = timestamp;
+        this.readings = readings;
+        this.minLevelM3 = minLevelM3;
+        this.maxLevelM3 = maxLevelM3;
+        this.avgLevelM3 = avgLevelM3;
+        this.lastLevelM3 = lastLevelM3;
+        this.minLevelPercentage = minLevelPercentage;
+        this.maxLevelPercentage = maxLevelPercentage;
+        this.avgLevelPercentage = avgLevelPercentage;
+        this.lastLevelPercentage = lastLevelPercentage;
+    }
+    
+    // Getters and Setters
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+    
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.timestamp = timestamp;
+    }
+    
+    public Long getReadings() {
+        return readings;
+    }
+    
+    public void setReadings(Long readings) {
+        this.readings = readings;
+    }
+    
+    public BigDecimal getMinLevelM3() {
+        return minLevelM3;
+    }
+    
+    public void setMinLevelM3(BigDecimal minLevelM3) {
+        this.minLevelM3 = minLevelM3;
+    }
+    
+    public BigDecimal getMaxLevelM3() {
+        return maxLevelM3;
+    }
+    
+    public void setMaxLevelM3(BigDecimal maxLevelM3) {
+        this.maxLevelM3 = maxLevelM3;
+    }
+    
+    public BigDecimal getAvgLevelM3() {
+        return avgLevelM3;
+    }
+    
+    public void setAvgLevelM3(BigDecimal avgLevelM3) {
+        this.avgLevelM3 = avgLevelM3;
+    }
+    
+    public BigDecimal getLastLevelM3() {
+        return lastLevelM3;
+    }
+    
+    public void setLastLevelM3(BigDecimal lastLevelM3) {
+        this.lastLevelM3 = lastLevelM3;
+    }
+    
+    public BigDecimal getMinLevelPercentage() {
+        return minLevelPercentage;
+    }
+    
+    public void setMinLevelPercentage(BigDecimal minLevelPercentage) {
+        this.minLevelPercentage = minLevelPercentage;
+    }
+    
+    public BigDecimal getMaxLevelPercentage() {
+        return maxLevelPercentage;
+    }
+    
+    public void setMaxLevelPercentage(BigDecimal maxLevelPercentage) {
+        this.maxLevelPercentage = maxLevelPercentage;
+    }
+    
+    public BigDecimal getAvgLevelPercentage() {
+        return avgLevelPercentage;
+    }
+    
+    public void setAvgLevelPercentage(BigDecimal avgLevelPercentage) {
+        this.avgLevelPercentage = avgLevelPercentage;
+    }
+    
+    public BigDecimal getLastLevelPercentage() {
+        return lastLevelPercentage;
+    }
+    
+    public void setLastLevelPercentage(BigDecimal lastLevelPercentage) {
+        this.lastLevelPercentage = lastLevelPercentage;
+    }
+}
@@ -0,0 +1,79 @@
+package com.waterapp.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class WaterLevelItemResult {
+    private int index;
+    private Long id;
+    private boolean success;
+    private String status;
+    private String error;
+    
+    // Default constructor
+    public WaterLevelItemResult() {}
+    
+    // Constructor with fields
+    public WaterLevelItemResult(int index, Long id, boolean success, String status, String error) {
+        this.index = index;
+        this.id = id;
+        this.success = success;
+        this.status = status;
+        this.error = error;
+    }
+    
+    public static WaterLevelItemResult success(int index, Long id, String status) {
+        return new WaterLevelItemResult(index, id, true, status, null);
+    }
+    
+    public static WaterLevelItemResult failure(int index, Long id, String error) {
+        return new WaterLevelItemResult(index, id, false, null, error);
+    }
+    
+    // Getters and Setters
+    /**
+     * @return position of the reading in the request, starting at 0
+     */
+    public int getIndex() {
+        return index;
+    }
+    
+    public void setIndex(int index) {
+        this.index = index;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public boolean isSuccess() {
+        return success;
+    }
+    
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+    
+    /**
+     * @return reservoir status after the reading, only set on success
+     */
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+}
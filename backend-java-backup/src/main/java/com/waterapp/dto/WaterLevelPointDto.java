@@ -0,0 +1,45 @@
+package com.waterapp.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class WaterLevelPointDto {
+    private LocalDateTime timestamp;
+    private BigDecimal currentLevelM3;
+    private BigDecimal currentLevelPercentage;
+    
+    // Default constructor
+    public WaterLevelPointDto() {}
+    
+    // Constructor with fields
+    public WaterLevelPointDto(LocalDateTime timestamp, BigDecimal currentLevelM3, BigDecimal currentLevelPercentage) {
+        this.timestamp = timestamp;
+        this.currentLevelM3 = currentLevelM3;
+        this.currentLevelPercentage = currentLevelPercentage;
+    }
+    
+    // Getters and Setters
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+    
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.timestamp = timestamp;
+    }
+    
+    public BigDecimal getCurrentLevelM3() {
+        return currentLevelM3;
+    }
+    
+    public void setCurrentLevelM3(BigDecimal currentLevelM3) {
+        this.currentLevelM3 = currentLevelM3;
+    }
+    
+    public BigDecimal getCurrentLevelPercentage() {
+        return currentLevelPercentage;
+    }
+    
+    public void setCurrentLevelPercentage(BigDecimal currentLevelPercentage) {
+        this.currentLevelPercentage = currentLevelPercentage;
+    }
+}
@@ -0,0 +1,48 @@
+package com.waterapp.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class WaterLevelReadingDto {
+    private Long id;
+    private BigDecimal currentLevelM3;
+    private LocalDateTime timestamp;
+    
+    // Default constructor
+    public WaterLevelReadingDto() {}
+    
+    // Constructor with fields
+    public WaterLevelReadingDto(Long id, BigDecimal currentLevelM3, LocalDateTime timestamp) {
+        this.id = id;
+        this.currentLevelM3 = currentLevelM3;
+        this.timestamp = timestamp;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public BigDecimal getCurrentLevelM3() {
+        return currentLevelM3;
+    }
+    
+    public void setCurrentLevelM3(BigDecimal currentLevelM3) {
+        this.currentLevelM3 = currentLevelM3;
+    }
+    
+    /**
+     * @return time the reading was taken, null for the time it is received
+     */
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+    
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.timestamp = timestamp;
+    }
+}
@@ -1,5 +1,6 @@
 package com.waterapp.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.waterapp.entity.WaterReservoir;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -19,12 +20,18 @@ public class WaterReservoirDto {
     private WaterReservoir.WaterQuality waterQuality;
     private LocalDateTime lastUpdated;
     private LocalDateTime estimatedRunoutDate;
+    private BigDecimal depletionRateM3PerDay;
     private Boolean isActive;
     private String description;
     private String managedBy;
     private String contactPhone;
     private String contactEmail;
     private String status;
+    private Long revision;
+    
+    // Only set by geographic queries
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double distanceKm;
     
     // Default constructor
     public WaterReservoirDto() {}
@@ -45,12 +52,47 @@ public class WaterReservoirDto {
         this.waterQuality = reservoir.getWaterQuality();
         this.lastUpdated = reservoir.getLastUpdated();
         this.estimatedRunoutDate = reservoir.getEstimatedRunoutDate();
+        this.depletionRateM3PerDay = reservoir.getDepletionRateM3PerDay();
         this.isActive = reservoir.getIsActive();
         this.description = reservoir.getDescription();
         this.managedBy = reservoir.getManagedBy();
         this.contactPhone = reservoir.getContactPhone();
         this.contactEmail = reservoir.getContactEmail();
         this.status = reservoir.getStatus();
+        this.revision = reservoir.getRevision();
+    }
+    
+    // Constructor used by JPQL projection queries, which skip loading managed entities
+    public WaterReservoirDto(Long id, String name, String county, String subCounty, String ward,
+                             String specificLocation, BigDecimal latitude, BigDecimal longitude,
+                             BigDecimal totalCapacityM3, BigDecimal currentLevelM3,
+                             BigDecimal currentLevelPercentage, WaterReservoir.WaterQuality waterQuality,
+                             LocalDateTime lastUpdated, LocalDateTime estimatedRunoutDate,
+                             BigDecimal depletionRateM3PerDay, Boolean isActive, String description,
+                             String managedBy, String contactPhone, String contactEmail, String status,
+                             Long revision) {
+        this.id = id;
+        this.name = name;
+        this.county = county;
+        this.subCounty = subCounty;
+        this.ward = ward;
+        this.specificLocation = specificLocation;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.totalCapacityM3 = totalCapacityM3;
+        this.currentLevelM3 = currentLevelM3;
+        this.currentLevelPercentage = currentLevelPercentage;
+        this.waterQuality = waterQuality;
+        this.lastUpdated = lastUpdated;
+        this.estimatedRunoutDate = estimatedRunoutDate;
+        this.depletionRateM3PerDay = depletionRateM3PerDay;
+        this.isActive = isActive;
+        this.description = description;
+        this.managedBy = managedBy;
+        this.contactPhone = contactPhone;
+        this.contactEmail = contactEmail;
+        this.status = status;
+        this.revision = revision;
     }
     
     // Getters and Setters
@@ -166,6 +208,14 @@ public class WaterReservoirDto {
         this.estimatedRunoutDate = estimatedRunoutDate;
     }
     
+    public BigDecimal getDepletionRateM3PerDay() {
+        return depletionRateM3PerDay;
+    }
+    
+    public void setDepletionRateM3PerDay(BigDecimal depletionRateM3PerDay) {
+        this.depletionRateM3PerDay = depletionRateM3PerDay;
+    }
+    
     public Boolean getIsActive() {
         return isActive;
     }
@@ -213,4 +263,20 @@ public class WaterReservoirDto {
     public void setStatus(String status) {
         this.status = status;
     }
+    
+    public Long getRevision() {
+        return revision;
+    }
+    
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
+    
+    public Double getDistanceKm() {
+        return distanceKm;
+    }
+    
+    public void setDistanceKm(Double distanceKm) {
+        this.distanceKm = distanceKm;
+    }
 }
@@ -0,0 +1,105 @@
+package com.waterapp.entity;
+
+import java.math.BigDecimal;
+
+/**
+ * Level percentage thresholds that classify a reservoir as GOOD, WARNING or CRITICAL.
+ * Held statically so the entity can keep its persisted status consistent on every level write;
+ * the values are configured at startup and may be changed at runtime by an administrator.
+ */
+public final class ReservoirStatusThresholds {
+    
+    public static final String GOOD = "GOOD";
+    public static final String WARNING = "WARNING";
+    public static final String CRITICAL = "CRITICAL";
+    public static final String UNKNOWN = "UNKNOWN";
+    
+    // A status's code is its position here. Compact (CBOR) responses carry the codes, so
+    // existing statuses keep their position and new ones are appended.
+    private static final String[] STATUSES = {GOOD, WARNING, CRITICAL, UNKNOWN};
+    
+    /** Number of status codes, for arrays indexed by code */
+    public static final int STATUS_COUNT = STATUSES.length;
+    
+    private static volatile Thresholds current = new Thresholds(new BigDecimal("70"), new BigDecimal("40"));
+    
+    private ReservoirStatusThresholds() {
+    }
+    
+    /**
+     * Classify a level percentage with the current thresholds
+     * @param levelPercentage current level percentage, may be null
+     * @return GOOD, WARNING, CRITICAL or UNKNOWN
+     */
+    public static String classify(BigDecimal levelPercentage) {
+        if (levelPercentage == null) {
+            return UNKNOWN;
+        }
+        Thresholds thresholds = current;
+        if (levelPercentage.compareTo(thresholds.good) >= 0) {
+            return GOOD;
+        } else if (levelPercentage.compareTo(thresholds.warning) >= 0) {
+            return WARNING;
+        } else {
+            return CRITICAL;
+        }
+    }
+    
+    /**
+     * Small-integer code of a status
+     * @param status status name
+     * @return code, -1 for an unknown or null status
+     */
+    public static int code(String status) {
+        for (int i = 0; i < STATUSES.length; i++) {
+            if (STATUSES[i].equals(status)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Small-integer code of a status, the code of UNKNOWN for an unknown or null status
+     * @param status status name
+     * @return code
+     */
+    public static int codeOrUnknown(String status) {
+        int code = code(status);
+        return code < 0 ? code(UNKNOWN) : code;
+    }
+    
+    /**
+     * Replace both thresholds atomically
+     * @param good minimum percentage for GOOD
+     * @param warning minimum percentage for WARNING
+     * @throws IllegalArgumentException unless 0 <= warning <= good <= 100
+     */
+    public static void set(BigDecimal good, BigDecimal warning) {
+        if (good == null || warning == null
+                || warning.signum() < 0
+                || warning.compareTo(good) > 0
+                || good.compareTo(new BigDecimal("100")) > 0) {
+            throw new IllegalArgumentException("Thresholds must satisfy 0 <= warning <= good <= 100");
+        }
+        current = new Thresholds(good, warning);
+    }
+    
+    public static BigDecimal getGood() {
+        return current.good;
+    }
+    
+    public static BigDecimal getWarning() {
+        return current.warning;
+    }
+    
+    private static final class Thresholds {
+        private final BigDecimal good;
+        private final BigDecimal warning;
+        
+        private Thresholds(BigDecimal good, BigDecimal warning) {
+            this.good = good;
+            this.warning = warning;
+        }
+    }
+}
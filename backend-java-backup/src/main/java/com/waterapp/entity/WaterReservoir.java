@@ -6,9 +6,57 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "water_reservoirs")
+@Table(name = "water_reservoirs", indexes = {
+    @Index(name = "idx_reservoir_status_active", columnList = "status, is_active"),
+    @Index(name = "idx_reservoir_active_runout", columnList = "is_active, estimated_runout_date")
+})
+@NamedQuery(name = "WaterReservoir.findDtoById", query = WaterReservoir.DTO_SELECT +
+    "WHERE r.id = :id")
+@NamedQuery(name = "WaterReservoir.findDtosByIdIn", query = WaterReservoir.DTO_SELECT +
+    "WHERE r.id IN :ids")
+@NamedQuery(name = "WaterReservoir.findDtosByCounty", query = WaterReservoir.DTO_SELECT +
+    "WHERE UPPER(r.county) = UPPER(:county) AND r.id > :afterId " +
+    "ORDER BY r.id")
+@NamedQuery(name = "WaterReservoir.findDtosBySubCounty", query = WaterReservoir.DTO_SELECT +
+    "WHERE UPPER(r.subCounty) = UPPER(:subCounty) AND r.id > :afterId " +
+    "ORDER BY r.id")
+@NamedQuery(name = "WaterReservoir.findDtosByWard", query = WaterReservoir.DTO_SELECT +
+    "WHERE UPPER(r.ward) = UPPER(:ward) AND r.id > :afterId " +
+    "ORDER BY r.id")
+@NamedQuery(name = "WaterReservoir.findActiveDtos", query = WaterReservoir.DTO_SELECT +
+    "WHERE r.isActive = true AND r.id > :afterId " +
+    "ORDER BY r.id")
+@NamedQuery(name = "WaterReservoir.streamActiveDtos", query = WaterReservoir.DTO_SELECT +
+    "WHERE r.isActive = true " +
+    "ORDER BY r.id")
+@NamedQuery(name = "WaterReservoir.findDtosByStatus", query = WaterReservoir.DTO_SELECT +
+    "WHERE r.status = :status AND r.id > :afterId " +
+    "ORDER BY r.id")
+@NamedQuery(name = "WaterReservoir.findCriticalReservoirs", query = WaterReservoir.DTO_SELECT +
+    "WHERE r.status = 'CRITICAL' AND r.isActive = true " +
+    "AND (r.currentLevelPercentage > :afterPercentage " +
+    "OR (r.currentLevelPercentage = :afterPercentage AND r.id > :afterId)) " +
+    "ORDER BY r.currentLevelPercentage, r.id")
+@NamedQuery(name = "WaterReservoir.findReservoirsRunningOutSoon", query = WaterReservoir.DTO_SELECT +
+    "WHERE r.isActive = true " +
+    "AND r.estimatedRunoutDate <= :cutoff " +
+    "AND (r.estimatedRunoutDate > :afterDate " +
+    "OR (r.estimatedRunoutDate = :afterDate AND r.id > :afterId)) " +
+    "ORDER BY r.estimatedRunoutDate, r.id")
 public class WaterReservoir {
     
+    /**
+     * Select clause building {@link com.waterapp.dto.WaterReservoirDto}s straight from the columns,
+     * so read queries neither hydrate nor snapshot managed entities. The DTO reads are JPA named
+     * queries because Spring Data JPA 3.2.0 re-parses an {@code @Query} string on every call,
+     * while a named query is parsed once when the persistence unit starts.
+     */
+    static final String DTO_SELECT = "SELECT new com.waterapp.dto.WaterReservoirDto(" +
+    "r.id, r.name, r.county, r.subCounty, r.ward, r.specificLocation, r.latitude, r.longitude, " +
+    "r.totalCapacityM3, r.currentLevelM3, r.currentLevelPercentage, r.waterQuality, r.lastUpdated, " +
+    "r.estimatedRunoutDate, r.depletionRateM3PerDay, r.isActive, r.description, r.managedBy, " +
+    "r.contactPhone, r.contactEmail, r.status, r.revision) FROM WaterReservoir r ";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -61,6 +109,10 @@ public class WaterReservoir {
     @Column(name = "current_level_percentage", nullable = false, precision = 5, scale = 2)
     private BigDecimal currentLevelPercentage;
     
+    // Derived from currentLevelPercentage, persisted so status queries can use an index
+    @Column(name = "status", length = 16)
+    private String status;
+    
     @Column(name = "water_quality_rating")
     @Enumerated(EnumType.STRING)
     private WaterQuality waterQuality;
@@ -71,6 +123,10 @@ public class WaterReservoir {
     @Column(name = "estimated_runout_date")
     private LocalDateTime estimatedRunoutDate;
     
+    // Smoothed m3 per day lost between readings; negative while filling
+    @Column(name = "depletion_rate_m3_per_day", precision = 15, scale = 2)
+    private BigDecimal depletionRateM3PerDay;
+    
     @Column(name = "is_active")
     private Boolean isActive;
     
@@ -86,6 +142,15 @@ public class WaterReservoir {
     @Column(name = "contact_email")
     private String contactEmail;
     
+    // Incremented on every change, used for ETags
+    @Column(name = "revision", nullable = false)
+    private Long revision = 0L;
+    
+    // Optimistic lock, rejects a save based on a stale copy of the row
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version = 0L;
+    
     // Default constructor
     public WaterReservoir() {
         this.isActive = true;
@@ -93,8 +158,8 @@ public class WaterReservoir {
     }
     
     // Constructor with required fields
-    public WaterReservoir(String name, String county, String subCounty, String ward, 
-                         BigDecimal latitude, BigDecimal longitude, 
+    public WaterReservoir(String name, String county, String subCounty, String ward,
+                         BigDecimal latitude, BigDecimal longitude,
                          BigDecimal totalCapacityM3, BigDecimal currentLevelM3) {
         this();
         this.name = name;
@@ -107,6 +172,7 @@ public class WaterReservoir {
         this.currentLevelM3 = currentLevelM3;
         this.currentLevelPercentage = currentLevelM3.divide(totalCapacityM3, 2, BigDecimal.ROUND_HALF_UP)
                                                 .multiply(new BigDecimal("100"));
+        refreshStatus();
     }
     
     // Getters and Setters
@@ -192,6 +258,7 @@ public class WaterReservoir {
             this.currentLevelPercentage = currentLevelM3.divide(totalCapacityM3, 2, BigDecimal.ROUND_HALF_UP)
                                                     .multiply(new BigDecimal("100"));
         }
+        refreshStatus();
     }
     
     public BigDecimal getCurrentLevelPercentage() {
@@ -200,6 +267,7 @@ public class WaterReservoir {
     
     public void setCurrentLevelPercentage(BigDecimal currentLevelPercentage) {
         this.currentLevelPercentage = currentLevelPercentage;
+        refreshStatus();
     }
     
     public WaterQuality getWaterQuality() {
@@ -226,6 +294,14 @@ public class WaterReservoir {
         this.estimatedRunoutDate = estimatedRunoutDate;
     }
     
+    public BigDecimal getDepletionRateM3PerDay() {
+        return depletionRateM3PerDay;
+    }
+    
+    public void setDepletionRateM3PerDay(BigDecimal depletionRateM3PerDay) {
+        this.depletionRateM3PerDay = depletionRateM3PerDay;
+    }
+    
     public Boolean getIsActive() {
         return isActive;
     }
@@ -266,21 +342,41 @@ public class WaterReservoir {
         this.contactEmail = contactEmail;
     }
     
+    public Long getRevision() {
+        return revision;
+    }
+    
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+    
     // Enum for water quality
     public enum WaterQuality {
         EXCELLENT, GOOD, FAIR, POOR, CRITICAL
     }
     
-    // Helper method to get status based on current level
+    // Status based on current level, as last persisted or recomputed
     public String getStatus() {
-        if (currentLevelPercentage == null) return "UNKNOWN";
-        
-        if (currentLevelPercentage.compareTo(new BigDecimal("70")) >= 0) {
-            return "GOOD";
-        } else if (currentLevelPercentage.compareTo(new BigDecimal("40")) >= 0) {
-            return "WARNING";
-        } else {
-            return "CRITICAL";
+        if (status == null) {
+            refreshStatus();
         }
+        return status;
+    }
+    
+    /**
+     * Recompute the persisted status from the current level percentage
+     */
+    @PrePersist
+    @PreUpdate
+    public void refreshStatus() {
+        this.status = ReservoirStatusThresholds.classify(currentLevelPercentage);
     }
 }
@@ -0,0 +1,20 @@
+package com.waterapp.event;
+
+import com.waterapp.entity.WaterReservoir;
+
+/**
+ * Application event published after a reservoir has been written to the database.
+ * In-memory indexes listen for it to stay in sync with the persisted state.
+ */
+public class ReservoirChangedEvent {
+    
+    private final WaterReservoir reservoir;
+    
+    public ReservoirChangedEvent(WaterReservoir reservoir) {
+        this.reservoir = reservoir;
+    }
+    
+    public WaterReservoir getReservoir() {
+        return reservoir;
+    }
+}
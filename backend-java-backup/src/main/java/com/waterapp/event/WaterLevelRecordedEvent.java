@@ -0,0 +1,40 @@
+package com.waterapp.event;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Application event published for every water-level reading applied to a reservoir.
+ * Unlike {@link ReservoirChangedEvent}, which may cover several readings of one bulk write,
+ * it captures the level at the time of the reading.
+ */
+public class WaterLevelRecordedEvent {
+    
+    private final long reservoirId;
+    private final LocalDateTime timestamp;
+    private final BigDecimal levelM3;
+    private final BigDecimal levelPercentage;
+    
+    public WaterLevelRecordedEvent(long reservoirId, LocalDateTime timestamp, BigDecimal levelM3, BigDecimal levelPercentage) {
+        this.reservoirId = reservoirId;
+        this.timestamp = timestamp;
+        this.levelM3 = levelM3;
+        this.levelPercentage = levelPercentage;
+    }
+    
+    public long getReservoirId() {
+        return reservoirId;
+    }
+    
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+    
+    public BigDecimal getLevelM3() {
+        return levelM3;
+    }
+    
+    public BigDecimal getLevelPercentage() {
+        return levelPercentage;
+    }
+}
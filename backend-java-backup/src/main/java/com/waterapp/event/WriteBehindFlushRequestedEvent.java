@@ -0,0 +1,22 @@
+package com.waterapp.event;
+
+/**
+ * Application event published when the write-behind buffer has reached its flush size and
+ * should be written before the next scheduled flush, or when the buffered readings of one
+ * reservoir must be written right away
+ */
+public class WriteBehindFlushRequestedEvent {
+    
+    private final Long reservoirId;
+    
+    public WriteBehindFlushRequestedEvent(Long reservoirId) {
+        this.reservoirId = reservoirId;
+    }
+    
+    /**
+     * @return reservoir to write synchronously, null to write the whole buffer in the background
+     */
+    public Long getReservoirId() {
+        return reservoirId;
+    }
+}
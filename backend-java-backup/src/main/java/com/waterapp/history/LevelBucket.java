@@ -0,0 +1,147 @@
+package com.waterapp.history;
+
+/**
+ * Min/max/avg/last of the readings of one reservoir within a time bucket.
+ * Immutable; adding a reading returns a new bucket.
+ */
+public class LevelBucket {
+    private final long reservoirId;
+    private final long start;
+    private final long count;
+    private final double minLevelM3;
+    private final double maxLevelM3;
+    private final double sumLevelM3;
+    private final double lastLevelM3;
+    private final double minLevelPercentage;
+    private final double maxLevelPercentage;
+    private final double sumLevelPercentage;
+    private final double lastLevelPercentage;
+    
+    LevelBucket(long reservoirId, long start, long count,
+                double minLevelM3, double maxLevelM3, double sumLevelM3, double lastLevelM3,
+                double minLevelPercentage, double maxLevelPercentage, double sumLevelPercentage,
+                double lastLevelPercentage) {
+        this.reservoirId = reservoirId;
+        this.start = start;
+        this.count = count;
+        this.minLevelM3 = minLevelM3;
+        this.maxLevelM3 = maxLevelM3;
+        this.sumLevelM3 = sumLevelM3;
+        this.lastLevelM3 = lastLevelM3;
+        this.minLevelPercentage = minLevelPercentage;
+        this.maxLevelPercentage = maxLevelPercentage;
+        this.sumLevelPercentage = sumLevelPercentage;
+        this.lastLevelPercentage = lastLevelPercentage;
+    }
+    
+    /**
+     * Bucket holding a single reading
+     * @param reading reading
+     * @param start bucket start in epoch milliseconds
+     * @return new bucket
+     */
+    public static LevelBucket of(WaterLevelReading reading, long start) {
+        double m3 = reading.getLevelM3();
+        double pct = reading.getLevelPercentage();
+        return new LevelBucket(reading.getReservoirId(), start, 1, m3, m3, m3, m3, pct, pct, pct, pct);
+    }
+    
+    /**
+     * Add a later reading to the bucket
+     * @param reading reading within the bucket
+     * @return new bucket
+     */
+    public LevelBucket plus(WaterLevelReading reading) {
+        double m3 = reading.getLevelM3();
+        double pct = reading.getLevelPercentage();
+        return new LevelBucket(reservoirId, start, count + 1,
+                Math.min(minLevelM3, m3), Math.max(maxLevelM3, m3), sumLevelM3 + m3, m3,
+                Math.min(minLevelPercentage, pct), Math.max(maxLevelPercentage, pct), sumLevelPercentage + pct, pct);
+    }
+    
+    /**
+     * Add a reading that arrived after the bucket was closed; it counts towards the min, max and
+     * average, but the last level stays the one of the latest reading the bucket was closed with
+     * @param reading reading within the bucket
+     * @return new bucket
+     */
+    public LevelBucket plusLate(WaterLevelReading reading) {
+        double m3 = reading.getLevelM3();
+        double pct = reading.getLevelPercentage();
+        return new LevelBucket(reservoirId, start, count + 1,
+                Math.min(minLevelM3, m3), Math.max(maxLevelM3, m3), sumLevelM3 + m3, lastLevelM3,
+                Math.min(minLevelPercentage, pct), Math.max(maxLevelPercentage, pct), sumLevelPercentage + pct,
+                lastLevelPercentage);
+    }
+    
+    /**
+     * Combine the bucket with the bucket that follows it
+     * @param next later bucket of the same reservoir
+     * @return bucket starting at this bucket's start and covering both
+     */
+    public LevelBucket merge(LevelBucket next) {
+        return new LevelBucket(reservoirId, start, count + next.count,
+                Math.min(minLevelM3, next.minLevelM3), Math.max(maxLevelM3, next.maxLevelM3),
+                sumLevelM3 + next.sumLevelM3, next.lastLevelM3,
+                Math.min(minLevelPercentage, next.minLevelPercentage), Math.max(maxLevelPercentage, next.maxLevelPercentage),
+                sumLevelPercentage + next.sumLevelPercentage, next.lastLevelPercentage);
+    }
+    
+    public long getReservoirId() {
+        return reservoirId;
+    }
+    
+    /**
+     * @return bucket start in epoch milliseconds
+     */
+    public long getStart() {
+        return start;
+    }
+    
+    /**
+     * @return number of readings in the bucket
+     */
+    public long getCount() {
+        return count;
+    }
+    
+    public double getMinLevelM3() {
+        return minLevelM3;
+    }
+    
+    public double getMaxLevelM3() {
+        return maxLevelM3;
+    }
+    
+    double getSumLevelM3() {
+        return sumLevelM3;
+    }
+    
+    public double getAvgLevelM3() {
+        return sumLevelM3 / count;
+    }
+    
+    public double getLastLevelM3() {
+        return lastLevelM3;
+    }
+    
+    public double getMinLevelPercentage() {
+        return minLevelPercentage;
+    }
+    
+    public double getMaxLevelPercentage() {
+        return maxLevelPercentage;
+    }
+    
+    double getSumLevelPercentage() {
+        return sumLevelPercentage;
+    }
+    
+    public double getAvgLevelPercentage() {
+        return sumLevelPercentage / count;
+    }
+    
+    public double getLastLevelPercentage() {
+        return lastLevelPercentage;
+    }
+}
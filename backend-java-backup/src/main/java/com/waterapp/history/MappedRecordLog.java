@@ -0,0 +1,166 @@
+package com.waterapp.history;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongConsumer;
+
+/**
+ * Log of fixed-width records spread over memory-mapped segment files named name-NNNNNN.log.
+ * Record n lives at a fixed offset of segment n / recordsPerSegment. The first eight bytes of a
+ * record must be non-zero and written last, they mark the record as complete.
+ * Only one thread may append; any thread may read records below {@link #getRecordCount()}.
+ * Whole segments can be dropped from the front once their records are no longer needed.
+ */
+final class MappedRecordLog {
+    
+    /**
+     * Writes one record at an offset of a mapped segment
+     */
+    interface RecordWriter {
+        void write(MappedByteBuffer buffer, int offset);
+    }
+    
+    private final Path directory;
+    private final String name;
+    private final int recordSize;
+    private final long recordsPerSegment;
+    
+    // segment number -> mapping, null once dropped
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+    
+    private volatile long firstRecord;
+    private volatile long recordCount;
+    
+    MappedRecordLog(Path directory, String name, int recordSize, int segmentSizeMb) {
+        if (segmentSizeMb < 1 || segmentSizeMb > 1024) {
+            throw new IllegalArgumentException("Segment size must be between 1 and 1024 MB");
+        }
+        this.directory = directory;
+        this.name = name;
+        this.recordSize = recordSize;
+        this.recordsPerSegment = (long) segmentSizeMb * 1024 * 1024 / recordSize;
+    }
+    
+    /**
+     * Map the existing segments and find the complete records
+     * @param visitor called with the number of every complete record, in order
+     * @throws IOException if the segments cannot be opened
+     */
+    void open(LongConsumer visitor) throws IOException {
+        Files.createDirectories(directory);
+        int first = Integer.MAX_VALUE;
+        int last = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, name + "-*.log")) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                int segment = Integer.parseInt(fileName.substring(name.length() + 1, fileName.length() - 4));
+                first = Math.min(first, segment);
+                last = Math.max(last, segment);
+            }
+        }
+        for (int segment = 0; segment <= last; segment++) {
+            segments.add(segment < first || !Files.exists(path(segment)) ? null : map(segment));
+        }
+        long record = last < 0 ? 0 : first * recordsPerSegment;
+        firstRecord = record;
+        long capacity = segments.size() * recordsPerSegment;
+        while (record < capacity) {
+            MappedByteBuffer buffer = buffer(record);
+            if (buffer == null || buffer.getLong(offset(record)) == 0) {
+                break;
+            }
+            visitor.accept(record);
+            record++;
+        }
+        recordCount = record;
+    }
+    
+    /**
+     * Append a record, mapping a new segment when the last one is full
+     * @param writer writes the record, leading eight bytes last
+     * @return number of the new record
+     * @throws IOException if a new segment cannot be mapped
+     */
+    long append(RecordWriter writer) throws IOException {
+        long record = recordCount;
+        if (record == segments.size() * recordsPerSegment) {
+            segments.add(map(segments.size()));
+        }
+        writer.write(buffer(record), offset(record));
+        recordCount = record + 1;
+        return record;
+    }
+    
+    /**
+     * Mapping that holds a record
+     * @param record record number
+     * @return mapped segment, null if the segment has been dropped
+     */
+    MappedByteBuffer buffer(long record) {
+        int segment = (int) (record / recordsPerSegment);
+        return segment < segments.size() ? segments.get(segment) : null;
+    }
+    
+    /**
+     * Byte offset of a record within its segment
+     * @param record record number
+     * @return offset
+     */
+    int offset(long record) {
+        return (int) (record % recordsPerSegment) * recordSize;
+    }
+    
+    long getFirstRecord() {
+        return firstRecord;
+    }
+    
+    long getRecordCount() {
+        return recordCount;
+    }
+    
+    long getRecordsPerSegment() {
+        return recordsPerSegment;
+    }
+    
+    /**
+     * Delete the oldest remaining segment. Must not be called for the segment being appended to.
+     * @throws IOException if the file cannot be deleted
+     */
+    void dropFirstSegment() throws IOException {
+        int segment = (int) (firstRecord / recordsPerSegment);
+        firstRecord = (segment + 1) * recordsPerSegment;
+        segments.set(segment, null);
+        // Readers still holding the mapping keep it valid until they let go of it
+        Files.deleteIfExists(path(segment));
+    }
+    
+    /**
+     * Flush every segment to disk
+     */
+    void force() {
+        for (MappedByteBuffer segment : segments) {
+            if (segment != null) {
+                segment.force();
+            }
+        }
+    }
+    
+    private MappedByteBuffer map(int segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(path(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, recordsPerSegment * recordSize);
+        }
+    }
+    
+    private Path path(int segment) {
+        return directory.resolve(String.format("%s-%06d.log", name, segment));
+    }
+}
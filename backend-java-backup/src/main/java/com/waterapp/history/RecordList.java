@@ -0,0 +1,129 @@
+package com.waterapp.history;
+
+import java.util.Arrays;
+
+/**
+ * Growing list of record numbers and their reading timestamps in time order, written by one
+ * thread and read by any. Readings usually arrive in time order and are appended; a late reading
+ * is inserted at its place, so the list stays searchable by time whatever the append order.
+ * Each change publishes a new immutable view, so a reader keeps a consistent view while the
+ * writer appends, inserts or trims.
+ */
+final class RecordList {
+    
+    private volatile View view = new View(new long[8], new long[8], 0);
+    
+    void add(long record, long timestamp) {
+        View current = view;
+        int size = current.size;
+        if (size == 0 || current.timestamps[size - 1] <= timestamp) {
+            long[] records = current.records;
+            long[] timestamps = current.timestamps;
+            if (size == records.length) {
+                records = Arrays.copyOf(records, size * 2);
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+            }
+            // Slots past the published size are invisible to readers, so they can be written in place
+            records[size] = record;
+            timestamps[size] = timestamp;
+            view = new View(records, timestamps, size + 1);
+            return;
+        }
+        // Out of order: after any readings with the same timestamp, on fresh arrays so readers
+        // of the current view never see the shift
+        int position = upperBound(current, timestamp);
+        int capacity = size == current.records.length ? size * 2 : current.records.length;
+        long[] records = new long[capacity];
+        long[] timestamps = new long[capacity];
+        System.arraycopy(current.records, 0, records, 0, position);
+        System.arraycopy(current.timestamps, 0, timestamps, 0, position);
+        records[position] = record;
+        timestamps[position] = timestamp;
+        System.arraycopy(current.records, position, records, position + 1, size - position);
+        System.arraycopy(current.timestamps, position, timestamps, position + 1, size - position);
+        view = new View(records, timestamps, size + 1);
+    }
+    
+    /**
+     * Forget the records below a record number. Late readings may sit between newer ones, so the
+     * whole list is filtered.
+     * @param firstRecord lowest record number to keep
+     */
+    void dropBefore(long firstRecord) {
+        View current = view;
+        int kept = 0;
+        for (int i = 0; i < current.size; i++) {
+            if (current.records[i] >= firstRecord) {
+                kept++;
+            }
+        }
+        if (kept == current.size) {
+            return;
+        }
+        int capacity = kept + 8;
+        long[] records = new long[capacity];
+        long[] timestamps = new long[capacity];
+        int position = 0;
+        for (int i = 0; i < current.size; i++) {
+            if (current.records[i] >= firstRecord) {
+                records[position] = current.records[i];
+                timestamps[position] = current.timestamps[i];
+                position++;
+            }
+        }
+        view = new View(records, timestamps, kept);
+    }
+    
+    View view() {
+        return view;
+    }
+    
+    /**
+     * First position of a view with a timestamp at or after the given time
+     */
+    static int lowerBound(View view, long timestamp) {
+        int low = 0;
+        int high = view.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (view.timestamps[mid] < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * First position of a view with a timestamp after the given time
+     */
+    private static int upperBound(View view, long timestamp) {
+        int low = 0;
+        int high = view.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (view.timestamps[mid] <= timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * Records and timestamps 0 to size - 1 of the arrays
+     */
+    static final class View {
+        final long[] records;
+        final long[] timestamps;
+        final int size;
+        
+        private View(long[] records, long[] timestamps, int size) {
+            this.records = records;
+            this.timestamps = timestamps;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.waterapp.history;
+
+import com.waterapp.event.WaterLevelRecordedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only log of water-level readings stored in memory-mapped segment files.
+ * Every record has the same width, so the log needs no framing. Each reservoir keeps the record
+ * numbers and timestamps of its readings in time order, with late readings inserted at their
+ * place, so a time range is found by binary search and read straight from the mapped pages.
+ * Appends are handed to a single writer thread through a bounded queue and never block the
+ * caller; when the queue is full the reading is dropped and counted. The writer also feeds
+ * every reading to the {@link WaterLevelRollupStore}. On startup the segments are scanned to
+ * rebuild the per-reservoir indexes and replayed into the rollups.
+ * Raw readings are only kept for the retention window: compaction seals the rollup buckets
+ * before the window and deletes the segments that hold nothing newer.
+ */
+@Component
+public class WaterLevelHistoryStore {
+    
+    private static final Logger logger = LoggerFactory.getLogger(WaterLevelHistoryStore.class);
+    
+    // reservoirId (8) | timestamp millis (8) | level m3 (8) | level percentage (8)
+    static final int RECORD_SIZE = 32;
+    
+    private final MappedRecordLog log;
+    private final WaterLevelRollupStore rollups;
+    private final int rawRetentionDays;
+    private final BlockingQueue<WaterLevelReading> queue;
+    
+    private final Map<Long, RecordList> indexes = new ConcurrentHashMap<>();
+    // segment number -> latest reading timestamp in it
+    private final Map<Long, Long> segmentLatest = new ConcurrentHashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+    // Held by the writer thread while appending and by compaction
+    private final Lock writeLock = new ReentrantLock();
+    
+    private volatile boolean running;
+    private Thread writer;
+    
+    public WaterLevelHistoryStore(WaterLevelRollupStore rollups,
+                                  @Value("${reservoir.history.directory:data/history}") String directory,
+                                  @Value("${reservoir.history.segment-size-mb:64}") int segmentSizeMb,
+                                  @Value("${reservoir.history.queue-capacity:65536}") int queueCapacity,
+                                  @Value("${reservoir.history.raw-retention-days:30}") int rawRetentionDays) {
+        if (rawRetentionDays < 1) {
+            throw new IllegalArgumentException("Raw retention must be at least one day");
+        }
+        this.log = new MappedRecordLog(Paths.get(directory), "segment", RECORD_SIZE, segmentSizeMb);
+        this.rollups = rollups;
+        this.rawRetentionDays = rawRetentionDays;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+    
+    /**
+     * Map the existing segments, rebuild the indexes and rollups and start the writer thread
+     * @throws IOException if the segments cannot be opened
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        log.open(record -> {
+            WaterLevelReading reading = reading(record);
+            index(reading.getReservoirId()).add(record, reading.getTimestamp());
+            segmentLatest.merge(record / log.getRecordsPerSegment(), reading.getTimestamp(), Math::max);
+            try {
+                rollups.replay(reading);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to replay water-level history into rollups", e);
+            }
+        });
+        running = true;
+        writer = new Thread(this::writeLoop, "water-level-history-writer");
+        writer.setDaemon(true);
+        writer.start();
+        logger.info("Opened water-level history with {} readings", log.getRecordCount() - log.getFirstRecord());
+    }
+    
+    /**
+     * Write out queued readings and flush the segments and rollups to disk
+     * @throws InterruptedException if interrupted while waiting for the writer
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        log.force();
+        rollups.close();
+    }
+    
+    /**
+     * Record every committed water-level reading
+     * @param event reading event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onWaterLevelRecorded(WaterLevelRecordedEvent event) {
+        if (event.getLevelM3() == null || event.getTimestamp() == null) {
+            return;
+        }
+        append(new WaterLevelReading(event.getReservoirId(),
+                event.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                event.getLevelM3().doubleValue(),
+                event.getLevelPercentage() == null ? 0 : event.getLevelPercentage().doubleValue()));
+    }
+    
+    /**
+     * Queue a reading for appending without blocking
+     * @param reading reading to append
+     * @return false if the queue was full and the reading was dropped
+     */
+    public boolean append(WaterLevelReading reading) {
+        if (queue.offer(reading)) {
+            return true;
+        }
+        if (dropped.incrementAndGet() % 1000 == 1) {
+            logger.warn("Water-level history queue is full, {} readings dropped so far", dropped.get());
+        }
+        return false;
+    }
+    
+    /**
+     * Read a reservoir's readings within a time range, oldest first
+     * @param reservoirId reservoir ID
+     * @param fromMillis start of the range in epoch milliseconds (inclusive)
+     * @param toMillis end of the range in epoch milliseconds (inclusive)
+     * @param limit maximum number of readings
+     * @return readings in time order
+     */
+    public List<WaterLevelReading> read(long reservoirId, long fromMillis, long toMillis, int limit) {
+        RecordList index = indexes.get(reservoirId);
+        List<WaterLevelReading> result = new ArrayList<>();
+        if (index == null) {
+            return result;
+        }
+        RecordList.View view = index.view();
+        long firstRecord = log.getFirstRecord();
+        for (int position = RecordList.lowerBound(view, fromMillis);
+             position < view.size && view.timestamps[position] <= toMillis && result.size() < limit; position++) {
+            long record = view.records[position];
+            MappedByteBuffer buffer = record < firstRecord ? null : log.buffer(record);
+            if (buffer == null) {
+                // Dropped by a compaction
+                continue;
+            }
+            int offset = log.offset(record);
+            result.add(new WaterLevelReading(reservoirId, view.timestamps[position],
+                    buffer.getDouble(offset + 16), buffer.getDouble(offset + 24)));
+        }
+        return result;
+    }
+    
+    /**
+     * Start of the window for which raw readings are guaranteed to be kept
+     * @return start of the retention window in epoch milliseconds
+     */
+    public long getRawRetentionStart() {
+        return LocalDate.now().minusDays(rawRetentionDays).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+    
+    /**
+     * Roll up and delete the raw segments that only hold readings from before the retention window
+     */
+    @Scheduled(fixedDelayString = "${reservoir.history.compaction-interval-ms:3600000}", initialDelay = 60000)
+    public void compact() {
+        long cutoff = getRawRetentionStart();
+        int droppedSegments = 0;
+        writeLock.lock();
+        try {
+            rollups.sealBefore(cutoff);
+            long perSegment = log.getRecordsPerSegment();
+            long currentSegment = log.getRecordCount() / perSegment;
+            for (long segment = log.getFirstRecord() / perSegment; segment < currentSegment; segment++) {
+                Long latest = segmentLatest.get(segment);
+                if (latest != null && latest >= cutoff) {
+                    break;
+                }
+                log.dropFirstSegment();
+                segmentLatest.remove(segment);
+                droppedSegments++;
+            }
+            if (droppedSegments > 0) {
+                long firstRecord = log.getFirstRecord();
+                for (RecordList index : indexes.values()) {
+                    index.dropBefore(firstRecord);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to compact water-level history", e);
+        } finally {
+            writeLock.unlock();
+        }
+        if (droppedSegments > 0) {
+            logger.info("Compacted {} water-level history segments older than {} days", droppedSegments, rawRetentionDays);
+        }
+    }
+    
+    /**
+     * Number of raw readings stored
+     * @return record count
+     */
+    public long size() {
+        return log.getRecordCount() - log.getFirstRecord();
+    }
+    
+    /**
+     * Number of readings dropped because the write queue was full
+     * @return dropped reading count
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+    
+    /**
+     * Number of readings waiting for the writer thread
+     * @return queued reading count
+     */
+    public int getQueued() {
+        return queue.size();
+    }
+    
+    private void writeLoop() {
+        List<WaterLevelReading> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                WaterLevelReading first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch);
+                writeLock.lock();
+                try {
+                    for (WaterLevelReading reading : batch) {
+                        write(reading);
+                    }
+                } finally {
+                    writeLock.unlock();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                logger.error("Failed to append water-level history", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    private void write(WaterLevelReading reading) throws IOException {
+        long record = log.append((buffer, offset) -> {
+            buffer.putLong(offset + 8, reading.getTimestamp());
+            buffer.putDouble(offset + 16, reading.getLevelM3());
+            buffer.putDouble(offset + 24, reading.getLevelPercentage());
+            // The id goes last, it marks the record as complete
+            buffer.putLong(offset, reading.getReservoirId());
+        });
+        index(reading.getReservoirId()).add(record, reading.getTimestamp());
+        segmentLatest.merge(record / log.getRecordsPerSegment(), reading.getTimestamp(), Math::max);
+        rollups.add(reading);
+    }
+    
+    private WaterLevelReading reading(long record) {
+        MappedByteBuffer buffer = log.buffer(record);
+        int offset = log.offset(record);
+        return new WaterLevelReading(buffer.getLong(offset), buffer.getLong(offset + 8),
+                buffer.getDouble(offset + 16), buffer.getDouble(offset + 24));
+    }
+    
+    private RecordList index(long reservoirId) {
+        return indexes.computeIfAbsent(reservoirId, id -> new RecordList());
+    }
+}
@@ -0,0 +1,37 @@
+package com.waterapp.history;
+
+/**
+ * One stored water-level reading
+ */
+public class WaterLevelReading {
+    private final long reservoirId;
+    private final long timestamp;
+    private final double levelM3;
+    private final double levelPercentage;
+    
+    public WaterLevelReading(long reservoirId, long timestamp, double levelM3, double levelPercentage) {
+        this.reservoirId = reservoirId;
+        this.timestamp = timestamp;
+        this.levelM3 = levelM3;
+        this.levelPercentage = levelPercentage;
+    }
+    
+    public long getReservoirId() {
+        return reservoirId;
+    }
+    
+    /**
+     * @return time of the reading in epoch milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+    
+    public double getLevelM3() {
+        return levelM3;
+    }
+    
+    public double getLevelPercentage() {
+        return levelPercentage;
+    }
+}
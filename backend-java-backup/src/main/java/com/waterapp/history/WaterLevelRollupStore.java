@@ -0,0 +1,332 @@
+package com.waterapp.history;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Hourly and daily rollups of the water-level history.
+ * Each reservoir has one open bucket per resolution that is updated in memory as readings
+ * arrive; when a reading falls into a later bucket the open one is closed and appended to a
+ * memory-mapped log of fixed-width bucket records. Buckets follow the local calendar.
+ * A reading that arrives after its bucket was closed amends it: the amended bucket is appended
+ * as a new record that supersedes the earlier one, so readers of the mapped records never see a
+ * half-written bucket. On startup the closed and amended buckets are loaded from the logs and the
+ * history store replays the raw readings it still holds, which rebuilds the open buckets; replayed
+ * readings of closed buckets are already counted in them and are skipped.
+ * Adding readings and sealing buckets must hold the history store's write lock, which serializes
+ * the writer thread and compaction; any thread may read.
+ */
+@Component
+public class WaterLevelRollupStore {
+    
+    private static final Logger logger = LoggerFactory.getLogger(WaterLevelRollupStore.class);
+    
+    // reservoirId (8) | bucket start millis (8) | count (8) | m3 min, max, sum, last (32) | percentage min, max, sum, last (32)
+    static final int RECORD_SIZE = 88;
+    
+    /**
+     * Rollup bucket width
+     */
+    public enum Resolution {
+        HOUR(ChronoUnit.HOURS, "hourly"),
+        DAY(ChronoUnit.DAYS, "daily");
+        
+        private final ChronoUnit unit;
+        private final String logName;
+        
+        Resolution(ChronoUnit unit, String logName) {
+            this.unit = unit;
+            this.logName = logName;
+        }
+        
+        /**
+         * @return bucket width in milliseconds, ignoring daylight saving changes
+         */
+        public long getMillis() {
+            return unit.getDuration().toMillis();
+        }
+        
+        long bucketStart(long timestamp) {
+            LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault());
+            return time.truncatedTo(unit).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+    }
+    
+    private final Map<Resolution, Rollup> rollups = new EnumMap<>(Resolution.class);
+    
+    public WaterLevelRollupStore(@Value("${reservoir.history.directory:data/history}") String directory,
+                                 @Value("${reservoir.history.rollup-segment-size-mb:16}") int segmentSizeMb) {
+        Path path = Paths.get(directory);
+        for (Resolution resolution : Resolution.values()) {
+            rollups.put(resolution, new Rollup(resolution,
+                    new MappedRecordLog(path, resolution.logName, RECORD_SIZE, segmentSizeMb)));
+        }
+    }
+    
+    /**
+     * Map the rollup logs and load the closed buckets
+     * @throws IOException if the logs cannot be opened
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        for (Rollup rollup : rollups.values()) {
+            rollup.open();
+        }
+    }
+    
+    /**
+     * Flush the rollup logs to disk
+     */
+    public void close() {
+        for (Rollup rollup : rollups.values()) {
+            rollup.log.force();
+        }
+    }
+    
+    /**
+     * Roll a reading up into every resolution; caller holds the history write lock
+     * @param reading reading to add
+     * @throws IOException if a closed bucket cannot be written
+     */
+    void add(WaterLevelReading reading) throws IOException {
+        for (Rollup rollup : rollups.values()) {
+            rollup.add(reading, false);
+        }
+    }
+    
+    /**
+     * Roll up a raw reading replayed on startup; readings of buckets closed before the restart
+     * are skipped since the buckets already count them
+     * @param reading replayed reading
+     * @throws IOException if a closed bucket cannot be written
+     */
+    void replay(WaterLevelReading reading) throws IOException {
+        for (Rollup rollup : rollups.values()) {
+            rollup.add(reading, true);
+        }
+    }
+    
+    /**
+     * Close the open buckets that start before a time, so that the raw readings before it can
+     * be dropped; caller holds the history write lock
+     * @param cutoffMillis start of the day from which raw readings are kept
+     * @throws IOException if a closed bucket cannot be written
+     */
+    void sealBefore(long cutoffMillis) throws IOException {
+        for (Rollup rollup : rollups.values()) {
+            rollup.sealBefore(cutoffMillis);
+        }
+    }
+    
+    /**
+     * Read a reservoir's buckets that start within a time range, oldest first
+     * @param reservoirId reservoir ID
+     * @param resolution bucket width
+     * @param fromMillis start of the range in epoch milliseconds (inclusive)
+     * @param toMillis end of the range in epoch milliseconds (inclusive)
+     * @param limit maximum number of buckets
+     * @return buckets in time order, the last one possibly still open
+     */
+    public List<LevelBucket> read(long reservoirId, Resolution resolution, long fromMillis, long toMillis, int limit) {
+        return rollups.get(resolution).read(reservoirId, resolution.bucketStart(fromMillis), toMillis, limit);
+    }
+    
+    /**
+     * Buckets of one resolution
+     */
+    private static final class Rollup {
+        private final Resolution resolution;
+        private final MappedRecordLog log;
+        private final Map<Long, Series> series = new ConcurrentHashMap<>();
+        
+        private Rollup(Resolution resolution, MappedRecordLog log) {
+            this.resolution = resolution;
+            this.log = log;
+        }
+        
+        private void open() throws IOException {
+            log.open(record -> {
+                MappedByteBuffer buffer = log.buffer(record);
+                int offset = log.offset(record);
+                Series reservoir = series(buffer.getLong(offset));
+                long start = buffer.getLong(offset + 8);
+                if (start > reservoir.lastClosedStart) {
+                    reservoir.closed.add(record, start);
+                    reservoir.lastClosedStart = start;
+                } else {
+                    // Appended later than buckets after it: an amendment, the last one of a start wins
+                    reservoir.amended.put(start, bucket(record));
+                }
+            });
+            logger.info("Opened {} water-level rollups with {} buckets", resolution.logName, log.getRecordCount());
+        }
+        
+        private void add(WaterLevelReading reading, boolean replayed) throws IOException {
+            Series reservoir = series(reading.getReservoirId());
+            long start = resolution.bucketStart(reading.getTimestamp());
+            LevelBucket open = reservoir.open;
+            if (open != null && start == open.getStart()) {
+                reservoir.open = open.plus(reading);
+            } else if (open != null ? start > open.getStart() : start > reservoir.lastClosedStart) {
+                if (open != null) {
+                    close(reservoir, open);
+                }
+                reservoir.open = LevelBucket.of(reading, start);
+            } else if (!replayed) {
+                amend(reservoir, reading, start);
+            }
+        }
+        
+        /**
+         * Add a late reading to the closed bucket it falls into, or close a new bucket for it if
+         * no reading had fallen into that bucket
+         */
+        private void amend(Series reservoir, WaterLevelReading reading, long start) throws IOException {
+            LevelBucket current = reservoir.amended.get(start);
+            if (current == null) {
+                current = closedBucket(reservoir, start);
+            }
+            LevelBucket amended = current == null ? LevelBucket.of(reading, start) : current.plusLate(reading);
+            long record = append(amended);
+            if (start > reservoir.lastClosedStart) {
+                // An empty bucket between the last closed one and the open one
+                reservoir.closed.add(record, start);
+                reservoir.lastClosedStart = start;
+            } else {
+                reservoir.amended.put(start, amended);
+            }
+        }
+        
+        private LevelBucket closedBucket(Series reservoir, long start) {
+            RecordList.View closed = reservoir.closed.view();
+            int position = RecordList.lowerBound(closed, start);
+            if (position < closed.size) {
+                LevelBucket bucket = bucket(closed.records[position]);
+                if (bucket.getStart() == start) {
+                    return bucket;
+                }
+            }
+            return null;
+        }
+        
+        private void sealBefore(long cutoffMillis) throws IOException {
+            for (Series reservoir : series.values()) {
+                LevelBucket open = reservoir.open;
+                if (open != null && open.getStart() < cutoffMillis) {
+                    close(reservoir, open);
+                    reservoir.open = null;
+                }
+            }
+        }
+        
+        private void close(Series reservoir, LevelBucket bucket) throws IOException {
+            long record = append(bucket);
+            reservoir.closed.add(record, bucket.getStart());
+            reservoir.lastClosedStart = bucket.getStart();
+        }
+        
+        private long append(LevelBucket bucket) throws IOException {
+            return log.append((buffer, offset) -> {
+                buffer.putLong(offset + 8, bucket.getStart());
+                buffer.putLong(offset + 16, bucket.getCount());
+                buffer.putDouble(offset + 24, bucket.getMinLevelM3());
+                buffer.putDouble(offset + 32, bucket.getMaxLevelM3());
+                buffer.putDouble(offset + 40, bucket.getSumLevelM3());
+                buffer.putDouble(offset + 48, bucket.getLastLevelM3());
+                buffer.putDouble(offset + 56, bucket.getMinLevelPercentage());
+                buffer.putDouble(offset + 64, bucket.getMaxLevelPercentage());
+                buffer.putDouble(offset + 72, bucket.getSumLevelPercentage());
+                buffer.putDouble(offset + 80, bucket.getLastLevelPercentage());
+                // The id goes last, it marks the record as complete
+                buffer.putLong(offset, bucket.getReservoirId());
+            });
+        }
+        
+        private List<LevelBucket> read(long reservoirId, long fromMillis, long toMillis, int limit) {
+            List<LevelBucket> result = new ArrayList<>();
+            Series reservoir = series.get(reservoirId);
+            if (reservoir == null) {
+                return result;
+            }
+            // Read the open bucket first, it may be closed and appended while the log is read
+            LevelBucket open = reservoir.open;
+            RecordList.View closed = reservoir.closed.view();
+            // Amended buckets replace the closed bucket of the same start or fill a gap between them
+            Iterator<LevelBucket> amended = reservoir.amended.subMap(fromMillis, true, toMillis, true).values().iterator();
+            LevelBucket nextAmended = amended.hasNext() ? amended.next() : null;
+            int position = RecordList.lowerBound(closed, fromMillis);
+            for (; position < closed.size && result.size() < limit; position++) {
+                LevelBucket bucket = bucket(closed.records[position]);
+                if (bucket.getStart() > toMillis) {
+                    break;
+                }
+                while (nextAmended != null && nextAmended.getStart() <= bucket.getStart() && result.size() < limit) {
+                    if (nextAmended.getStart() < bucket.getStart()) {
+                        result.add(nextAmended);
+                    } else {
+                        bucket = nextAmended;
+                    }
+                    nextAmended = amended.hasNext() ? amended.next() : null;
+                }
+                if (result.size() < limit) {
+                    result.add(bucket);
+                }
+            }
+            for (; nextAmended != null && result.size() < limit; nextAmended = amended.hasNext() ? amended.next() : null) {
+                if (result.isEmpty() || result.get(result.size() - 1).getStart() < nextAmended.getStart()) {
+                    result.add(nextAmended);
+                }
+            }
+            if (open != null && result.size() < limit && open.getStart() >= fromMillis && open.getStart() <= toMillis
+                    && (result.isEmpty() || result.get(result.size() - 1).getStart() < open.getStart())) {
+                result.add(open);
+            }
+            return result;
+        }
+        
+        private LevelBucket bucket(long record) {
+            MappedByteBuffer buffer = log.buffer(record);
+            int offset = log.offset(record);
+            return new LevelBucket(buffer.getLong(offset), buffer.getLong(offset + 8), buffer.getLong(offset + 16),
+                    buffer.getDouble(offset + 24), buffer.getDouble(offset + 32),
+                    buffer.getDouble(offset + 40), buffer.getDouble(offset + 48),
+                    buffer.getDouble(offset + 56), buffer.getDouble(offset + 64),
+                    buffer.getDouble(offset + 72), buffer.getDouble(offset + 80));
+        }
+        
+        private Series series(long reservoirId) {
+            return series.computeIfAbsent(reservoirId, id -> new Series());
+        }
+    }
+    
+    /**
+     * Buckets of one reservoir at one resolution
+     */
+    private static final class Series {
+        private final RecordList closed = new RecordList();
+        // bucket start -> latest amendment of a closed bucket, or a bucket closed late in a gap
+        private final NavigableMap<Long, LevelBucket> amended = new ConcurrentSkipListMap<>();
+        private volatile LevelBucket open;
+        // Only touched under the history write lock
+        private long lastClosedStart = Long.MIN_VALUE;
+    }
+}
@@ -0,0 +1,29 @@
+package com.waterapp.index;
+
+/**
+ * Reservoir id paired with its great-circle distance from a query point
+ */
+public class DistanceMatch implements Comparable<DistanceMatch> {
+    
+    private final long reservoirId;
+    private final double distanceKm;
+    
+    public DistanceMatch(long reservoirId, double distanceKm) {
+        this.reservoirId = reservoirId;
+        this.distanceKm = distanceKm;
+    }
+    
+    public long getReservoirId() {
+        return reservoirId;
+    }
+    
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+    
+    @Override
+    public int compareTo(DistanceMatch other) {
+        int cmp = Double.compare(distanceKm, other.distanceKm);
+        return cmp != 0 ? cmp : Long.compare(reservoirId, other.reservoirId);
+    }
+}
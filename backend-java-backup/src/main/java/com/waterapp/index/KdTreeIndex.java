@@ -0,0 +1,373 @@
+package com.waterapp.index;
+
+import com.waterapp.entity.ReservoirStatusThresholds;
+import com.waterapp.entity.WaterReservoir;
+import com.waterapp.util.GeoUtil;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * KD-tree over reservoir coordinates answering k-nearest-neighbour queries.
+ * Coordinates are converted once to unit-sphere (x, y, z) vectors: straight-line distance between
+ * two such vectors grows monotonically with great-circle distance, so axis-aligned pruning is exact.
+ * Status and active flags are stored next to each node and updated in place, the tree itself is
+ * only rebuilt (copy-on-write) when a reservoir is added, removed or moved.
+ */
+@Component
+public class KdTreeIndex implements ReservoirIndex {
+    
+    private static final int ACTIVE_FLAG = 1 << 2;
+    private static final int STATUS_BITS = 0b11;
+    private static final int BATCH_SPLIT_THRESHOLD = 128;
+    
+    // reservoir id -> point, source for rebuilds (guarded by writeLock)
+    private final Map<Long, Point> points = new HashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    
+    private volatile Tree tree = Tree.build(Collections.emptyList());
+    
+    @Override
+    public void rebuild(List<WaterReservoir> reservoirs) {
+        writeLock.lock();
+        try {
+            points.clear();
+            for (WaterReservoir reservoir : reservoirs) {
+                Point point = Point.of(reservoir);
+                if (point != null) {
+                    points.put(point.id, point);
+                }
+            }
+            tree = Tree.build(points.values());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    @Override
+    public void update(WaterReservoir reservoir) {
+        writeLock.lock();
+        try {
+            if (reservoir.getId() == null) {
+                return;
+            }
+            Point point = Point.of(reservoir);
+            if (point == null) {
+                if (points.remove(reservoir.getId()) != null) {
+                    tree = Tree.build(points.values());
+                }
+                return;
+            }
+            Point previous = points.put(point.id, point);
+            Tree current = tree;
+            Integer position = current.positions.get(point.id);
+            if (previous != null && position != null && previous.sameLocation(point)) {
+                // Only the status or active flag changed: patch the node in place
+                current.flags.set(position, point.flags);
+            } else {
+                tree = Tree.build(points.values());
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    /**
+     * Find the k reservoirs closest to a point
+     * @param latitude query latitude
+     * @param longitude query longitude
+     * @param k maximum number of results
+     * @param statusMask bit set of accepted status codes, 0 accepts every status
+     * @param active required active flag, null accepts both
+     * @return matches sorted by ascending distance
+     */
+    public List<DistanceMatch> findNearest(double latitude, double longitude, int k, int statusMask, Boolean active) {
+        return tree.nearest(latitude, longitude, k, statusMask, active);
+    }
+    
+    /**
+     * Answer many k-nearest queries in parallel on the common fork-join pool
+     * @param latitudes query latitudes
+     * @param longitudes query longitudes, same length as latitudes
+     * @param k maximum number of results per point
+     * @param statusMask bit set of accepted status codes, 0 accepts every status
+     * @param active required active flag, null accepts both
+     * @return one match list per query point, in input order
+     */
+    public List<List<DistanceMatch>> findNearestBatch(double[] latitudes, double[] longitudes, int k,
+                                                      int statusMask, Boolean active) {
+        // Each task only sets its own slots, and invoke() publishes them to this thread
+        List<List<DistanceMatch>> results = new ArrayList<>(Collections.nCopies(latitudes.length, null));
+        ForkJoinPool.commonPool().invoke(new BatchTask(tree, latitudes, longitudes, 0, latitudes.length,
+                k, statusMask, active, results));
+        return results;
+    }
+    
+    /**
+     * Build a status mask from status names
+     * @param statuses status names (GOOD, WARNING, CRITICAL), case-insensitive
+     * @return bit set of status codes, 0 when no status is given
+     * @throws IllegalArgumentException for an unknown status
+     */
+    public static int statusMask(Collection<String> statuses) {
+        int mask = 0;
+        for (String status : statuses) {
+            int code = ReservoirStatusThresholds.code(status.trim().toUpperCase());
+            if (code < 0) {
+                throw new IllegalArgumentException("Unknown status: " + status);
+            }
+            mask |= 1 << code;
+        }
+        return mask;
+    }
+    
+    private static final class Point {
+        private final long id;
+        private final double latitude;
+        private final double longitude;
+        private final int flags;
+        
+        private Point(long id, double latitude, double longitude, int flags) {
+            this.id = id;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.flags = flags;
+        }
+        
+        private static Point of(WaterReservoir reservoir) {
+            if (reservoir.getId() == null || reservoir.getLatitude() == null || reservoir.getLongitude() == null) {
+                return null;
+            }
+            int flags = ReservoirStatusThresholds.codeOrUnknown(reservoir.getStatus());
+            if (Boolean.TRUE.equals(reservoir.getIsActive())) {
+                flags |= ACTIVE_FLAG;
+            }
+            return new Point(reservoir.getId(), reservoir.getLatitude().doubleValue(),
+                    reservoir.getLongitude().doubleValue(), flags);
+        }
+        
+        private boolean sameLocation(Point other) {
+            return latitude == other.latitude && longitude == other.longitude;
+        }
+    }
+    
+    /**
+     * Immutable tree layout: the node of range [lo, hi) sits at (lo + hi) / 2 with its
+     * children in the two halves. Only the flags array is mutated after construction.
+     */
+    private static final class Tree {
+        private final long[] ids;
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final double[][] coords;
+        private final byte[] axes;
+        private final AtomicIntegerArray flags;
+        private final Map<Long, Integer> positions;
+        
+        private Tree(int size) {
+            ids = new long[size];
+            latitudes = new double[size];
+            longitudes = new double[size];
+            coords = new double[3][size];
+            axes = new byte[size];
+            flags = new AtomicIntegerArray(size);
+            positions = new HashMap<>(size * 2);
+        }
+        
+        private static Tree build(Collection<Point> points) {
+            Point[] nodes = points.toArray(new Point[0]);
+            double[][] vectors = new double[nodes.length][];
+            for (int i = 0; i < nodes.length; i++) {
+                vectors[i] = toVector(nodes[i].latitude, nodes[i].longitude);
+            }
+            Integer[] order = new Integer[nodes.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Tree tree = new Tree(nodes.length);
+            tree.layout(order, vectors, 0, nodes.length);
+            for (int position = 0; position < order.length; position++) {
+                Point point = nodes[order[position]];
+                double[] vector = vectors[order[position]];
+                tree.ids[position] = point.id;
+                tree.latitudes[position] = point.latitude;
+                tree.longitudes[position] = point.longitude;
+                tree.coords[0][position] = vector[0];
+                tree.coords[1][position] = vector[1];
+                tree.coords[2][position] = vector[2];
+                tree.flags.set(position, point.flags);
+                tree.positions.put(point.id, position);
+            }
+            return tree;
+        }
+        
+        private void layout(Integer[] order, double[][] vectors, int lo, int hi) {
+            if (hi - lo <= 1) {
+                return;
+            }
+            int axis = widestAxis(order, vectors, lo, hi);
+            int mid = (lo + hi) >>> 1;
+            // Median split; sorting the range keeps the build simple at O(n log^2 n)
+            Arrays.sort(order, lo, hi, (a, b) -> Double.compare(vectors[a][axis], vectors[b][axis]));
+            axes[mid] = (byte) axis;
+            layout(order, vectors, lo, mid);
+            layout(order, vectors, mid + 1, hi);
+        }
+        
+        private static int widestAxis(Integer[] order, double[][] vectors, int lo, int hi) {
+            int best = 0;
+            double bestSpread = -1;
+            for (int axis = 0; axis < 3; axis++) {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (int i = lo; i < hi; i++) {
+                    double value = vectors[order[i]][axis];
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+                if (max - min > bestSpread) {
+                    bestSpread = max - min;
+                    best = axis;
+                }
+            }
+            return best;
+        }
+        
+        private List<DistanceMatch> nearest(double latitude, double longitude, int k, int statusMask, Boolean active) {
+            if (k <= 0 || ids.length == 0) {
+                return Collections.emptyList();
+            }
+            double[] query = toVector(latitude, longitude);
+            Candidates candidates = new Candidates(Math.min(k, ids.length));
+            search(0, ids.length, query, statusMask, active, candidates);
+            
+            List<DistanceMatch> matches = new ArrayList<>(candidates.size);
+            for (int i = 0; i < candidates.size; i++) {
+                int position = candidates.positions[i];
+                matches.add(new DistanceMatch(ids[position],
+                        GeoUtil.haversineKm(latitude, longitude, latitudes[position], longitudes[position])));
+            }
+            return matches;
+        }
+        
+        private void search(int lo, int hi, double[] query, int statusMask, Boolean active, Candidates candidates) {
+            if (lo >= hi) {
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            if (accepts(flags.get(mid), statusMask, active)) {
+                double dx = coords[0][mid] - query[0];
+                double dy = coords[1][mid] - query[1];
+                double dz = coords[2][mid] - query[2];
+                candidates.offer(mid, dx * dx + dy * dy + dz * dz);
+            }
+            double split = coords[axes[mid]][mid] - query[axes[mid]];
+            if (split > 0) {
+                search(lo, mid, query, statusMask, active, candidates);
+                if (split * split < candidates.worst()) {
+                    search(mid + 1, hi, query, statusMask, active, candidates);
+                }
+            } else {
+                search(mid + 1, hi, query, statusMask, active, candidates);
+                if (split * split < candidates.worst()) {
+                    search(lo, mid, query, statusMask, active, candidates);
+                }
+            }
+        }
+        
+        private static boolean accepts(int nodeFlags, int statusMask, Boolean active) {
+            if (statusMask != 0 && (statusMask & (1 << (nodeFlags & STATUS_BITS))) == 0) {
+                return false;
+            }
+            return active == null || active == ((nodeFlags & ACTIVE_FLAG) != 0);
+        }
+        
+        private static double[] toVector(double latitude, double longitude) {
+            double lat = Math.toRadians(latitude);
+            double lon = Math.toRadians(longitude);
+            double cosLat = Math.cos(lat);
+            return new double[] {cosLat * Math.cos(lon), cosLat * Math.sin(lon), Math.sin(lat)};
+        }
+    }
+    
+    /**
+     * Bounded candidate list kept sorted by squared chord distance
+     */
+    private static final class Candidates {
+        private final int[] positions;
+        private final double[] distances;
+        private int size;
+        
+        private Candidates(int capacity) {
+            positions = new int[capacity];
+            distances = new double[capacity];
+        }
+        
+        private double worst() {
+            return size < positions.length ? Double.POSITIVE_INFINITY : distances[size - 1];
+        }
+        
+        private void offer(int position, double distance) {
+            if (distance >= worst()) {
+                return;
+            }
+            int i = size < positions.length ? size++ : size - 1;
+            while (i > 0 && distances[i - 1] > distance) {
+                positions[i] = positions[i - 1];
+                distances[i] = distances[i - 1];
+                i--;
+            }
+            positions[i] = position;
+            distances[i] = distance;
+        }
+    }
+    
+    private static final class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final Tree tree;
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final int from;
+        private final int to;
+        private final int k;
+        private final int statusMask;
+        private final Boolean active;
+        private final List<List<DistanceMatch>> results;
+        
+        private BatchTask(Tree tree, double[] latitudes, double[] longitudes, int from, int to,
+                          int k, int statusMask, Boolean active, List<List<DistanceMatch>> results) {
+            this.tree = tree;
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.from = from;
+            this.to = to;
+            this.k = k;
+            this.statusMask = statusMask;
+            this.active = active;
+            this.results = results;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    results.set(i, tree.nearest(latitudes[i], longitudes[i], k, statusMask, active));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new BatchTask(tree, latitudes, longitudes, from, mid, k, statusMask, active, results),
+                    new BatchTask(tree, latitudes, longitudes, mid, to, k, statusMask, active, results));
+        }
+    }
+}
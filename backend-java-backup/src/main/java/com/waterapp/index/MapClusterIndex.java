@@ -0,0 +1,295 @@
+package com.waterapp.index;
+
+import com.waterapp.entity.ReservoirStatusThresholds;
+import com.waterapp.entity.WaterReservoir;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hierarchical map clusters of the active reservoirs, one level per zoom.
+ * Reservoirs are projected to Web Mercator and binned into square cells of cell-pixels at each
+ * zoom; a cell splits into four at the next zoom, so the levels form a quadtree of aggregates.
+ * Each cell holds an immutable {@link Cluster} with its count, coordinate sums and status counts.
+ * A write removes the reservoir's previous contribution from its cell at every zoom and adds the
+ * new one, so a status change or move costs O(max zoom). A rebuild fills new levels, keeping
+ * the reservoirs written since its snapshot was read, and publishes them in one swap, so readers
+ * never see a partly built index.
+ */
+@Component
+public class MapClusterIndex implements ReservoirIndex {
+    
+    // Worst first: a cluster reports the first status any of its reservoirs has
+    private static final String[] SEVERITY = {"CRITICAL", "WARNING", "GOOD", "UNKNOWN"};
+    private static final double MAX_LATITUDE = 85.05112878;
+    
+    private final int maxZoom;
+    private final int cellsPerTileShift;
+    
+    private volatile State state;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    
+    public MapClusterIndex(@Value("${reservoir.map.max-zoom:16}") int maxZoom,
+                           @Value("${reservoir.map.cell-pixels:64}") int cellPixels) {
+        if (maxZoom < 0 || maxZoom > 22) {
+            throw new IllegalArgumentException("Map max zoom must be between 0 and 22");
+        }
+        if (cellPixels < 1 || cellPixels > 256 || Integer.bitCount(cellPixels) != 1) {
+            throw new IllegalArgumentException("Map cell size must be a power of two up to 256 pixels");
+        }
+        this.maxZoom = maxZoom;
+        this.cellsPerTileShift = Integer.numberOfTrailingZeros(256 / cellPixels);
+        this.state = new State(maxZoom);
+    }
+    
+    @Override
+    public void rebuild(List<WaterReservoir> reservoirs) {
+        writeLock.lock();
+        try {
+            State current = state;
+            State rebuilt = new State(maxZoom);
+            for (WaterReservoir reservoir : reservoirs) {
+                Point point = toPoint(reservoir);
+                Point newer = point == null ? null : current.points.get(point.id);
+                if (newer != null && newer.revision > point.revision) {
+                    // Written after the snapshot was read
+                    point = newer;
+                }
+                if (point != null && point.active) {
+                    rebuilt.points.put(point.id, point);
+                    apply(rebuilt, point, 1);
+                }
+            }
+            state = rebuilt;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    @Override
+    public void update(WaterReservoir reservoir) {
+        writeLock.lock();
+        try {
+            Point point = toPoint(reservoir);
+            if (point == null) {
+                return;
+            }
+            State current = state;
+            Point previous = current.points.get(point.id);
+            if (previous != null) {
+                if (previous.revision > point.revision) {
+                    // Committed writes can be delivered out of order; keep the newer one
+                    return;
+                }
+                current.points.remove(point.id);
+                apply(current, previous, -1);
+            }
+            if (point.active) {
+                current.points.put(point.id, point);
+                apply(current, point, 1);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    /**
+     * Clusters intersecting a viewport
+     * @param minLatitude southern edge
+     * @param maxLatitude northern edge
+     * @param minLongitude western edge
+     * @param maxLongitude eastern edge
+     * @param zoom map zoom, clamped to the max zoom
+     * @return clusters whose cell intersects the viewport
+     */
+    public List<Cluster> findInViewport(double minLatitude, double maxLatitude, double minLongitude,
+                                        double maxLongitude, int zoom) {
+        int level = Math.min(zoom, maxZoom);
+        Map<Long, Cluster> cells = state.levels.get(level);
+        long minX = cell(mercatorX(minLongitude), level);
+        long maxX = cell(mercatorX(maxLongitude), level);
+        // Mercator y grows southwards
+        long minY = cell(mercatorY(maxLatitude), level);
+        long maxY = cell(mercatorY(minLatitude), level);
+        
+        List<Cluster> result = new ArrayList<>();
+        if ((maxX - minX + 1) * (maxY - minY + 1) <= cells.size()) {
+            for (long x = minX; x <= maxX; x++) {
+                for (long y = minY; y <= maxY; y++) {
+                    Cluster cluster = cells.get(key(x, y));
+                    if (cluster != null) {
+                        result.add(cluster);
+                    }
+                }
+            }
+        } else {
+            // Large viewport: visiting the occupied cells is cheaper than visiting every cell
+            for (Map.Entry<Long, Cluster> entry : cells.entrySet()) {
+                long x = entry.getKey() >>> 32;
+                long y = entry.getKey() & 0xFFFFFFFFL;
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                    result.add(entry.getValue());
+                }
+            }
+        }
+        return result;
+    }
+    
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+    
+    /**
+     * Reservoir as counted in the clusters
+     * @return point, inactive if the reservoir is inactive or has no coordinates; null without an id
+     */
+    private static Point toPoint(WaterReservoir reservoir) {
+        if (reservoir.getId() == null) {
+            return null;
+        }
+        long revision = reservoir.getRevision() == null ? 0 : reservoir.getRevision();
+        if (Boolean.FALSE.equals(reservoir.getIsActive())
+                || reservoir.getLatitude() == null || reservoir.getLongitude() == null) {
+            return new Point(reservoir.getId(), 0, 0, 0, revision, false);
+        }
+        return new Point(reservoir.getId(), reservoir.getLatitude().doubleValue(),
+                reservoir.getLongitude().doubleValue(), ReservoirStatusThresholds.codeOrUnknown(reservoir.getStatus()),
+                revision, true);
+    }
+    
+    private void apply(State target, Point point, int sign) {
+        double x = mercatorX(point.longitude);
+        double y = mercatorY(point.latitude);
+        for (int zoom = 0; zoom <= maxZoom; zoom++) {
+            target.levels.get(zoom).compute(key(cell(x, zoom), cell(y, zoom)), (key, cluster) -> {
+                Cluster next = (cluster == null ? Cluster.EMPTY : cluster).plus(point, sign);
+                return next.count == 0 ? null : next;
+            });
+        }
+    }
+    
+    private long cell(double mercator, int zoom) {
+        long cells = 1L << (zoom + cellsPerTileShift);
+        return Math.min(cells - 1, Math.max(0, (long) Math.floor(mercator * cells)));
+    }
+    
+    private static long key(long x, long y) {
+        return (x << 32) | y;
+    }
+    
+    private static double mercatorX(double longitude) {
+        return (longitude + 180) / 360;
+    }
+    
+    private static double mercatorY(double latitude) {
+        double sin = Math.sin(Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude))));
+        return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+    
+    /**
+     * Reservoirs and the clusters they add up to, replaced as a whole by a rebuild
+     */
+    private static final class State {
+        // zoom -> (cell key -> cluster)
+        private final List<Map<Long, Cluster>> levels = new ArrayList<>();
+        // reservoir id -> contribution to the clusters (guarded by writeLock)
+        private final Map<Long, Point> points = new ConcurrentHashMap<>();
+        
+        private State(int maxZoom) {
+            for (int zoom = 0; zoom <= maxZoom; zoom++) {
+                levels.add(new ConcurrentHashMap<>());
+            }
+        }
+    }
+    
+    /**
+     * Reservoir as counted in the clusters
+     */
+    private static final class Point {
+        private final long id;
+        private final double latitude;
+        private final double longitude;
+        private final int status;
+        private final long revision;
+        // Only active points are counted and kept
+        private final boolean active;
+        
+        private Point(long id, double latitude, double longitude, int status, long revision, boolean active) {
+            this.id = id;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.status = status;
+            this.revision = revision;
+            this.active = active;
+        }
+    }
+    
+    /**
+     * Aggregate of the reservoirs in one cell at one zoom
+     */
+    public static final class Cluster {
+        private static final Cluster EMPTY = new Cluster(0, 0, 0, 0, new int[ReservoirStatusThresholds.STATUS_COUNT]);
+        
+        private final int count;
+        private final double latitudeSum;
+        private final double longitudeSum;
+        // Sum of the member ids, equal to the id of the only member of a single-reservoir cluster
+        private final long idSum;
+        private final int[] statusCounts;
+        
+        private Cluster(int count, double latitudeSum, double longitudeSum, long idSum, int[] statusCounts) {
+            this.count = count;
+            this.latitudeSum = latitudeSum;
+            this.longitudeSum = longitudeSum;
+            this.idSum = idSum;
+            this.statusCounts = statusCounts;
+        }
+        
+        private Cluster plus(Point point, int sign) {
+            int[] counts = statusCounts.clone();
+            counts[point.status] += sign;
+            return new Cluster(count + sign, latitudeSum + sign * point.latitude,
+                    longitudeSum + sign * point.longitude, idSum + sign * point.id, counts);
+        }
+        
+        public int getCount() {
+            return count;
+        }
+        
+        public double getLatitude() {
+            return latitudeSum / count;
+        }
+        
+        public double getLongitude() {
+            return longitudeSum / count;
+        }
+        
+        /**
+         * @return id of the reservoir if the cluster holds exactly one, otherwise null
+         */
+        public Long getReservoirId() {
+            return count == 1 ? idSum : null;
+        }
+        
+        public int getStatusCount(String status) {
+            int code = ReservoirStatusThresholds.code(status);
+            return code < 0 ? 0 : statusCounts[code];
+        }
+        
+        /**
+         * @return most severe status of any reservoir in the cluster
+         */
+        public String getWorstStatus() {
+            for (String status : SEVERITY) {
+                if (getStatusCount(status) > 0) {
+                    return status;
+                }
+            }
+            return "UNKNOWN";
+        }
+    }
+}
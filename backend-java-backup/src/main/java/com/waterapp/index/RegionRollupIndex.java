@@ -0,0 +1,300 @@
+package com.waterapp.index;
+
+import com.waterapp.entity.ReservoirStatusThresholds;
+import com.waterapp.entity.WaterReservoir;
+import org.springframework.stereotype.Component;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Per-region aggregates of active reservoirs, kept as a county / sub-county / ward tree.
+ * Each reservoir's last contribution is remembered so a write only subtracts the old values
+ * from, and adds the new ones to, the three nodes on its path.
+ * Region names are matched case-insensitively. Sub-counties and wards are keyed under their
+ * parent, so a name shared by regions in different counties is merged when queried by name.
+ */
+@Component
+public class RegionRollupIndex implements ReservoirIndex {
+    
+    /**
+     * Levels of the region hierarchy, top down
+     */
+    public enum Level {
+        COUNTY("county"), SUB_COUNTY("subcounty"), WARD("ward");
+        
+        private final String pathName;
+        
+        Level(String pathName) {
+            this.pathName = pathName;
+        }
+        
+        public String getPathName() {
+            return pathName;
+        }
+        
+        /**
+         * Parse a level as written in request paths
+         * @param value level such as "county", "subcounty" or "ward"
+         * @return parsed level
+         * @throws IllegalArgumentException if the level is unknown
+         */
+        public static Level fromPathName(String value) {
+            for (Level level : values()) {
+                if (level.pathName.equalsIgnoreCase(value.replace("-", ""))) {
+                    return level;
+                }
+            }
+            throw new IllegalArgumentException("Unknown level: " + value);
+        }
+    }
+    
+    private static final Level[] LEVELS = Level.values();
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private final Node root = new Node(null);
+    
+    // reservoir id -> values it currently contributes to the tree
+    private final Map<Long, Contribution> contributions = new HashMap<>();
+    
+    @Override
+    public void rebuild(List<WaterReservoir> reservoirs) {
+        lock.writeLock().lock();
+        try {
+            root.children.clear();
+            root.clear();
+            contributions.clear();
+            for (WaterReservoir reservoir : reservoirs) {
+                apply(reservoir);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void update(WaterReservoir reservoir) {
+        lock.writeLock().lock();
+        try {
+            apply(reservoir);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Aggregates of all regions with a name at a level
+     * @param level hierarchy level
+     * @param name region name, case-insensitive
+     * @param drillDown whether to include the whole subtree below the region
+     * @return region aggregates, empty if no active reservoir lies in such a region
+     */
+    public Optional<RegionStatistics> find(Level level, String name, boolean drillDown) {
+        lock.readLock().lock();
+        try {
+            List<Node> nodes = new ArrayList<>();
+            collect(root, 0, level.ordinal(), key(name), nodes);
+            if (nodes.isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(snapshot(level.ordinal(), nodes, drillDown));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Aggregates of every county, each with its whole subtree
+     * @return county aggregates ordered by name
+     */
+    public List<RegionStatistics> findAll() {
+        lock.readLock().lock();
+        try {
+            return children(0, List.of(root));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private void apply(WaterReservoir reservoir) {
+        if (reservoir.getId() == null) {
+            return;
+        }
+        Contribution previous = contributions.remove(reservoir.getId());
+        if (previous != null) {
+            addAlongPath(previous, -1);
+        }
+        Contribution current = Contribution.of(reservoir);
+        if (current != null) {
+            contributions.put(reservoir.getId(), current);
+            addAlongPath(current, 1);
+        }
+    }
+    
+    private void addAlongPath(Contribution contribution, int sign) {
+        Node node = root;
+        node.add(contribution, sign);
+        for (String name : contribution.path) {
+            String key = key(name);
+            Node child = node.children.get(key);
+            if (child == null) {
+                child = new Node(name);
+                node.children.put(key, child);
+            }
+            child.add(contribution, sign);
+            if (child.reservoirs == 0) {
+                node.children.remove(key);
+            }
+            node = child;
+        }
+    }
+    
+    private static void collect(Node node, int depth, int targetDepth, String key, List<Node> result) {
+        if (depth == targetDepth) {
+            Node match = node.children.get(key);
+            if (match != null) {
+                result.add(match);
+            }
+            return;
+        }
+        for (Node child : node.children.values()) {
+            collect(child, depth + 1, targetDepth, key, result);
+        }
+    }
+    
+    private static RegionStatistics snapshot(int depth, List<Node> nodes, boolean drillDown) {
+        long[] statusCounts = new long[Node.STATUS_COUNT];
+        long reservoirs = 0;
+        BigDecimal capacity = BigDecimal.ZERO;
+        BigDecimal volume = BigDecimal.ZERO;
+        BigDecimal percentageSum = BigDecimal.ZERO;
+        for (Node node : nodes) {
+            reservoirs += node.reservoirs;
+            for (int i = 0; i < statusCounts.length; i++) {
+                statusCounts[i] += node.statusCounts[i];
+            }
+            capacity = capacity.add(node.capacity);
+            volume = volume.add(node.volume);
+            percentageSum = percentageSum.add(node.percentageSum);
+        }
+        BigDecimal meanFill = reservoirs == 0 ? BigDecimal.ZERO
+                : percentageSum.divide(BigDecimal.valueOf(reservoirs), 2, RoundingMode.HALF_UP);
+        List<RegionStatistics> children = drillDown && depth + 1 < LEVELS.length ? children(depth + 1, nodes) : null;
+        return new RegionStatistics(LEVELS[depth].getPathName(), nodes.get(0).name, reservoirs,
+                statusCounts[0], statusCounts[1], statusCounts[2], capacity.setScale(2, RoundingMode.HALF_UP),
+                volume.setScale(2, RoundingMode.HALF_UP), meanFill, children);
+    }
+    
+    private static List<RegionStatistics> children(int depth, List<Node> parents) {
+        // Merge same-named children of all parents, ordered by name
+        Map<String, List<Node>> byKey = new LinkedHashMap<>();
+        for (Node parent : parents) {
+            for (Map.Entry<String, Node> entry : parent.children.entrySet()) {
+                byKey.computeIfAbsent(entry.getKey(), key -> new ArrayList<>()).add(entry.getValue());
+            }
+        }
+        List<String> keys = new ArrayList<>(byKey.keySet());
+        keys.sort(null);
+        List<RegionStatistics> result = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            result.add(snapshot(depth, byKey.get(key), true));
+        }
+        return result;
+    }
+    
+    private static String key(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    private static final class Node {
+        private static final String[] STATUSES = {
+            ReservoirStatusThresholds.GOOD,
+            ReservoirStatusThresholds.WARNING,
+            ReservoirStatusThresholds.CRITICAL
+        };
+        private static final int STATUS_COUNT = STATUSES.length;
+        
+        private final String name;
+        private final Map<String, Node> children = new HashMap<>();
+        private final long[] statusCounts = new long[STATUS_COUNT];
+        private long reservoirs;
+        private BigDecimal capacity = BigDecimal.ZERO;
+        private BigDecimal volume = BigDecimal.ZERO;
+        private BigDecimal percentageSum = BigDecimal.ZERO;
+        
+        private Node(String name) {
+            this.name = name;
+        }
+        
+        private void add(Contribution contribution, int sign) {
+            reservoirs += sign;
+            if (contribution.statusCode >= 0) {
+                statusCounts[contribution.statusCode] += sign;
+            }
+            BigDecimal factor = BigDecimal.valueOf(sign);
+            capacity = capacity.add(contribution.capacity.multiply(factor));
+            volume = volume.add(contribution.volume.multiply(factor));
+            percentageSum = percentageSum.add(contribution.percentage.multiply(factor));
+        }
+        
+        private void clear() {
+            Arrays.fill(statusCounts, 0);
+            reservoirs = 0;
+            capacity = BigDecimal.ZERO;
+            volume = BigDecimal.ZERO;
+            percentageSum = BigDecimal.ZERO;
+        }
+        
+        private static int statusCode(String status) {
+            for (int i = 0; i < STATUSES.length; i++) {
+                if (STATUSES[i].equals(status)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+    
+    private static final class Contribution {
+        private final String[] path;
+        private final int statusCode;
+        private final BigDecimal capacity;
+        private final BigDecimal volume;
+        private final BigDecimal percentage;
+        
+        private Contribution(String[] path, int statusCode, BigDecimal capacity,
+                             BigDecimal volume, BigDecimal percentage) {
+            this.path = path;
+            this.statusCode = statusCode;
+            this.capacity = capacity;
+            this.volume = volume;
+            this.percentage = percentage;
+        }
+        
+        private static Contribution of(WaterReservoir reservoir) {
+            if (!Boolean.TRUE.equals(reservoir.getIsActive())) {
+                return null;
+            }
+            return new Contribution(
+                    new String[] {reservoir.getCounty(), reservoir.getSubCounty(), reservoir.getWard()},
+                    Node.statusCode(reservoir.getStatus()),
+                    orZero(reservoir.getTotalCapacityM3()),
+                    orZero(reservoir.getCurrentLevelM3()),
+                    orZero(reservoir.getCurrentLevelPercentage()));
+        }
+        
+        private static BigDecimal orZero(BigDecimal value) {
+            return value == null ? BigDecimal.ZERO : value;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.waterapp.index;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Snapshot of the aggregates of one region of the county / sub-county / ward hierarchy
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RegionStatistics {
+    private final String level;
+    private final String name;
+    private final long totalReservoirs;
+    private final long goodReservoirs;
+    private final long warningReservoirs;
+    private final long criticalReservoirs;
+    private final BigDecimal totalCapacityM3;
+    private final BigDecimal currentVolumeM3;
+    private final BigDecimal meanFillPercentage;
+    private final List<RegionStatistics> children;
+    
+    public RegionStatistics(String level, String name, long totalReservoirs, long goodReservoirs,
+                            long warningReservoirs, long criticalReservoirs, BigDecimal totalCapacityM3,
+                            BigDecimal currentVolumeM3, BigDecimal meanFillPercentage,
+                            List<RegionStatistics> children) {
+        this.level = level;
+        this.name = name;
+        this.totalReservoirs = totalReservoirs;
+        this.goodReservoirs = goodReservoirs;
+        this.warningReservoirs = warningReservoirs;
+        this.criticalReservoirs = criticalReservoirs;
+        this.totalCapacityM3 = totalCapacityM3;
+        this.currentVolumeM3 = currentVolumeM3;
+        this.meanFillPercentage = meanFillPercentage;
+        this.children = children;
+    }
+    
+    // Getters
+    public String getLevel() { return level; }
+    public String getName() { return name; }
+    public long getTotalReservoirs() { return totalReservoirs; }
+    public long getGoodReservoirs() { return goodReservoirs; }
+    public long getWarningReservoirs() { return warningReservoirs; }
+    public long getCriticalReservoirs() { return criticalReservoirs; }
+    public BigDecimal getTotalCapacityM3() { return totalCapacityM3; }
+    public BigDecimal getCurrentVolumeM3() { return currentVolumeM3; }
+    public BigDecimal getMeanFillPercentage() { return meanFillPercentage; }
+    public List<RegionStatistics> getChildren() { return children; }
+}
@@ -0,0 +1,457 @@
+package com.waterapp.index;
+
+import com.waterapp.entity.ReservoirStatusThresholds;
+import com.waterapp.entity.WaterReservoir;
+import org.springframework.stereotype.Component;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Read-optimized snapshot of every active reservoir, held column by column in primitive arrays:
+ * volumes and percentages as fixed-point hundredths, coordinates as doubles, status and water
+ * quality as byte codes and the county / sub-county / ward names as codes into a shared dictionary.
+ * Filter and aggregate queries scan the columns without allocating per row.
+ * Readers use an immutable {@link Columns} snapshot; writes are queued and published copy-on-write,
+ * and writes that arrive while a snapshot is being published are folded into the next one.
+ * The columns are split into chunks of {@value #CHUNK_SIZE} rows, so publishing a level change
+ * copies only the chunks it touches rather than every column of every row.
+ */
+@Component
+public class ReservoirColumnStore implements ReservoirIndex {
+    
+    private static final byte NO_QUALITY = -1;
+    
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    
+    // upper-case region name -> dictionary code, append-only so codes stay valid in old snapshots
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private final AtomicInteger nextCode = new AtomicInteger();
+    
+    // reservoir id -> latest row, source for structural rebuilds (guarded by writeLock)
+    private final Map<Long, Row> rows = new ConcurrentHashMap<>();
+    // reservoir id -> row written since the last publish
+    private final Map<Long, Row> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    
+    private volatile Columns columns = Columns.build(new Row[0]);
+    
+    @Override
+    public void rebuild(List<WaterReservoir> reservoirs) {
+        writeLock.lock();
+        try {
+            Map<Long, Row> rebuilt = new HashMap<>();
+            for (WaterReservoir reservoir : reservoirs) {
+                Row row = toRow(reservoir);
+                Row current = row == null ? null : rows.get(row.id);
+                if (current != null && current.revision > row.revision) {
+                    // Written after the snapshot was read
+                    row = current;
+                }
+                if (row != null && row.active) {
+                    rebuilt.put(row.id, row);
+                }
+            }
+            rows.keySet().retainAll(rebuilt.keySet());
+            rows.putAll(rebuilt);
+            columns = Columns.build(rows.values().toArray(new Row[0]));
+        } finally {
+            writeLock.unlock();
+        }
+        // Writes queued during the rebuild are applied unless the rebuild already saw them
+        publishPending();
+    }
+    
+    @Override
+    public void update(WaterReservoir reservoir) {
+        Row row = toRow(reservoir);
+        if (row == null) {
+            return;
+        }
+        pending.merge(row.id, row, (queued, next) -> next.revision >= queued.revision ? next : queued);
+        publishPending();
+    }
+    
+    /**
+     * Find active reservoirs matching a filter
+     * @param filter filter
+     * @param afterId only reservoirs with a greater id are returned
+     * @param limit maximum number of ids
+     * @return matching reservoir ids in ascending order
+     */
+    public long[] filter(Filter filter, long afterId, int limit) {
+        Columns snapshot = columns;
+        CompiledFilter compiled = compile(filter);
+        long[] matches = new long[Math.min(limit, snapshot.size)];
+        int count = 0;
+        if (compiled == null) {
+            return matches;
+        }
+        int index = Arrays.binarySearch(snapshot.ids, 0, snapshot.size, afterId);
+        for (int i = index < 0 ? -index - 1 : index + 1; i < snapshot.size && count < matches.length; i++) {
+            if (compiled.matches(snapshot.chunks[i >> CHUNK_SHIFT], i & CHUNK_MASK)) {
+                matches[count++] = snapshot.ids[i];
+            }
+        }
+        return count == matches.length ? matches : Arrays.copyOf(matches, count);
+    }
+    
+    /**
+     * Aggregate the active reservoirs matching a filter
+     * @param filter filter
+     * @return counts per status, total capacity and volume and the mean fill percentage
+     */
+    public RegionStatistics aggregate(Filter filter) {
+        Columns snapshot = columns;
+        CompiledFilter compiled = compile(filter);
+        long[] statusCounts = new long[ReservoirStatusThresholds.STATUS_COUNT];
+        long capacity = 0;
+        long volume = 0;
+        long percentage = 0;
+        long reservoirs = 0;
+        for (int c = 0; compiled != null && c < snapshot.chunks.length; c++) {
+            Chunk chunk = snapshot.chunks[c];
+            for (int i = 0; i < chunk.length; i++) {
+                if (compiled.matches(chunk, i)) {
+                    reservoirs++;
+                    statusCounts[chunk.statuses[i]]++;
+                    capacity += chunk.capacities[i];
+                    volume += chunk.levels[i];
+                    percentage += chunk.percentages[i];
+                }
+            }
+        }
+        BigDecimal meanFill = reservoirs == 0 ? BigDecimal.ZERO
+                : BigDecimal.valueOf(percentage, 2).divide(BigDecimal.valueOf(reservoirs), 2, RoundingMode.HALF_UP);
+        return new RegionStatistics("filter", null, reservoirs, statusCounts[0], statusCounts[1], statusCounts[2],
+                BigDecimal.valueOf(capacity, 2), BigDecimal.valueOf(volume, 2), meanFill, null);
+    }
+    
+    /**
+     * Build a water-quality mask from quality names
+     * @param qualities quality names (EXCELLENT, GOOD, FAIR, POOR, CRITICAL), case-insensitive
+     * @return bit set of quality codes, 0 when no quality is given
+     * @throws IllegalArgumentException for an unknown quality
+     */
+    public static int qualityMask(Collection<String> qualities) {
+        int mask = 0;
+        for (String quality : qualities) {
+            try {
+                mask |= 1 << WaterReservoir.WaterQuality.valueOf(quality.trim().toUpperCase(Locale.ROOT)).ordinal();
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown water quality: " + quality);
+            }
+        }
+        return mask;
+    }
+    
+    /**
+     * Publish the queued rows unless another writer is publishing; that writer checks the queue
+     * again after releasing the lock, so no row is left behind
+     */
+    private void publishPending() {
+        while (!pending.isEmpty() && writeLock.tryLock()) {
+            try {
+                publishBatch();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+    
+    private void publishBatch() {
+        Row[] batch = new Row[pending.size()];
+        int count = 0;
+        boolean structural = false;
+        for (Long id : pending.keySet()) {
+            Row row = pending.remove(id);
+            Row current = row == null ? null : rows.get(id);
+            if (row == null || (current != null && current.revision > row.revision)) {
+                continue;
+            }
+            if (count == batch.length) {
+                batch = Arrays.copyOf(batch, count * 2 + 1);
+            }
+            batch[count++] = row;
+            Row previous = row.active ? rows.put(id, row) : rows.remove(id);
+            // Adding or removing a reservoir changes the row layout
+            structural |= row.active != (previous != null);
+        }
+        if (count == 0) {
+            return;
+        }
+        columns = structural ? Columns.build(rows.values().toArray(new Row[0]))
+                : columns.withRows(batch, count);
+    }
+    
+    private Row toRow(WaterReservoir reservoir) {
+        if (reservoir.getId() == null) {
+            return null;
+        }
+        WaterReservoir.WaterQuality quality = reservoir.getWaterQuality();
+        return new Row(reservoir.getId(), reservoir.getRevision() == null ? 0 : reservoir.getRevision(),
+                !Boolean.FALSE.equals(reservoir.getIsActive()),
+                toDouble(reservoir.getLatitude()), toDouble(reservoir.getLongitude()),
+                toHundredths(reservoir.getTotalCapacityM3()), toHundredths(reservoir.getCurrentLevelM3()),
+                (int) toHundredths(reservoir.getCurrentLevelPercentage()),
+                (byte) ReservoirStatusThresholds.codeOrUnknown(reservoir.getStatus()),
+                quality == null ? NO_QUALITY : (byte) quality.ordinal(),
+                code(reservoir.getCounty()), code(reservoir.getSubCounty()), code(reservoir.getWard()));
+    }
+    
+    /**
+     * Dictionary code of a region name, assigning the next code to a new name
+     */
+    private int code(String name) {
+        if (name == null) {
+            return -1;
+        }
+        String key = name.toUpperCase(Locale.ROOT);
+        Integer code = codes.get(key);
+        return code != null ? code : codes.computeIfAbsent(key, k -> nextCode.getAndIncrement());
+    }
+    
+    /**
+     * Resolve the names of a filter to dictionary codes
+     * @return compiled filter, null if a requested region is unknown and nothing can match
+     */
+    private CompiledFilter compile(Filter filter) {
+        int county = lookup(filter.county);
+        int subCounty = lookup(filter.subCounty);
+        int ward = lookup(filter.ward);
+        if (county == -2 || subCounty == -2 || ward == -2) {
+            return null;
+        }
+        return new CompiledFilter(county, subCounty, ward, filter.statusMask, filter.qualityMask,
+                filter.minPercentage == null ? Integer.MIN_VALUE : (int) toHundredths(filter.minPercentage),
+                filter.maxPercentage == null ? Integer.MAX_VALUE : (int) toHundredths(filter.maxPercentage));
+    }
+    
+    /**
+     * @return code of the name, -1 for no filter, -2 for an unknown name
+     */
+    private int lookup(String name) {
+        if (name == null || name.isBlank()) {
+            return -1;
+        }
+        Integer code = codes.get(name.trim().toUpperCase(Locale.ROOT));
+        return code == null ? -2 : code;
+    }
+    
+    private static long toHundredths(BigDecimal value) {
+        return value == null ? 0 : value.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+    
+    private static double toDouble(BigDecimal value) {
+        return value == null ? Double.NaN : value.doubleValue();
+    }
+    
+    /**
+     * Query filter; null fields and zero masks accept every reservoir
+     */
+    public static final class Filter {
+        private final String county;
+        private final String subCounty;
+        private final String ward;
+        private final int statusMask;
+        private final int qualityMask;
+        private final BigDecimal minPercentage;
+        private final BigDecimal maxPercentage;
+        
+        public Filter(String county, String subCounty, String ward, int statusMask, int qualityMask,
+                      BigDecimal minPercentage, BigDecimal maxPercentage) {
+            this.county = county;
+            this.subCounty = subCounty;
+            this.ward = ward;
+            this.statusMask = statusMask;
+            this.qualityMask = qualityMask;
+            this.minPercentage = minPercentage;
+            this.maxPercentage = maxPercentage;
+        }
+    }
+    
+    private static final class CompiledFilter {
+        private final int county;
+        private final int subCounty;
+        private final int ward;
+        private final int statusMask;
+        private final int qualityMask;
+        private final int minPercentage;
+        private final int maxPercentage;
+        
+        private CompiledFilter(int county, int subCounty, int ward, int statusMask, int qualityMask,
+                               int minPercentage, int maxPercentage) {
+            this.county = county;
+            this.subCounty = subCounty;
+            this.ward = ward;
+            this.statusMask = statusMask;
+            this.qualityMask = qualityMask;
+            this.minPercentage = minPercentage;
+            this.maxPercentage = maxPercentage;
+        }
+        
+        private boolean matches(Chunk chunk, int i) {
+            return (county < 0 || chunk.counties[i] == county)
+                    && (subCounty < 0 || chunk.subCounties[i] == subCounty)
+                    && (ward < 0 || chunk.wards[i] == ward)
+                    && (statusMask == 0 || (statusMask & (1 << chunk.statuses[i])) != 0)
+                    && (qualityMask == 0 || (chunk.qualities[i] != NO_QUALITY
+                            && (qualityMask & (1 << chunk.qualities[i])) != 0))
+                    && chunk.percentages[i] >= minPercentage
+                    && chunk.percentages[i] <= maxPercentage;
+        }
+    }
+    
+    /**
+     * One reservoir as stored in the columns
+     */
+    private static final class Row {
+        private final long id;
+        private final long revision;
+        private final boolean active;
+        private final double latitude;
+        private final double longitude;
+        private final long capacity;
+        private final long level;
+        private final int percentage;
+        private final byte status;
+        private final byte quality;
+        private final int county;
+        private final int subCounty;
+        private final int ward;
+        
+        private Row(long id, long revision, boolean active, double latitude, double longitude, long capacity,
+                    long level, int percentage, byte status, byte quality, int county, int subCounty, int ward) {
+            this.id = id;
+            this.revision = revision;
+            this.active = active;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.capacity = capacity;
+            this.level = level;
+            this.percentage = percentage;
+            this.status = status;
+            this.quality = quality;
+            this.county = county;
+            this.subCounty = subCounty;
+            this.ward = ward;
+        }
+    }
+    
+    /**
+     * Immutable column snapshot, rows sorted by id. Row i lives at i & CHUNK_MASK of chunk
+     * i >> CHUNK_SHIFT; the ids never change in place and stay in one array for binary search.
+     */
+    private static final class Columns {
+        private final int size;
+        private final long[] ids;
+        private final Chunk[] chunks;
+        
+        private Columns(int size, long[] ids, Chunk[] chunks) {
+            this.size = size;
+            this.ids = ids;
+            this.chunks = chunks;
+        }
+        
+        private static Columns build(Row[] rows) {
+            Arrays.sort(rows, (a, b) -> Long.compare(a.id, b.id));
+            int size = rows.length;
+            long[] ids = new long[size];
+            Chunk[] chunks = new Chunk[(size + CHUNK_MASK) >> CHUNK_SHIFT];
+            for (int c = 0; c < chunks.length; c++) {
+                chunks[c] = new Chunk(Math.min(CHUNK_SIZE, size - (c << CHUNK_SHIFT)));
+            }
+            for (int i = 0; i < size; i++) {
+                ids[i] = rows[i].id;
+                chunks[i >> CHUNK_SHIFT].set(i & CHUNK_MASK, rows[i]);
+            }
+            return new Columns(size, ids, chunks);
+        }
+        
+        /**
+         * Copy of this snapshot with existing rows replaced, sharing the chunks no row falls into
+         */
+        private Columns withRows(Row[] rows, int count) {
+            Chunk[] copy = chunks.clone();
+            boolean[] copied = new boolean[chunks.length];
+            for (int i = 0; i < count; i++) {
+                int index = Arrays.binarySearch(ids, 0, size, rows[i].id);
+                int c = index >> CHUNK_SHIFT;
+                if (!copied[c]) {
+                    copy[c] = chunks[c].copy();
+                    copied[c] = true;
+                }
+                copy[c].set(index & CHUNK_MASK, rows[i]);
+            }
+            return new Columns(size, ids, copy);
+        }
+    }
+    
+    /**
+     * Columns of up to {@link #CHUNK_SIZE} consecutive rows
+     */
+    private static final class Chunk {
+        private final int length;
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final long[] capacities;
+        private final long[] levels;
+        private final int[] percentages;
+        private final byte[] statuses;
+        private final byte[] qualities;
+        private final int[] counties;
+        private final int[] subCounties;
+        private final int[] wards;
+        
+        private Chunk(int length) {
+            this(length, new double[length], new double[length], new long[length], new long[length],
+                    new int[length], new byte[length], new byte[length], new int[length], new int[length],
+                    new int[length]);
+        }
+        
+        private Chunk(int length, double[] latitudes, double[] longitudes, long[] capacities, long[] levels,
+                      int[] percentages, byte[] statuses, byte[] qualities, int[] counties, int[] subCounties,
+                      int[] wards) {
+            this.length = length;
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.capacities = capacities;
+            this.levels = levels;
+            this.percentages = percentages;
+            this.statuses = statuses;
+            this.qualities = qualities;
+            this.counties = counties;
+            this.subCounties = subCounties;
+            this.wards = wards;
+        }
+        
+        private Chunk copy() {
+            return new Chunk(length, latitudes.clone(), longitudes.clone(), capacities.clone(), levels.clone(),
+                    percentages.clone(), statuses.clone(), qualities.clone(), counties.clone(),
+                    subCounties.clone(), wards.clone());
+        }
+        
+        private void set(int i, Row row) {
+            latitudes[i] = row.latitude;
+            longitudes[i] = row.longitude;
+            capacities[i] = row.capacity;
+            levels[i] = row.level;
+            percentages[i] = row.percentage;
+            statuses[i] = row.status;
+            qualities[i] = row.quality;
+            counties[i] = row.county;
+            subCounties[i] = row.subCounty;
+            wards[i] = row.ward;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.waterapp.index;
+
+import com.waterapp.entity.WaterReservoir;
+import java.util.List;
+
+/**
+ * In-memory secondary index over water reservoirs.
+ * Implementations are registered as Spring beans and kept in sync by {@link ReservoirIndexManager}.
+ */
+public interface ReservoirIndex {
+    
+    /**
+     * Replace the whole index content
+     * @param reservoirs every reservoir currently stored in the database
+     */
+    void rebuild(List<WaterReservoir> reservoirs);
+    
+    /**
+     * Apply a single reservoir write to the index
+     * @param reservoir reservoir as it was saved
+     */
+    void update(WaterReservoir reservoir);
+}
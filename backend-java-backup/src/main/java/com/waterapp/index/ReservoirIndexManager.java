@@ -0,0 +1,151 @@
+package com.waterapp.index;
+
+import com.waterapp.entity.WaterReservoir;
+import com.waterapp.event.ReservoirChangedEvent;
+import com.waterapp.repository.WaterReservoirRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Loads every {@link ReservoirIndex} once the application is ready (after the sample data
+ * has been written) and forwards committed reservoir writes to them.
+ * Writes committed while a rebuild runs are held back and replayed once every index has been
+ * rebuilt, skipping those the rebuild snapshot already contains, so a rebuild never overwrites
+ * a newer write with its older snapshot.
+ */
+@Component
+public class ReservoirIndexManager {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ReservoirIndexManager.class);
+    
+    @Autowired
+    private WaterReservoirRepository waterReservoirRepository;
+    
+    @Autowired
+    private List<ReservoirIndex> indexes;
+    
+    // one rebuild at a time
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // deliveries hold the read lock; switching between direct and deferred delivery takes the write lock
+    private final ReentrantReadWriteLock deliveryLock = new ReentrantReadWriteLock();
+    private final Queue<WaterReservoir> deferred = new ConcurrentLinkedQueue<>();
+    private volatile boolean rebuilding;
+    private final AtomicLong rebuilds = new AtomicLong();
+    
+    /**
+     * Build all indexes from the database
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildAll() {
+        rebuildLock.lock();
+        try {
+            setRebuilding(true);
+            List<WaterReservoir> reservoirs = List.of();
+            try {
+                reservoirs = waterReservoirRepository.findAll();
+                for (ReservoirIndex index : indexes) {
+                    index.rebuild(reservoirs);
+                }
+            } finally {
+                replayDeferred(reservoirs);
+                rebuilds.incrementAndGet();
+            }
+            logger.info("Built {} reservoir indexes over {} reservoirs", indexes.size(), reservoirs.size());
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+    
+    /**
+     * Apply a committed reservoir write to all indexes
+     * @param event change event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservoirChanged(ReservoirChangedEvent event) {
+        deliveryLock.readLock().lock();
+        try {
+            if (rebuilding) {
+                deferred.add(event.getReservoir());
+                return;
+            }
+            apply(event.getReservoir());
+        } finally {
+            deliveryLock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Number of completed rebuilds; data derived from the indexes before a rebuild may be stale
+     * even if no revision changed, e.g. statistics computed before the first build
+     * @return rebuild count
+     */
+    public long getRebuildCount() {
+        return rebuilds.get();
+    }
+    
+    private void setRebuilding(boolean value) {
+        // Waits for deliveries in progress, so each write is either applied before the snapshot or deferred
+        deliveryLock.writeLock().lock();
+        try {
+            rebuilding = value;
+        } finally {
+            deliveryLock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Apply the writes deferred during a rebuild that are newer than the snapshot, then resume
+     * direct delivery; deliveries wait meanwhile so the replay is not overtaken
+     * @param snapshot reservoirs the indexes were rebuilt from
+     */
+    private void replayDeferred(List<WaterReservoir> snapshot) {
+        deliveryLock.writeLock().lock();
+        try {
+            Map<Long, WaterReservoir> latest = new HashMap<>();
+            for (WaterReservoir reservoir : snapshot) {
+                latest.put(reservoir.getId(), reservoir);
+            }
+            Map<Long, WaterReservoir> newer = new HashMap<>();
+            WaterReservoir reservoir;
+            while ((reservoir = deferred.poll()) != null) {
+                WaterReservoir known = latest.get(reservoir.getId());
+                if (known == null || revision(reservoir) > revision(known)) {
+                    latest.put(reservoir.getId(), reservoir);
+                    newer.put(reservoir.getId(), reservoir);
+                }
+            }
+            for (WaterReservoir write : newer.values()) {
+                apply(write);
+            }
+            if (!newer.isEmpty()) {
+                logger.info("Replayed {} reservoir writes committed during the index rebuild", newer.size());
+            }
+            rebuilding = false;
+        } finally {
+            deliveryLock.writeLock().unlock();
+        }
+    }
+    
+    private void apply(WaterReservoir reservoir) {
+        for (ReservoirIndex index : indexes) {
+            index.update(reservoir);
+        }
+    }
+    
+    private static long revision(WaterReservoir reservoir) {
+        return reservoir.getRevision() == null ? 0 : reservoir.getRevision();
+    }
+}
@@ -0,0 +1,186 @@
+package com.waterapp.index;
+
+import com.waterapp.dto.CursorPage;
+import com.waterapp.dto.WaterReservoirDto;
+import com.waterapp.entity.WaterReservoir;
+import org.springframework.stereotype.Component;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Current level and status of every reservoir, kept in memory so they can be read without
+ * touching the database. Reservoir reads take level and status from here through
+ * {@link #overlay(WaterReservoirDto)}; the other columns come from the reservoir cache.
+ * Each reservoir maps to an immutable {@link State}. Updates replace it with compare-and-set and
+ * never take a lock; a state older than the one already stored (lower revision) is discarded, so
+ * committed writes delivered out of order cannot roll a reservoir back. Database writes of one
+ * reservoir still serialize on its row version; the store is updated once they have committed,
+ * or as soon as a write-behind reading is accepted.
+ */
+@Component
+public class ReservoirStateStore implements ReservoirIndex {
+    
+    // reservoir id -> current state
+    private final Map<Long, State> states = new ConcurrentHashMap<>();
+    // compare-and-set attempts lost to a concurrent writer
+    private final LongAdder casRetries = new LongAdder();
+    // states discarded because a newer one was already stored
+    private final LongAdder staleUpdates = new LongAdder();
+    
+    @Override
+    public void rebuild(List<WaterReservoir> reservoirs) {
+        Set<Long> ids = new HashSet<>();
+        for (WaterReservoir reservoir : reservoirs) {
+            if (reservoir.getId() != null) {
+                apply(State.of(reservoir));
+                ids.add(reservoir.getId());
+            }
+        }
+        states.keySet().retainAll(ids);
+    }
+    
+    @Override
+    public void update(WaterReservoir reservoir) {
+        if (reservoir.getId() != null) {
+            apply(State.of(reservoir));
+        }
+    }
+    
+    /**
+     * Store a state unless a newer one is already stored
+     * @param next new state
+     * @return true if the state was stored
+     */
+    public boolean apply(State next) {
+        while (true) {
+            State current = states.get(next.id);
+            if (current == null) {
+                if (states.putIfAbsent(next.id, next) == null) {
+                    return true;
+                }
+            } else if (current.revision > next.revision) {
+                staleUpdates.increment();
+                return false;
+            } else if (states.replace(next.id, current, next)) {
+                return true;
+            }
+            casRetries.increment();
+        }
+    }
+    
+    /**
+     * Current state of a reservoir
+     * @param id reservoir ID
+     * @return state, null if the reservoir is unknown
+     */
+    public State get(Long id) {
+        return states.get(id);
+    }
+    
+    /**
+     * Replace the level and status of a reservoir with the stored ones when those are newer
+     * @param reservoir reservoir DTO, may be null
+     * @return reservoir with its current level and status
+     */
+    public WaterReservoirDto overlay(WaterReservoirDto reservoir) {
+        if (reservoir == null) {
+            return null;
+        }
+        State state = states.get(reservoir.getId());
+        long revision = reservoir.getRevision() == null ? 0 : reservoir.getRevision();
+        if (state == null || state.revision <= revision) {
+            return reservoir;
+        }
+        return new WaterReservoirDto(reservoir.getId(), reservoir.getName(), reservoir.getCounty(),
+                reservoir.getSubCounty(), reservoir.getWard(), reservoir.getSpecificLocation(),
+                reservoir.getLatitude(), reservoir.getLongitude(), reservoir.getTotalCapacityM3(),
+                state.currentLevelM3, state.currentLevelPercentage, reservoir.getWaterQuality(),
+                state.lastUpdated, reservoir.getEstimatedRunoutDate(), reservoir.getDepletionRateM3PerDay(),
+                reservoir.getIsActive(), reservoir.getDescription(), reservoir.getManagedBy(),
+                reservoir.getContactPhone(), reservoir.getContactEmail(), state.status, state.revision);
+    }
+    
+    /**
+     * Apply {@link #overlay(WaterReservoirDto)} to a page of reservoirs
+     * @param page page
+     * @return page with current levels and statuses
+     */
+    public CursorPage<WaterReservoirDto> overlay(CursorPage<WaterReservoirDto> page) {
+        List<WaterReservoirDto> items = new ArrayList<>(page.getItems().size());
+        for (WaterReservoirDto reservoir : page.getItems()) {
+            items.add(overlay(reservoir));
+        }
+        return new CursorPage<>(items, page.getNextCursor());
+    }
+    
+    public long getCasRetries() {
+        return casRetries.sum();
+    }
+    
+    public long getStaleUpdates() {
+        return staleUpdates.sum();
+    }
+    
+    /**
+     * Level, status and revision of a reservoir at one point in time
+     */
+    public static final class State {
+        private final Long id;
+        private final BigDecimal currentLevelM3;
+        private final BigDecimal currentLevelPercentage;
+        private final String status;
+        private final LocalDateTime lastUpdated;
+        private final long revision;
+        
+        private State(Long id, BigDecimal currentLevelM3, BigDecimal currentLevelPercentage, String status,
+                      LocalDateTime lastUpdated, Long revision) {
+            this.id = id;
+            this.currentLevelM3 = currentLevelM3;
+            this.currentLevelPercentage = currentLevelPercentage;
+            this.status = status;
+            this.lastUpdated = lastUpdated;
+            this.revision = revision == null ? 0 : revision;
+        }
+        
+        public static State of(WaterReservoir reservoir) {
+            return new State(reservoir.getId(), reservoir.getCurrentLevelM3(), reservoir.getCurrentLevelPercentage(),
+                    reservoir.getStatus(), reservoir.getLastUpdated(), reservoir.getRevision());
+        }
+        
+        public static State of(WaterReservoirDto reservoir) {
+            return new State(reservoir.getId(), reservoir.getCurrentLevelM3(), reservoir.getCurrentLevelPercentage(),
+                    reservoir.getStatus(), reservoir.getLastUpdated(), reservoir.getRevision());
+        }
+        
+        public Long getId() {
+            return id;
+        }
+        
+        public BigDecimal getCurrentLevelM3() {
+            return currentLevelM3;
+        }
+        
+        public BigDecimal getCurrentLevelPercentage() {
+            return currentLevelPercentage;
+        }
+        
+        public String getStatus() {
+            return status;
+        }
+        
+        public LocalDateTime getLastUpdated() {
+            return lastUpdated;
+        }
+        
+        public long getRevision() {
+            return revision;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.waterapp.index;
+
+import com.waterapp.entity.WaterReservoir;
+import org.springframework.stereotype.Component;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory copy of every reservoir's revision and the time that revision was committed, so
+ * conditional requests can be answered without touching the database.
+ * The dataset version counts the committed changes and rebuilds seen since startup. A sum of
+ * revisions would not do: deactivating some reservoirs and updating others can give the same sum
+ * for different content. The counter restarts with every boot, so it is qualified by a boot
+ * epoch; a client's ETag from before a restart never matches afterwards.
+ * The modification time is taken from the server clock when a new revision arrives, never from
+ * the reading's client-supplied timestamp; after a restart it is the time of the first rebuild.
+ */
+@Component
+public class ReservoirVersionIndex implements ReservoirIndex {
+    
+    // reservoir id -> version
+    private final Map<Long, Version> versions = new ConcurrentHashMap<>();
+    
+    private volatile Version datasetVersion = new Version(0, 0);
+    
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    
+    // Keeps the dataset version consistent with the per-reservoir versions
+    private final ReentrantLock writeLock = new ReentrantLock();
+    
+    @Override
+    public void rebuild(List<WaterReservoir> reservoirs) {
+        writeLock.lock();
+        try {
+            Map<Long, Version> rebuilt = new HashMap<>();
+            long lastModified = 0;
+            long now = System.currentTimeMillis();
+            for (WaterReservoir reservoir : reservoirs) {
+                Version version = Version.of(reservoir, now);
+                if (version != null) {
+                    // A rebuild never lowers a revision, and keeps the commit time of a revision it
+                    // already knew
+                    Version previous = versions.get(reservoir.getId());
+                    if (previous != null && previous.revision >= version.revision) {
+                        version = previous;
+                    }
+                    rebuilt.put(reservoir.getId(), version);
+                    lastModified = Math.max(lastModified, version.lastModified);
+                }
+            }
+            versions.keySet().retainAll(rebuilt.keySet());
+            versions.putAll(rebuilt);
+            // A rebuild may change content without a new revision (reclassified statuses)
+            Version dataset = datasetVersion;
+            datasetVersion = new Version(dataset.revision + 1, Math.max(dataset.lastModified, lastModified));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    @Override
+    public void update(WaterReservoir reservoir) {
+        writeLock.lock();
+        try {
+            Version version = Version.of(reservoir, System.currentTimeMillis());
+            if (version == null) {
+                return;
+            }
+            Version previous = versions.get(reservoir.getId());
+            if (previous != null && previous.revision >= version.revision) {
+                // Committed writes can be delivered out of order, or twice; keep the newer one
+                return;
+            }
+            versions.put(reservoir.getId(), version);
+            Version dataset = datasetVersion;
+            datasetVersion = new Version(dataset.revision + 1, Math.max(dataset.lastModified, version.lastModified));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    /**
+     * Current version of a reservoir
+     * @param id reservoir ID
+     * @return version, null if the reservoir is unknown
+     */
+    public Version get(Long id) {
+        return versions.get(id);
+    }
+    
+    /**
+     * Current version of the whole dataset
+     * @return dataset version, its revision counts changes since startup
+     */
+    public Version getDatasetVersion() {
+        return datasetVersion;
+    }
+    
+    /**
+     * Identifies this boot, to qualify dataset revisions that restart from zero
+     * @return boot epoch
+     */
+    public String getEpoch() {
+        return epoch;
+    }
+    
+    /**
+     * Revision and last modification time in epoch milliseconds
+     */
+    public static final class Version {
+        private final long revision;
+        private final long lastModified;
+        
+        private Version(long revision, long lastModified) {
+            this.revision = revision;
+            this.lastModified = lastModified;
+        }
+        
+        private static Version of(WaterReservoir reservoir, long committedAt) {
+            if (reservoir.getId() == null) {
+                return null;
+            }
+            long revision = reservoir.getRevision() == null ? 0 : reservoir.getRevision();
+            return new Version(revision, committedAt);
+        }
+        
+        public long getRevision() {
+            return revision;
+        }
+        
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+}
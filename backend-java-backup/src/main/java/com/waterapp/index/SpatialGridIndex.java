@@ -0,0 +1,227 @@
+package com.waterapp.index;
+
+import com.waterapp.entity.WaterReservoir;
+import com.waterapp.util.GeoUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Uniform latitude/longitude grid over reservoir coordinates.
+ * A radius query only visits the cells overlapping the circle's bounding box and runs the
+ * exact haversine check on the reservoirs found there, so its cost depends on local density
+ * rather than on the total number of reservoirs. A rebuild fills a new grid and swaps it in,
+ * so queries running meanwhile see the old grid rather than a partly filled one.
+ */
+@Component
+public class SpatialGridIndex implements ReservoirIndex {
+    
+    private final double cellSizeDegrees;
+    
+    private volatile Grid grid = new Grid();
+    
+    private final ReentrantLock writeLock = new ReentrantLock();
+    
+    public SpatialGridIndex(@Value("${reservoir.index.spatial.cell-size-degrees:0.1}") double cellSizeDegrees) {
+        if (cellSizeDegrees <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive");
+        }
+        this.cellSizeDegrees = cellSizeDegrees;
+    }
+    
+    @Override
+    public void rebuild(List<WaterReservoir> reservoirs) {
+        writeLock.lock();
+        try {
+            // Fill a new grid off to the side so queries keep using the current one until the swap
+            Grid current = grid;
+            Grid rebuilt = new Grid();
+            for (WaterReservoir reservoir : reservoirs) {
+                GridPoint point = toPoint(reservoir);
+                GridPoint newer = reservoir.getId() == null ? null : current.points.get(reservoir.getId());
+                if (newer != null && newer.revision > revision(reservoir)) {
+                    // Written after the snapshot was read
+                    point = newer;
+                }
+                if (point != null) {
+                    rebuilt.add(point);
+                }
+            }
+            grid = rebuilt;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    @Override
+    public void update(WaterReservoir reservoir) {
+        writeLock.lock();
+        try {
+            Long id = reservoir.getId();
+            if (id == null) {
+                return;
+            }
+            Grid current = grid;
+            GridPoint previous = current.points.get(id);
+            if (previous != null) {
+                if (previous.revision > revision(reservoir)) {
+                    // Committed writes can be delivered out of order; keep the newer one
+                    return;
+                }
+                current.remove(previous);
+            }
+            GridPoint point = toPoint(reservoir);
+            if (point != null) {
+                current.add(point);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    /**
+     * Find reservoirs within a radius of a point
+     * @param latitude center latitude
+     * @param longitude center longitude
+     * @param radiusKm radius in kilometers
+     * @return matches sorted by ascending distance
+     */
+    public List<DistanceMatch> findWithinRadius(double latitude, double longitude, double radiusKm) {
+        return findWithinRadius(latitude, longitude, radiusKm, null, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Find one page of the reservoirs within a radius of a point. Only the nearest limit matches
+     * after the cursor are kept while the cells are visited, so a page costs the same memory
+     * however many reservoirs lie in the circle.
+     * @param latitude center latitude
+     * @param longitude center longitude
+     * @param radiusKm radius in kilometers
+     * @param after last match of the previous page, null for the first page
+     * @param limit maximum number of matches to return
+     * @return matches sorted by ascending distance
+     */
+    public List<DistanceMatch> findWithinRadius(double latitude, double longitude, double radiusKm,
+                                                DistanceMatch after, int limit) {
+        if (radiusKm < 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+        double latDelta = radiusKm / GeoUtil.KM_PER_DEGREE;
+        // Use the latitude furthest from the equator so the box covers the whole circle
+        double lonDelta = GeoUtil.longitudeDelta(Math.min(90.0, Math.abs(latitude) + latDelta), radiusKm);
+        
+        int minRow = cellRow(latitude - latDelta);
+        int maxRow = cellRow(latitude + latDelta);
+        int minCol = cellColumn(longitude - lonDelta);
+        int maxCol = cellColumn(longitude + lonDelta);
+        
+        Map<Long, Map<Long, GridPoint>> cells = grid.cells;
+        TopN<DistanceMatch> matches = new TopN<>(after, limit);
+        long boxCells = (long) (maxRow - minRow + 1) * (maxCol - minCol + 1);
+        if (boxCells > cells.size()) {
+            // Large radius: walking the occupied cells is cheaper than walking the box
+            for (Map<Long, GridPoint> cell : cells.values()) {
+                collect(cell, latitude, longitude, radiusKm, matches);
+            }
+        } else {
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int col = minCol; col <= maxCol; col++) {
+                    Map<Long, GridPoint> cell = cells.get(cellKey(row, col));
+                    if (cell != null) {
+                        collect(cell, latitude, longitude, radiusKm, matches);
+                    }
+                }
+            }
+        }
+        return matches.toList();
+    }
+    
+    /**
+     * Number of indexed reservoirs
+     * @return indexed reservoir count
+     */
+    public int size() {
+        return grid.points.size();
+    }
+    
+    private void collect(Map<Long, GridPoint> cell, double latitude, double longitude,
+                         double radiusKm, TopN<DistanceMatch> matches) {
+        for (GridPoint point : cell.values()) {
+            double distance = GeoUtil.haversineKm(latitude, longitude, point.latitude, point.longitude);
+            if (distance <= radiusKm) {
+                matches.offer(new DistanceMatch(point.id, distance));
+            }
+        }
+    }
+    
+    private GridPoint toPoint(WaterReservoir reservoir) {
+        if (reservoir.getId() == null || reservoir.getLatitude() == null || reservoir.getLongitude() == null) {
+            return null;
+        }
+        double lat = reservoir.getLatitude().doubleValue();
+        double lon = reservoir.getLongitude().doubleValue();
+        return new GridPoint(reservoir.getId(), lat, lon, revision(reservoir), cellKey(cellRow(lat), cellColumn(lon)));
+    }
+    
+    private static long revision(WaterReservoir reservoir) {
+        return reservoir.getRevision() == null ? 0 : reservoir.getRevision();
+    }
+    
+    private int cellRow(double latitude) {
+        return (int) Math.floor(latitude / cellSizeDegrees);
+    }
+    
+    private int cellColumn(double longitude) {
+        return (int) Math.floor(longitude / cellSizeDegrees);
+    }
+    
+    private static long cellKey(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+    
+    /**
+     * Cells and points of the grid, replaced as a whole by a rebuild
+     */
+    private static final class Grid {
+        // cell key -> (reservoir id -> point)
+        private final Map<Long, Map<Long, GridPoint>> cells = new ConcurrentHashMap<>();
+        // reservoir id -> point, used to move a reservoir between cells
+        private final Map<Long, GridPoint> points = new ConcurrentHashMap<>();
+        
+        private void add(GridPoint point) {
+            points.put(point.id, point);
+            cells.computeIfAbsent(point.cellKey, key -> new ConcurrentHashMap<>()).put(point.id, point);
+        }
+        
+        private void remove(GridPoint point) {
+            points.remove(point.id);
+            Map<Long, GridPoint> cell = cells.get(point.cellKey);
+            if (cell != null) {
+                cell.remove(point.id);
+                if (cell.isEmpty()) {
+                    cells.remove(point.cellKey);
+                }
+            }
+        }
+    }
+    
+    private static final class GridPoint {
+        private final long id;
+        private final double latitude;
+        private final double longitude;
+        private final long revision;
+        private final long cellKey;
+        
+        private GridPoint(long id, double latitude, double longitude, long revision, long cellKey) {
+            this.id = id;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.revision = revision;
+            this.cellKey = cellKey;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.waterapp.index;
+
+import com.waterapp.entity.ReservoirStatusThresholds;
+import com.waterapp.entity.WaterReservoir;
+import org.springframework.stereotype.Component;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Counts active reservoirs per status so statistics never have to touch the table.
+ * The last seen state and revision of every reservoir is kept to turn each write into a status
+ * transition, which moves one unit between two counters. A transition swaps the reservoir's
+ * state with a compare-and-set and then adjusts the two counters, so writers never lock and
+ * concurrent writes of one reservoir apply each transition exactly once; reads can briefly see a
+ * transition half applied. A rebuild counts into new counters and swaps them in, so reads never
+ * see a reset. {@link #reconcile(Map, Snapshot)} periodically corrects drift against the database.
+ */
+@Component
+public class StatusCounterIndex implements ReservoirIndex {
+    
+    private static final String[] STATUSES = {
+        ReservoirStatusThresholds.GOOD,
+        ReservoirStatusThresholds.WARNING,
+        ReservoirStatusThresholds.CRITICAL,
+        ReservoirStatusThresholds.UNKNOWN
+    };
+    private static final int INACTIVE = -1;
+    
+    private volatile Counters counters = new Counters();
+    
+    // Serializes rebuilds; transitions do not take it
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // Bumped when a rebuild or reconciliation moves the counters without a write
+    private final AtomicLong epoch = new AtomicLong();
+    
+    @Override
+    public void rebuild(List<WaterReservoir> reservoirs) {
+        rebuildLock.lock();
+        try {
+            Counters current = counters;
+            Counters rebuilt = new Counters();
+            for (WaterReservoir reservoir : reservoirs) {
+                if (reservoir.getId() != null) {
+                    rebuilt.apply(reservoir.getId(), state(reservoir));
+                }
+            }
+            counters = rebuilt;
+            epoch.incrementAndGet();
+            // Carry over writes applied to the old counters meanwhile; older revisions are skipped.
+            // A write landing on the old counters after this pass sees the swap and reapplies itself.
+            for (Map.Entry<Long, State> entry : current.states.entrySet()) {
+                rebuilt.apply(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+    
+    @Override
+    public void update(WaterReservoir reservoir) {
+        if (reservoir.getId() == null) {
+            return;
+        }
+        State state = state(reservoir);
+        Counters target = counters;
+        target.apply(reservoir.getId(), state);
+        Counters current = counters;
+        if (current != target) {
+            // A rebuild swapped the counters while this write was applied to the old ones
+            current.apply(reservoir.getId(), state);
+        }
+    }
+    
+    /**
+     * Take a snapshot of the counters to reconcile against a database count
+     * @return counts and transition sequence at this moment
+     */
+    public Snapshot snapshot() {
+        Counters current = counters;
+        long sequence = current.transitions.sum();
+        long[] counts = new long[STATUSES.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = current.counts[i].sum();
+        }
+        return new Snapshot(current, sequence, counts);
+    }
+    
+    /**
+     * Move the counters by the difference between a database count and a snapshot taken before
+     * the count was queried, keeping every transition applied since. Nothing is changed when a
+     * transition or rebuild happened since the snapshot, since the count may or may not include it;
+     * the next reconciliation retries.
+     * @param activeCountsByStatus number of active reservoirs per status
+     * @param before snapshot taken just before the count was queried
+     * @return whether the counters were reconciled
+     */
+    public boolean reconcile(Map<String, Long> activeCountsByStatus, Snapshot before) {
+        Counters current = counters;
+        if (current != before.counters || current.transitions.sum() != before.sequence) {
+            return false;
+        }
+        boolean changed = false;
+        for (int i = 0; i < STATUSES.length; i++) {
+            Long count = activeCountsByStatus.get(STATUSES[i]);
+            long drift = (count == null ? 0 : count) - before.counts[i];
+            if (drift != 0) {
+                current.counts[i].add(drift);
+                changed = true;
+            }
+        }
+        if (changed) {
+            epoch.incrementAndGet();
+        }
+        return true;
+    }
+    
+    /**
+     * Number of times the counters were moved by a rebuild or reconciliation rather than a write
+     * @return epoch, only grows
+     */
+    public long getEpoch() {
+        return epoch.get();
+    }
+    
+    /**
+     * Number of active reservoirs with a status
+     * @param status reservoir status
+     * @return active reservoir count
+     */
+    public long count(String status) {
+        return counters.counts[statusCode(status)].sum();
+    }
+    
+    /**
+     * Number of active reservoirs
+     * @return active reservoir count
+     */
+    public long total() {
+        long total = 0;
+        for (LongAdder counter : counters.counts) {
+            total += counter.sum();
+        }
+        return total;
+    }
+    
+    private static State state(WaterReservoir reservoir) {
+        int code = Boolean.TRUE.equals(reservoir.getIsActive()) ? statusCode(reservoir.getStatus()) : INACTIVE;
+        return new State(code, reservoir.getRevision() == null ? 0 : reservoir.getRevision());
+    }
+    
+    private static int statusCode(String status) {
+        for (int i = 0; i < STATUSES.length - 1; i++) {
+            if (STATUSES[i].equals(status)) {
+                return i;
+            }
+        }
+        return STATUSES.length - 1;
+    }
+    
+    /**
+     * Per-reservoir states and the counters they add up to, replaced as a whole by a rebuild
+     */
+    private static final class Counters {
+        // reservoir id -> last applied state
+        private final Map<Long, State> states = new ConcurrentHashMap<>();
+        private final LongAdder[] counts = new LongAdder[STATUSES.length];
+        private final LongAdder transitions = new LongAdder();
+        
+        private Counters() {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+        
+        private void apply(long id, State state) {
+            while (true) {
+                State previous = states.get(id);
+                if (previous == null) {
+                    if (states.putIfAbsent(id, state) != null) {
+                        continue;
+                    }
+                } else if (previous.revision > state.revision
+                        || (previous.revision == state.revision && previous.code == state.code)) {
+                    // Committed writes can be delivered out of order; keep the newer one
+                    return;
+                } else if (!states.replace(id, previous, state)) {
+                    continue;
+                }
+                if (previous != null && previous.code == state.code) {
+                    return;
+                }
+                if (previous != null && previous.code != INACTIVE) {
+                    counts[previous.code].decrement();
+                }
+                if (state.code != INACTIVE) {
+                    counts[state.code].increment();
+                }
+                transitions.increment();
+                return;
+            }
+        }
+    }
+    
+    private static final class State {
+        private final int code;
+        private final long revision;
+        
+        private State(int code, long revision) {
+            this.code = code;
+            this.revision = revision;
+        }
+    }
+    
+    /**
+     * Counter values at a point in time, see {@link #reconcile(Map, Snapshot)}
+     */
+    public static final class Snapshot {
+        private final Counters counters;
+        private final long sequence;
+        private final long[] counts;
+        
+        private Snapshot(Counters counters, long sequence, long[] counts) {
+            this.counters = counters;
+            this.sequence = sequence;
+            this.counts = counts;
+        }
+    }
+}
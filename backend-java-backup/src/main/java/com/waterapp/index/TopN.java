@@ -0,0 +1,49 @@
+package com.waterapp.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the first n items in sort order that come after a cursor, so a paged query holds one
+ * page of matches however many it visits. The kept items sit in a max-heap whose top is the
+ * item a better one evicts.
+ */
+final class TopN<T extends Comparable<T>> {
+    
+    private final T after;
+    private final int limit;
+    private final PriorityQueue<T> heap;
+    
+    /**
+     * @param after items at or before this one are skipped, null to keep from the first
+     * @param limit maximum number of items to keep
+     */
+    TopN(T after, int limit) {
+        this.after = after;
+        this.limit = limit;
+        this.heap = new PriorityQueue<>(Math.min(limit, 64) + 1, Collections.reverseOrder());
+    }
+    
+    void offer(T item) {
+        if (after != null && item.compareTo(after) <= 0) {
+            return;
+        }
+        if (heap.size() < limit) {
+            heap.add(item);
+        } else if (item.compareTo(heap.peek()) < 0) {
+            heap.poll();
+            heap.add(item);
+        }
+    }
+    
+    /**
+     * @return kept items in sort order
+     */
+    List<T> toList() {
+        List<T> items = new ArrayList<>(heap);
+        Collections.sort(items);
+        return items;
+    }
+}
@@ -0,0 +1,355 @@
+package com.waterapp.index;
+
+import com.waterapp.entity.WaterReservoir;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trigram inverted index over the reservoir name, county, sub-county and ward.
+ * Every reservoir version gets an increasing document number, so posting lists are plain sorted
+ * int arrays that only ever grow at the end. A changed reservoir is re-added under a new document
+ * number and its old one is marked deleted; the index compacts itself once deletions pile up.
+ * Substring queries intersect the posting lists of the query's trigrams and verify the few
+ * remaining candidates, queries shorter than three characters fall back to a scan of the
+ * lower-cased text held in memory.
+ */
+@Component
+public class TrigramIndex implements ReservoirIndex {
+    
+    /**
+     * Indexed text fields, in ranking priority order
+     */
+    public enum Field {
+        NAME, COUNTY, SUB_COUNTY, WARD
+    }
+    
+    private static final int FIELD_COUNT = Field.values().length;
+    private static final int COMPACT_MIN_DELETED = 1024;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    // per field: trigram -> sorted document numbers
+    private List<Map<Long, PostingList>> postings;
+    private long[] docReservoirIds;
+    private String[][] docTexts;
+    private BitSet deleted;
+    private int docCount;
+    private int deletedCount;
+    private Map<Long, Integer> docByReservoirId;
+    
+    public TrigramIndex() {
+        clear(16);
+    }
+    
+    @Override
+    public void rebuild(List<WaterReservoir> reservoirs) {
+        lock.writeLock().lock();
+        try {
+            clear(Math.max(16, reservoirs.size()));
+            for (WaterReservoir reservoir : reservoirs) {
+                if (reservoir.getId() != null) {
+                    addDocument(reservoir.getId(), texts(reservoir));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void update(WaterReservoir reservoir) {
+        if (reservoir.getId() == null) {
+            return;
+        }
+        String[] texts = texts(reservoir);
+        lock.writeLock().lock();
+        try {
+            Integer existing = docByReservoirId.get(reservoir.getId());
+            if (existing != null) {
+                if (Arrays.equals(docTexts[existing], texts)) {
+                    // Level updates do not touch the indexed text
+                    return;
+                }
+                deleted.set(existing);
+                deletedCount++;
+            }
+            addDocument(reservoir.getId(), texts);
+            if (deletedCount >= COMPACT_MIN_DELETED && deletedCount * 4 >= docCount) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Find reservoirs whose fields contain a term, best matches first.
+     * Exact field matches rank above prefix matches, then word-start and plain substring
+     * matches; within a match type name matches rank above county, sub-county and ward matches.
+     * Only the best limit hits after the cursor are kept while scoring, so a page holds one page
+     * of hits however many documents match.
+     * @param term search term, case-insensitive
+     * @param fields fields to search
+     * @param after last hit of the previous page, null for the first page
+     * @param limit maximum number of hits to return
+     * @return matching hits in rank order
+     */
+    public List<SearchHit> search(String term, Set<Field> fields, SearchHit after, int limit) {
+        String query = term.trim().toLowerCase(Locale.ROOT);
+        if (query.isEmpty() || fields.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        TopN<SearchHit> hits = new TopN<>(after, limit);
+        lock.readLock().lock();
+        try {
+            if (query.length() < 3) {
+                for (int doc = 0; doc < docCount; doc++) {
+                    if (!deleted.get(doc)) {
+                        score(doc, query, fields, hits);
+                    }
+                }
+            } else {
+                BitSet seen = new BitSet();
+                long[] trigrams = trigrams(query);
+                for (Field field : fields) {
+                    int[] candidates = intersect(postings.get(field.ordinal()), trigrams);
+                    for (int doc : candidates) {
+                        if (!deleted.get(doc) && !seen.get(doc)) {
+                            seen.set(doc);
+                            score(doc, query, fields, hits);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return hits.toList();
+    }
+    
+    private void score(int doc, String query, Set<Field> fields, TopN<SearchHit> hits) {
+        int best = 0;
+        int bestLength = Integer.MAX_VALUE;
+        for (Field field : fields) {
+            String text = docTexts[doc][field.ordinal()];
+            if (text == null) {
+                continue;
+            }
+            int position = text.indexOf(query);
+            if (position < 0) {
+                continue;
+            }
+            int matchType;
+            if (text.length() == query.length()) {
+                matchType = 4;
+            } else if (position == 0) {
+                matchType = 3;
+            } else if (isWordStart(text, position) || isWordStart(text, text.indexOf(" " + query) + 1)) {
+                matchType = 2;
+            } else {
+                matchType = 1;
+            }
+            int score = matchType * FIELD_COUNT + (FIELD_COUNT - field.ordinal());
+            if (score > best || (score == best && text.length() < bestLength)) {
+                best = score;
+                bestLength = text.length();
+            }
+        }
+        if (best > 0) {
+            hits.offer(new SearchHit(docReservoirIds[doc], best, bestLength));
+        }
+    }
+    
+    private static boolean isWordStart(String text, int position) {
+        return position > 0 && !Character.isLetterOrDigit(text.charAt(position - 1));
+    }
+    
+    private int[] intersect(Map<Long, PostingList> fieldPostings, long[] trigrams) {
+        PostingList[] lists = new PostingList[trigrams.length];
+        for (int i = 0; i < trigrams.length; i++) {
+            lists[i] = fieldPostings.get(trigrams[i]);
+            if (lists[i] == null) {
+                return new int[0];
+            }
+        }
+        // Start from the rarest trigram so the working set only shrinks
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+        int[] result = Arrays.copyOf(lists[0].docs, lists[0].size);
+        int resultSize = result.length;
+        for (int i = 1; i < lists.length && resultSize > 0; i++) {
+            resultSize = intersectInto(result, resultSize, lists[i]);
+        }
+        return Arrays.copyOf(result, resultSize);
+    }
+    
+    private static int intersectInto(int[] result, int resultSize, PostingList list) {
+        int size = 0;
+        int j = 0;
+        for (int i = 0; i < resultSize && j < list.size; i++) {
+            int doc = result[i];
+            j = list.seek(doc, j);
+            if (j < list.size && list.docs[j] == doc) {
+                result[size++] = doc;
+            }
+        }
+        return size;
+    }
+    
+    private void addDocument(long reservoirId, String[] texts) {
+        int doc = docCount++;
+        if (doc == docReservoirIds.length) {
+            int capacity = docReservoirIds.length * 2;
+            docReservoirIds = Arrays.copyOf(docReservoirIds, capacity);
+            docTexts = Arrays.copyOf(docTexts, capacity);
+        }
+        docReservoirIds[doc] = reservoirId;
+        docTexts[doc] = texts;
+        docByReservoirId.put(reservoirId, doc);
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            if (texts[field] == null) {
+                continue;
+            }
+            Map<Long, PostingList> fieldPostings = postings.get(field);
+            for (long trigram : trigrams(texts[field])) {
+                fieldPostings.computeIfAbsent(trigram, key -> new PostingList()).add(doc);
+            }
+        }
+    }
+    
+    private void compact() {
+        long[] ids = docReservoirIds;
+        String[][] texts = docTexts;
+        BitSet dead = deleted;
+        int count = docCount;
+        clear(Math.max(16, count - deletedCount));
+        for (int doc = 0; doc < count; doc++) {
+            if (!dead.get(doc)) {
+                addDocument(ids[doc], texts[doc]);
+            }
+        }
+    }
+    
+    private void clear(int capacity) {
+        postings = new ArrayList<>(FIELD_COUNT);
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            postings.add(new HashMap<>());
+        }
+        docReservoirIds = new long[capacity];
+        docTexts = new String[capacity][];
+        deleted = new BitSet();
+        docCount = 0;
+        deletedCount = 0;
+        docByReservoirId = new HashMap<>(capacity * 2);
+    }
+    
+    private static String[] texts(WaterReservoir reservoir) {
+        return new String[] {
+            normalize(reservoir.getName()),
+            normalize(reservoir.getCounty()),
+            normalize(reservoir.getSubCounty()),
+            normalize(reservoir.getWard())
+        };
+    }
+    
+    private static String normalize(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+    
+    private static long[] trigrams(String text) {
+        if (text.length() < 3) {
+            return new long[0];
+        }
+        long[] result = new long[text.length() - 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        }
+        Arrays.sort(result);
+        int distinct = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (i == 0 || result[i] != result[i - 1]) {
+                result[distinct++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, distinct);
+    }
+    
+    /**
+     * Growable sorted int array of document numbers
+     */
+    private static final class PostingList {
+        private int[] docs = new int[4];
+        private int size;
+        
+        private void add(int doc) {
+            if (size > 0 && docs[size - 1] == doc) {
+                return;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+        
+        /**
+         * Galloping search for the first position at or after from holding a value >= doc
+         */
+        private int seek(int doc, int from) {
+            int step = 1;
+            int hi = from;
+            while (hi < size && docs[hi] < doc) {
+                from = hi + 1;
+                hi += step;
+                step <<= 1;
+            }
+            int index = Arrays.binarySearch(docs, from, Math.min(hi + 1, size), doc);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+    
+    /**
+     * Ranked search result; its sort key doubles as the pagination cursor
+     */
+    public static final class SearchHit implements Comparable<SearchHit> {
+        private final long reservoirId;
+        private final int score;
+        private final int length;
+        
+        public SearchHit(long reservoirId, int score, int length) {
+            this.reservoirId = reservoirId;
+            this.score = score;
+            this.length = length;
+        }
+        
+        public long getReservoirId() {
+            return reservoirId;
+        }
+        
+        public int getScore() {
+            return score;
+        }
+        
+        public int getLength() {
+            return length;
+        }
+        
+        @Override
+        public int compareTo(SearchHit other) {
+            if (score != other.score) {
+                return Integer.compare(other.score, score);
+            }
+            if (length != other.length) {
+                return Integer.compare(length, other.length);
+            }
+            return Long.compare(reservoirId, other.reservoirId);
+        }
+    }
+}
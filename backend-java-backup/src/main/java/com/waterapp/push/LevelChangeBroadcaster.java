@@ -0,0 +1,412 @@
+package com.waterapp.push;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.waterapp.dto.LevelChangeDto;
+import com.waterapp.entity.ReservoirStatusThresholds;
+import com.waterapp.entity.WaterReservoir;
+import com.waterapp.index.ReservoirIndex;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pushes level changes to Server-Sent Events subscribers.
+ * Committed reservoir writes reach it as a {@link ReservoirIndex}; the latest change of each
+ * reservoir is kept until the next flush, so rapid updates are coalesced and every change is
+ * serialized once per flush rather than once per subscriber.
+ * Subscribers are indexed by reservoir id, county and status, so a change only visits the
+ * subscribers that asked for it. Each subscriber has its own outbox, also coalesced per
+ * reservoir, drained by a shared sender pool with at most one send in flight per subscriber.
+ * Sends block, so a client that stops reading would hold a sender thread: a send still in
+ * flight after the send timeout disconnects its subscriber, and the pool gets an extra thread
+ * until the stuck one returns, so stalled clients never hold up the others.
+ */
+@Component
+public class LevelChangeBroadcaster implements ReservoirIndex {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LevelChangeBroadcaster.class);
+    
+    // Values of Subscriber.sendStarted besides the System.nanoTime() of the send in flight
+    private static final long IDLE = Long.MIN_VALUE;
+    private static final long STALLED = Long.MAX_VALUE;
+    
+    private static final Set<String> STATUSES = Set.of(ReservoirStatusThresholds.GOOD,
+            ReservoirStatusThresholds.WARNING, ReservoirStatusThresholds.CRITICAL, ReservoirStatusThresholds.UNKNOWN);
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private final long timeoutMs;
+    private final long sendTimeoutNanos;
+    private final ThreadPoolExecutor senders;
+    // Guards the read-modify-write of the sender core size; a lock rather than synchronized so
+    // the scheduled watchdog does not pin its carrier thread when it runs on a virtual thread
+    private final ReentrantLock resizeLock = new ReentrantLock();
+    
+    // reservoir id -> last known status, to report status transitions
+    private final Map<Long, String> statuses = new ConcurrentHashMap<>();
+    // reservoir id -> latest change since the last flush
+    private final Map<Long, LevelChangeDto> changes = new ConcurrentHashMap<>();
+    
+    private final Set<Subscriber> everyone = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Set<Subscriber>> byReservoir = new ConcurrentHashMap<>();
+    private final Map<String, Set<Subscriber>> byCounty = new ConcurrentHashMap<>();
+    private final Map<String, Set<Subscriber>> byStatus = new ConcurrentHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong stalls = new AtomicLong();
+    
+    public LevelChangeBroadcaster(@Value("${reservoir.push.timeout-ms:1800000}") long timeoutMs,
+                                  @Value("${reservoir.push.send-timeout-ms:5000}") long sendTimeoutMs,
+                                  @Value("${reservoir.push.sender-threads:8}") int senderThreads) {
+        this.timeoutMs = timeoutMs;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        // The maximum only matters to the core size, which grows while sends are stuck
+        this.senders = new ThreadPoolExecutor(senderThreads, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "level-push-sender");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        senders.shutdownNow();
+    }
+    
+    @Override
+    public void rebuild(List<WaterReservoir> reservoirs) {
+        // Bulk rebuilds (startup, reclassification) are not pushed, only the known statuses reset
+        statuses.clear();
+        for (WaterReservoir reservoir : reservoirs) {
+            if (reservoir.getId() != null && reservoir.getStatus() != null) {
+                statuses.put(reservoir.getId(), reservoir.getStatus());
+            }
+        }
+    }
+    
+    @Override
+    public void update(WaterReservoir reservoir) {
+        if (reservoir.getId() == null) {
+            return;
+        }
+        String status = reservoir.getStatus();
+        String previousStatus = status == null ? statuses.remove(reservoir.getId()) : statuses.put(reservoir.getId(), status);
+        LevelChangeDto change = new LevelChangeDto(reservoir.getId(), reservoir.getCounty(), status,
+                previousStatus, reservoir.getCurrentLevelM3(), reservoir.getCurrentLevelPercentage(),
+                reservoir.getLastUpdated(), reservoir.getRevision());
+        // A change not yet flushed keeps the status it started from
+        changes.merge(reservoir.getId(), change, (older, newer) -> {
+            newer.setPreviousStatus(older.getPreviousStatus());
+            return newer;
+        });
+    }
+    
+    /**
+     * Subscribe to level changes. A change is delivered if it matches any of the given ids,
+     * counties or statuses (old or new); without any filter every change is delivered.
+     * @param ids reservoir IDs, may be null
+     * @param counties county names, case-insensitive, may be null
+     * @param statuses statuses, may be null
+     * @return emitter streaming "level" events
+     * @throws IllegalArgumentException if a status is unknown
+     */
+    public SseEmitter subscribe(Collection<Long> ids, Collection<String> counties, Collection<String> statuses) {
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMs),
+                ids == null ? Set.of() : new HashSet<>(ids),
+                normalize(counties), normalize(statuses));
+        for (String status : subscriber.statuses) {
+            if (!STATUSES.contains(status)) {
+                throw new IllegalArgumentException("Unknown status: " + status);
+            }
+        }
+        subscriber.emitter.onCompletion(() -> unregister(subscriber));
+        subscriber.emitter.onTimeout(() -> unregister(subscriber));
+        subscriber.emitter.onError(error -> unregister(subscriber));
+        register(subscriber);
+        try {
+            // Flushes the response headers so the client sees the stream open
+            subscriber.emitter.send(SseEmitter.event().comment("subscribed"));
+        } catch (IOException e) {
+            unregister(subscriber);
+        }
+        return subscriber.emitter;
+    }
+    
+    /**
+     * Number of open subscriptions
+     * @return subscriber count
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+    
+    /**
+     * Number of subscribers disconnected because a send to them got stuck
+     * @return stalled subscriber count
+     */
+    public long getStalls() {
+        return stalls.get();
+    }
+    
+    /**
+     * Hand the changes coalesced since the last flush to the matching subscribers
+     */
+    @Scheduled(fixedDelayString = "${reservoir.push.coalesce-interval-ms:250}")
+    public void flush() {
+        if (changes.isEmpty()) {
+            return;
+        }
+        Iterator<Map.Entry<Long, LevelChangeDto>> iterator = changes.entrySet().iterator();
+        Set<Subscriber> targets = new HashSet<>();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, LevelChangeDto> entry = iterator.next();
+            LevelChangeDto change = entry.getValue();
+            // Only removes the entry if no newer change replaced it meanwhile
+            changes.remove(entry.getKey(), change);
+            targets.clear();
+            targets.addAll(everyone);
+            addAll(targets, byReservoir.get(change.getId()));
+            if (change.getCounty() != null) {
+                addAll(targets, byCounty.get(change.getCounty().toUpperCase(Locale.ROOT)));
+            }
+            if (change.getStatus() != null) {
+                addAll(targets, byStatus.get(change.getStatus()));
+            }
+            if (change.getPreviousStatus() != null) {
+                addAll(targets, byStatus.get(change.getPreviousStatus()));
+            }
+            if (targets.isEmpty()) {
+                continue;
+            }
+            String json;
+            try {
+                json = objectMapper.writeValueAsString(change);
+            } catch (JsonProcessingException e) {
+                logger.error("Failed to serialize level change of reservoir {}", change.getId(), e);
+                continue;
+            }
+            for (Subscriber subscriber : targets) {
+                offer(subscriber, change.getId(), json);
+            }
+        }
+    }
+    
+    /**
+     * Send a comment to every subscriber so that dead connections are detected and proxies keep
+     * idle streams open
+     */
+    @Scheduled(fixedDelayString = "${reservoir.push.heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeatDue = true;
+            schedule(subscriber);
+        }
+    }
+    
+    /**
+     * Disconnect the subscribers whose send has been in flight for longer than the send timeout,
+     * and add a sender thread for each, since its thread stays blocked until the write fails
+     */
+    @Scheduled(fixedDelayString = "${reservoir.push.send-timeout-ms:5000}")
+    public void disconnectStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long started = subscriber.sendStarted.get();
+            // Claiming the send it is still in makes its drain give the added thread back
+            if (started != IDLE && started != STALLED && now - started > sendTimeoutNanos
+                    && subscriber.sendStarted.compareAndSet(started, STALLED)) {
+                stalls.incrementAndGet();
+                logger.warn("Disconnecting a level-change subscriber whose send has been stuck for {} ms",
+                        TimeUnit.NANOSECONDS.toMillis(now - started));
+                unregister(subscriber);
+                resizeSenders(1);
+            }
+        }
+    }
+    
+    private void offer(Subscriber subscriber, long reservoirId, String json) {
+        subscriber.outboxLock.lock();
+        try {
+            // Re-insert so the outbox stays in order of the latest change
+            subscriber.outbox.remove(reservoirId);
+            subscriber.outbox.put(reservoirId, json);
+        } finally {
+            subscriber.outboxLock.unlock();
+        }
+        schedule(subscriber);
+    }
+    
+    private void resizeSenders(int delta) {
+        resizeLock.lock();
+        try {
+            // A larger core size starts threads for the queued drains right away
+            senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+        } finally {
+            resizeLock.unlock();
+        }
+    }
+    
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.sending.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+    
+    private void drain(Subscriber subscriber) {
+        try {
+            while (true) {
+                Object[] batch;
+                subscriber.outboxLock.lock();
+                try {
+                    batch = subscriber.outbox.values().toArray();
+                    subscriber.outbox.clear();
+                } finally {
+                    subscriber.outboxLock.unlock();
+                }
+                if (batch.length == 0 && !subscriber.heartbeatDue) {
+                    subscriber.sending.set(false);
+                    // An offer may have arrived after the outbox was found empty
+                    subscriber.outboxLock.lock();
+                    try {
+                        if (subscriber.outbox.isEmpty() || !subscriber.sending.compareAndSet(false, true)) {
+                            return;
+                        }
+                    } finally {
+                        subscriber.outboxLock.unlock();
+                    }
+                    continue;
+                }
+                long started = System.nanoTime();
+                subscriber.sendStarted.set(started);
+                try {
+                    for (Object json : batch) {
+                        subscriber.emitter.send(SseEmitter.event().name("level").data(json, MediaType.APPLICATION_JSON));
+                    }
+                    if (batch.length == 0) {
+                        subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                } finally {
+                    if (!subscriber.sendStarted.compareAndSet(started, IDLE)) {
+                        // Disconnected while stuck: give back the thread added in place of this one.
+                        // Sending stays claimed, so the subscriber is never drained again.
+                        resizeSenders(-1);
+                        subscriber.emitter.complete();
+                        return;
+                    }
+                }
+                subscriber.heartbeatDue = false;
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client gone or emitter already completed
+            unregister(subscriber);
+            subscriber.sending.set(false);
+        }
+    }
+    
+    private void register(Subscriber subscriber) {
+        subscribers.add(subscriber);
+        if (subscriber.ids.isEmpty() && subscriber.counties.isEmpty() && subscriber.statuses.isEmpty()) {
+            everyone.add(subscriber);
+        }
+        for (Long id : subscriber.ids) {
+            byReservoir.computeIfAbsent(id, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        }
+        for (String county : subscriber.counties) {
+            byCounty.computeIfAbsent(county, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        }
+        for (String status : subscriber.statuses) {
+            byStatus.computeIfAbsent(status, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        }
+    }
+    
+    private void unregister(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        everyone.remove(subscriber);
+        for (Long id : subscriber.ids) {
+            removeFrom(byReservoir, id, subscriber);
+        }
+        for (String county : subscriber.counties) {
+            removeFrom(byCounty, county, subscriber);
+        }
+        for (String status : subscriber.statuses) {
+            removeFrom(byStatus, status, subscriber);
+        }
+    }
+    
+    private static <K> void removeFrom(Map<K, Set<Subscriber>> index, K key, Subscriber subscriber) {
+        index.computeIfPresent(key, (k, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+    }
+    
+    private static void addAll(Set<Subscriber> targets, Set<Subscriber> subscribers) {
+        if (subscribers != null) {
+            targets.addAll(subscribers);
+        }
+    }
+    
+    private static Set<String> normalize(Collection<String> values) {
+        Set<String> result = new HashSet<>();
+        if (values != null) {
+            for (String value : values) {
+                if (value != null && !value.isBlank()) {
+                    result.add(value.trim().toUpperCase(Locale.ROOT));
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * One open stream with its filters and undelivered changes
+     */
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final Set<Long> ids;
+        private final Set<String> counties;
+        private final Set<String> statuses;
+        // reservoir id -> serialized latest change, in order of the latest change (guarded by outboxLock)
+        private final Map<Long, String> outbox = new LinkedHashMap<>();
+        private final ReentrantLock outboxLock = new ReentrantLock();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicLong sendStarted = new AtomicLong(IDLE);
+        private volatile boolean heartbeatDue;
+        
+        private Subscriber(SseEmitter emitter, Set<Long> ids, Set<String> counties, Set<String> statuses) {
+            this.emitter = emitter;
+            this.ids = ids;
+            this.counties = counties;
+            this.statuses = statuses;
+        }
+    }
+}
@@ -1,104 +1,166 @@
 package com.waterapp.repository;
 
+import com.waterapp.dto.WaterReservoirDto;
 import com.waterapp.entity.WaterReservoir;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface WaterReservoirRepository extends JpaRepository<WaterReservoir, Long> {
     
+    // The DTO reads below are the named queries declared on WaterReservoir
+    
+    /**
+     * Find a reservoir by id as a DTO
+     * @param id reservoir ID
+     * @return Optional containing the reservoir if found
+     */
+    Optional<WaterReservoirDto> findDtoById(@Param("id") Long id);
+    
+    /**
+     * Find reservoirs by id as DTOs
+     * @param ids reservoir IDs
+     * @return reservoirs that exist, in no particular order
+     */
+    List<WaterReservoirDto> findDtosByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Find reservoirs by county, one keyset page at a time
+     * @param county county name, case-insensitive
+     * @param afterId id of the last reservoir of the previous page (0 for the first page)
+     * @param limit maximum number of rows
+     * @return List of reservoirs in the specified county, ordered by id
+     */
+    List<WaterReservoirDto> findDtosByCounty(@Param("county") String county,
+                                             @Param("afterId") Long afterId, Limit limit);
+    
     /**
-     * Find reservoirs by county
-     * @param county county name
-     * @return List of reservoirs in the specified county
+     * Find reservoirs by sub-county, one keyset page at a time
+     * @param subCounty sub-county name, case-insensitive
+     * @param afterId id of the last reservoir of the previous page (0 for the first page)
+     * @param limit maximum number of rows
+     * @return List of reservoirs in the specified sub-county, ordered by id
      */
-    List<WaterReservoir> findByCountyIgnoreCase(String county);
+    List<WaterReservoirDto> findDtosBySubCounty(@Param("subCounty") String subCounty,
+                                                @Param("afterId") Long afterId, Limit limit);
     
     /**
-     * Find reservoirs by sub-county
-     * @param subCounty sub-county name
-     * @return List of reservoirs in the specified sub-county
+     * Find reservoirs by ward, one keyset page at a time
+     * @param ward ward name, case-insensitive
+     * @param afterId id of the last reservoir of the previous page (0 for the first page)
+     * @param limit maximum number of rows
+     * @return List of reservoirs in the specified ward, ordered by id
      */
-    List<WaterReservoir> findBySubCountyIgnoreCase(String subCounty);
+    List<WaterReservoirDto> findDtosByWard(@Param("ward") String ward,
+                                           @Param("afterId") Long afterId, Limit limit);
     
     /**
-     * Find reservoirs by ward
-     * @param ward ward name
-     * @return List of reservoirs in the specified ward
+     * Count active reservoirs per status
+     * @return rows of (status, count)
      */
-    List<WaterReservoir> findByWardIgnoreCase(String ward);
+    @Query("SELECT r.status, COUNT(r) FROM WaterReservoir r WHERE r.isActive = true GROUP BY r.status")
+    List<Object[]> countActiveByStatus();
     
     /**
-     * Find reservoirs by name containing the search term
-     * @param name reservoir name or part of it
-     * @return List of reservoirs matching the name
+     * Get the id, current level and last update time of every active reservoir
+     * @return rows of (id, currentLevelM3, lastUpdated, version) ordered by id
      */
-    List<WaterReservoir> findByNameContainingIgnoreCase(String name);
+    @Query("SELECT r.id, r.currentLevelM3, r.lastUpdated, r.version FROM WaterReservoir r WHERE r.isActive = true ORDER BY r.id")
+    List<Object[]> findActiveLevels();
     
     /**
-     * Find active reservoirs
-     * @return List of active reservoirs
+     * Find active reservoirs, one keyset page at a time
+     * @param afterId id of the last reservoir of the previous page (0 for the first page)
+     * @param limit maximum number of rows
+     * @return List of active reservoirs, ordered by id
      */
-    List<WaterReservoir> findByIsActiveTrue();
+    List<WaterReservoirDto> findActiveDtos(@Param("afterId") Long afterId, Limit limit);
     
     /**
-     * Find reservoirs by status (GOOD, WARNING, CRITICAL)
+     * Stream all active reservoirs, fetching rows from the driver in batches.
+     * Must be consumed, and closed, inside a transaction.
+     * @return Stream of active reservoirs, ordered by id
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<WaterReservoirDto> streamActiveDtos();
+    
+    /**
+     * Find reservoirs by status (GOOD, WARNING, CRITICAL), one keyset page at a time
      * @param status reservoir status
-     * @return List of reservoirs with the specified status
+     * @param afterId id of the last reservoir of the previous page (0 for the first page)
+     * @param limit maximum number of rows
+     * @return List of reservoirs with the specified status, ordered by id
      */
-    @Query("SELECT r FROM WaterReservoir r WHERE " +
-           "CASE " +
-           "WHEN r.currentLevelPercentage >= 70 THEN 'GOOD' " +
-           "WHEN r.currentLevelPercentage >= 40 THEN 'WARNING' " +
-           "ELSE 'CRITICAL' " +
-           "END = :status")
-    List<WaterReservoir> findByStatus(@Param("status") String status);
+    List<WaterReservoirDto> findDtosByStatus(@Param("status") String status,
+                                             @Param("afterId") Long afterId, Limit limit);
     
     /**
-     * Find reservoirs within a geographic radius (in kilometers)
-     * @param latitude center latitude
-     * @param longitude center longitude
-     * @param radiusKm radius in kilometers
-     * @return List of reservoirs within the specified radius
+     * Find active reservoirs with critical water levels, lowest level first
+     * @param afterPercentage level of the last reservoir of the previous page (-1 for the first page)
+     * @param afterId id of the last reservoir of the previous page (0 for the first page)
+     * @param limit maximum number of rows
+     * @return List of reservoirs with critical water levels, ordered by level and id
      */
-    @Query("SELECT r FROM WaterReservoir r WHERE " +
-           "(6371 * acos(cos(radians(:latitude)) * cos(radians(r.latitude)) * " +
-           "cos(radians(r.longitude) - radians(:longitude)) + " +
-           "sin(radians(:latitude)) * sin(radians(r.latitude)))) <= :radiusKm")
-    List<WaterReservoir> findReservoirsWithinRadius(
-        @Param("latitude") BigDecimal latitude,
-        @Param("longitude") BigDecimal longitude,
-        @Param("radiusKm") double radiusKm
-    );
+    List<WaterReservoirDto> findCriticalReservoirs(@Param("afterPercentage") BigDecimal afterPercentage,
+                                                   @Param("afterId") Long afterId, Limit limit);
     
     /**
-     * Search reservoirs by multiple criteria
-     * @param searchTerm search term for name, county, sub-county, or ward
-     * @return List of reservoirs matching the search criteria
+     * Find active reservoirs estimated to run out before a cutoff, soonest first.
+     * Served by the (is_active, estimated_runout_date) index as a range scan.
+     * @param cutoff latest runout date to include
+     * @param afterDate runout date of the last reservoir of the previous page
+     * @param afterId id of the last reservoir of the previous page (0 for the first page)
+     * @param limit maximum number of rows
+     * @return List of reservoirs ordered by runout date and id
      */
-    @Query("SELECT r FROM WaterReservoir r WHERE " +
-           "LOWER(r.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(r.county) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(r.subCounty) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(r.ward) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-    List<WaterReservoir> searchReservoirs(@Param("searchTerm") String searchTerm);
+    List<WaterReservoirDto> findReservoirsRunningOutSoon(@Param("cutoff") LocalDateTime cutoff,
+                                                         @Param("afterDate") LocalDateTime afterDate,
+                                                         @Param("afterId") Long afterId, Limit limit);
     
     /**
-     * Find reservoirs with critical water levels (below 40%)
-     * @return List of reservoirs with critical water levels
+     * Lowest reservoir id
+     * @return smallest id, null when the table is empty
      */
-    @Query("SELECT r FROM WaterReservoir r WHERE r.currentLevelPercentage < 40 AND r.isActive = true")
-    List<WaterReservoir> findCriticalReservoirs();
+    @Query("SELECT MIN(r.id) FROM WaterReservoir r")
+    Long findMinId();
     
     /**
-     * Find reservoirs that are estimated to run out soon (within specified days)
-     * @param days number of days to check
-     * @return List of reservoirs estimated to run out within the specified days
+     * Highest reservoir id
+     * @return largest id, null when the table is empty
      */
-    @Query("SELECT r FROM WaterReservoir r WHERE r.estimatedRunoutDate IS NOT NULL AND r.isActive = true")
-    List<WaterReservoir> findReservoirsRunningOutSoon(@Param("days") int days);
+    @Query("SELECT MAX(r.id) FROM WaterReservoir r")
+    Long findMaxId();
+    
+    /**
+     * Recompute the persisted status for an id range in one statement, bumping each revision
+     * @param good minimum percentage for GOOD
+     * @param warning minimum percentage for WARNING
+     * @param fromId first id of the range (inclusive)
+     * @param toId last id of the range (inclusive)
+     * @return number of updated rows
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE WaterReservoir r SET r.revision = r.revision + 1, r.version = r.version + 1, r.status = CASE " +
+           "WHEN r.currentLevelPercentage IS NULL THEN 'UNKNOWN' " +
+           "WHEN r.currentLevelPercentage >= :good THEN 'GOOD' " +
+           "WHEN r.currentLevelPercentage >= :warning THEN 'WARNING' " +
+           "ELSE 'CRITICAL' " +
+           "END WHERE r.id BETWEEN :fromId AND :toId")
+    int reclassifyStatus(@Param("good") BigDecimal good, @Param("warning") BigDecimal warning,
+                         @Param("fromId") Long fromId, @Param("toId") Long toId);
 }
@@ -0,0 +1,279 @@
+package com.waterapp.service;
+
+import com.waterapp.dto.ForecastRunDto;
+import com.waterapp.entity.WaterReservoir;
+import com.waterapp.event.ReservoirChangedEvent;
+import com.waterapp.history.LevelBucket;
+import com.waterapp.history.WaterLevelRollupStore;
+import com.waterapp.repository.WaterReservoirRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Forecasts the depletion rate and runout date of every active reservoir.
+ * The rate is the negated slope of a least-squares line through the average level of the
+ * reservoir's hourly rollup buckets over the last window days; reservoirs with too few buckets
+ * keep the rate tracked on each reading by {@link RunoutProjectionEngine}.
+ * The reservoirs are split into chunks on a dedicated fork-join pool; each chunk fits its
+ * reservoirs from the memory-mapped rollups and writes the results in one JDBC batch that only
+ * touches rows whose forecast changed. Each update is guarded by the version the level was read
+ * at, so a reading committed meanwhile is never overwritten with a forecast of the older level;
+ * that reservoir keeps the rate of its new reading until the next run. Only the updated rows are
+ * reloaded into the indexes. Runs are started nightly or on demand, and requests made while a run
+ * is in progress are coalesced into one more run.
+ */
+@Service
+public class DepletionForecastService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DepletionForecastService.class);
+    
+    private static final double MILLIS_PER_DAY = 86_400_000.0;
+    
+    private static final String UPDATE_SQL = "UPDATE water_reservoirs"
+            + " SET depletion_rate_m3_per_day = ?, estimated_runout_date = ?,"
+            + " revision = revision + 1, version = version + 1"
+            + " WHERE id = ? AND version = ?"
+            + " AND (depletion_rate_m3_per_day IS DISTINCT FROM ? OR estimated_runout_date IS DISTINCT FROM ?)";
+    
+    // Same as the other bulk id loads
+    private static final int RELOAD_CHUNK_SIZE = 500;
+    
+    @Autowired
+    private WaterReservoirRepository waterReservoirRepository;
+    
+    @Autowired
+    private WaterLevelRollupStore waterLevelRollupStore;
+    
+    @Autowired
+    private RunoutProjectionEngine runoutProjectionEngine;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ReservoirCache reservoirCache;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Value("${reservoir.forecast.window-days:14}")
+    private int windowDays;
+    
+    @Value("${reservoir.forecast.min-points:6}")
+    private int minPoints;
+    
+    @Value("${reservoir.forecast.chunk-size:1000}")
+    private int chunkSize;
+    
+    private final ForkJoinPool pool;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean pending = new AtomicBoolean();
+    
+    private volatile ForecastRunDto lastRun;
+    
+    public DepletionForecastService(@Value("${reservoir.forecast.parallelism:0}") int parallelism) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+    
+    /**
+     * Run the forecast every night
+     */
+    @Scheduled(cron = "${reservoir.forecast.cron:0 0 2 * * *}")
+    public void nightlyForecast() {
+        forecastAll();
+    }
+    
+    /**
+     * Start a forecast run on the forecast pool without waiting for it
+     */
+    public void forecastAll() {
+        pending.set(true);
+        if (running.compareAndSet(false, true)) {
+            pool.execute(this::runPending);
+        }
+    }
+    
+    /**
+     * Get the state of the forecast and the metrics of the last completed run
+     * @return forecast run status
+     */
+    public ForecastRunDto getStatus() {
+        ForecastRunDto last = lastRun;
+        if (last == null) {
+            return new ForecastRunDto(running.get(), pool.getParallelism(), null, null, 0, 0, 0, 0, 0, 0);
+        }
+        return new ForecastRunDto(running.get(), last.getParallelism(), last.getStartedAt(), last.getCompletedAt(),
+                last.getDurationMs(), last.getReservoirs(), last.getForecasted(), last.getSkipped(),
+                last.getUpdatedRows(), last.getReservoirsPerSecond());
+    }
+    
+    private void runPending() {
+        try {
+            while (pending.getAndSet(false)) {
+                run();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Depletion forecast failed", e);
+        } finally {
+            running.set(false);
+        }
+        // A request may have arrived between the last check and releasing the flag
+        if (pending.get()) {
+            forecastAll();
+        }
+    }
+    
+    private void run() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long startNanos = System.nanoTime();
+        List<Object[]> reservoirs = waterReservoirRepository.findActiveLevels();
+        long windowStart = startedAt.minusDays(windowDays).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        ForecastChunk root = new ForecastChunk(reservoirs, 0, reservoirs.size(), windowStart, startedAt);
+        pool.invoke(root);
+        
+        // Batch updates bypass the entity change events, so publish the updated rows to the indexes and caches
+        List<Long> updatedIds = new ArrayList<>(root.updatedIds);
+        for (int from = 0; from < updatedIds.size(); from += RELOAD_CHUNK_SIZE) {
+            List<Long> ids = updatedIds.subList(from, Math.min(from + RELOAD_CHUNK_SIZE, updatedIds.size()));
+            for (WaterReservoir reservoir : waterReservoirRepository.findAllById(ids)) {
+                eventPublisher.publishEvent(new ReservoirChangedEvent(reservoir));
+                // The forecast does not change the level, so the status is unchanged
+                reservoirCache.invalidate(reservoir, reservoir.getStatus());
+            }
+        }
+        long durationMs = (System.nanoTime() - startNanos) / 1_000_000;
+        double perSecond = durationMs == 0 ? reservoirs.size() : reservoirs.size() * 1000.0 / durationMs;
+        lastRun = new ForecastRunDto(false, pool.getParallelism(), startedAt, LocalDateTime.now(), durationMs,
+                reservoirs.size(), root.forecasted.sum(), root.skipped.sum(), root.updated.sum(), perSecond);
+        logger.info("Forecast {} reservoirs in {} ms ({} fitted, {} skipped, {} updated, {} reservoirs/s)",
+                reservoirs.size(), durationMs, root.forecasted.sum(), root.skipped.sum(), root.updated.sum(),
+                Math.round(perSecond));
+    }
+    
+    /**
+     * Fit a depletion rate to the average levels of a series of buckets
+     * @param buckets buckets in time order
+     * @return depletion rate in cubic meters per day, null if the buckets span no time
+     */
+    private static BigDecimal fitDepletionRate(List<LevelBucket> buckets) {
+        long origin = buckets.get(0).getStart();
+        double sumX = 0;
+        double sumY = 0;
+        for (LevelBucket bucket : buckets) {
+            sumX += (bucket.getStart() - origin) / MILLIS_PER_DAY;
+            sumY += bucket.getAvgLevelM3();
+        }
+        int n = buckets.size();
+        double meanX = sumX / n;
+        double meanY = sumY / n;
+        double covariance = 0;
+        double variance = 0;
+        for (LevelBucket bucket : buckets) {
+            double dx = (bucket.getStart() - origin) / MILLIS_PER_DAY - meanX;
+            covariance += dx * (bucket.getAvgLevelM3() - meanY);
+            variance += dx * dx;
+        }
+        if (variance == 0) {
+            return null;
+        }
+        return BigDecimal.valueOf(-covariance / variance).setScale(2, RoundingMode.HALF_UP);
+    }
+    
+    /**
+     * Forecasts a range of the reservoir rows, splitting it in halves down to the chunk size
+     */
+    private final class ForecastChunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final List<Object[]> reservoirs;
+        private final int from;
+        private final int to;
+        private final long windowStart;
+        private final LocalDateTime now;
+        // Shared by all chunks of a run
+        private final LongAdder forecasted;
+        private final LongAdder skipped;
+        private final LongAdder updated;
+        private final Queue<Long> updatedIds;
+        
+        private ForecastChunk(List<Object[]> reservoirs, int from, int to, long windowStart, LocalDateTime now) {
+            this(reservoirs, from, to, windowStart, now, new LongAdder(), new LongAdder(), new LongAdder(),
+                    new ConcurrentLinkedQueue<>());
+        }
+        
+        private ForecastChunk(List<Object[]> reservoirs, int from, int to, long windowStart, LocalDateTime now,
+                              LongAdder forecasted, LongAdder skipped, LongAdder updated, Queue<Long> updatedIds) {
+            this.reservoirs = reservoirs;
+            this.from = from;
+            this.to = to;
+            this.windowStart = windowStart;
+            this.now = now;
+            this.forecasted = forecasted;
+            this.skipped = skipped;
+            this.updated = updated;
+            this.updatedIds = updatedIds;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from > chunkSize) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ForecastChunk(reservoirs, from, mid, windowStart, now, forecasted, skipped, updated, updatedIds),
+                        new ForecastChunk(reservoirs, mid, to, windowStart, now, forecasted, skipped, updated, updatedIds));
+                return;
+            }
+            int maxBuckets = windowDays * 24 + 1;
+            List<Object[]> batch = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                Object[] row = reservoirs.get(i);
+                Long id = (Long) row[0];
+                BigDecimal level = (BigDecimal) row[1];
+                LocalDateTime lastUpdated = row[2] == null ? now : (LocalDateTime) row[2];
+                Long version = (Long) row[3];
+                List<LevelBucket> buckets = waterLevelRollupStore.read(id, WaterLevelRollupStore.Resolution.HOUR,
+                        windowStart, Long.MAX_VALUE, maxBuckets);
+                BigDecimal rate = buckets.size() < minPoints ? null : fitDepletionRate(buckets);
+                if (rate == null || level == null) {
+                    skipped.increment();
+                    continue;
+                }
+                LocalDateTime runout = runoutProjectionEngine.projectRunout(rate, level, lastUpdated);
+                batch.add(new Object[] {rate, runout, id, version, rate, runout});
+                forecasted.increment();
+            }
+            if (!batch.isEmpty()) {
+                int[] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, batch);
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] > 0) {
+                        updated.increment();
+                        updatedIds.add((Long) batch.get(i)[2]);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.waterapp.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Retries writes that lost an optimistic lock check against a concurrent writer.
+ * Each retry waits a random time of up to backoff-ms, doubled per attempt, so writers that
+ * collided are unlikely to collide again. The operation must reload what it writes.
+ */
+@Component
+public class OptimisticRetry {
+    
+    private final int maxAttempts;
+    private final long backoffMs;
+    
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    
+    public OptimisticRetry(@Value("${reservoir.concurrency.max-attempts:5}") int maxAttempts,
+                           @Value("${reservoir.concurrency.backoff-ms:5}") long backoffMs) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Optimistic retry needs at least one attempt");
+        }
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+    }
+    
+    /**
+     * Run an operation, retrying it while it fails on a stale version
+     * @param operation operation to run
+     * @return result of the first successful attempt
+     * @throws OptimisticLockingFailureException if every attempt failed
+     */
+    public <T> T run(Supplier<T> operation) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return operation.get();
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    failures.increment();
+                    throw e;
+                }
+                retries.increment();
+                long bound = backoffMs << Math.min(attempt - 1, 10);
+                if (bound > 0) {
+                    try {
+                        Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        failures.increment();
+                        throw e;
+                    }
+                }
+            }
+        }
+    }
+    
+    public long getRetries() {
+        return retries.sum();
+    }
+    
+    public long getFailures() {
+        return failures.sum();
+    }
+}
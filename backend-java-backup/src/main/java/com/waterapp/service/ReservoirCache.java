@@ -0,0 +1,232 @@
+package com.waterapp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.waterapp.dto.CacheStatsDto;
+import com.waterapp.dto.CursorPage;
+import com.waterapp.dto.WaterReservoirDto;
+import com.waterapp.entity.ReservoirStatusThresholds;
+import com.waterapp.entity.WaterReservoir;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Read-through caches for single reservoirs and for the list queries that are keyed by a region
+ * or status. Each cache is bounded and evicts with Caffeine's W-TinyLFU policy.
+ * A write only invalidates the reservoir itself and the lists it appears in: its county,
+ * sub-county and ward lists, the lists of its old and new status and, if either of those is
+ * CRITICAL, the critical list.
+ * List pages are keyed by the generation of their list, which an invalidation increments before
+ * dropping the cached pages, and by an epoch that dropping every list increments. A page loaded while the list was invalidated is stored under the old
+ * generation, so no later read sees it even though the removal could not see the load in flight.
+ */
+@Component
+public class ReservoirCache {
+    
+    /**
+     * Cached list queries
+     */
+    public enum ListType {
+        COUNTY, SUB_COUNTY, WARD, STATUS, CRITICAL
+    }
+    
+    private final Cache<Long, WaterReservoirDto> byId;
+    private final Map<ListType, Cache<ListKey, CursorPage<WaterReservoirDto>>> lists = new EnumMap<>(ListType.class);
+    // list type -> normalized parameter -> generation, absent until the list is first invalidated
+    private final Map<ListType, Map<String, Long>> listGenerations = new EnumMap<>(ListType.class);
+    // incremented when every list is dropped at once
+    private final AtomicLong listEpoch = new AtomicLong();
+    private final Map<String, LongAdder> invalidations = new ConcurrentHashMap<>();
+    // incremented after every invalidation, lets derived caches detect writes
+    private final AtomicLong generation = new AtomicLong();
+    
+    public ReservoirCache(@Value("${reservoir.cache.maximum-size:10000}") long maximumSize,
+                          @Value("${reservoir.cache.by-id-ttl:10m}") Duration byIdTtl,
+                          @Value("${reservoir.cache.region-list-ttl:5m}") Duration regionListTtl,
+                          @Value("${reservoir.cache.status-list-ttl:1m}") Duration statusListTtl) {
+        this.byId = build(maximumSize, byIdTtl);
+        lists.put(ListType.COUNTY, build(maximumSize, regionListTtl));
+        lists.put(ListType.SUB_COUNTY, build(maximumSize, regionListTtl));
+        lists.put(ListType.WARD, build(maximumSize, regionListTtl));
+        lists.put(ListType.STATUS, build(maximumSize, statusListTtl));
+        lists.put(ListType.CRITICAL, build(maximumSize, statusListTtl));
+        for (ListType type : ListType.values()) {
+            listGenerations.put(type, new ConcurrentHashMap<>());
+        }
+    }
+    
+    /**
+     * Get a reservoir, loading it on a miss
+     * @param id reservoir ID
+     * @param loader loads the reservoir, returning null if it does not exist
+     * @return the reservoir, or null if it does not exist
+     */
+    public WaterReservoirDto getById(Long id, Function<Long, WaterReservoirDto> loader) {
+        return byId.get(id, loader);
+    }
+    
+    /**
+     * Get a page of a list query, loading it on a miss
+     * @param type list query
+     * @param parameter region name or status, null for the critical list
+     * @param cursor cursor of the previous page, null for the first page
+     * @param limit maximum page size
+     * @param loader runs the query
+     * @return the page
+     */
+    public CursorPage<WaterReservoirDto> getList(ListType type, String parameter, String cursor, int limit,
+                                                 Supplier<CursorPage<WaterReservoirDto>> loader) {
+        String key = normalize(parameter);
+        long epoch = listEpoch.get();
+        long listGeneration = listGenerations.get(type).getOrDefault(generationKey(key), 0L);
+        return lists.get(type).get(new ListKey(key, cursor, limit, epoch, listGeneration), listKey -> loader.get());
+    }
+    
+    /**
+     * Invalidate everything a written reservoir may appear in
+     * @param reservoir the reservoir as written
+     * @param previousStatus status before the write
+     */
+    public void invalidate(WaterReservoir reservoir, String previousStatus) {
+        byId.invalidate(reservoir.getId());
+        record("reservoirs");
+        invalidateList(ListType.COUNTY, reservoir.getCounty());
+        invalidateList(ListType.SUB_COUNTY, reservoir.getSubCounty());
+        invalidateList(ListType.WARD, reservoir.getWard());
+        invalidateList(ListType.STATUS, reservoir.getStatus());
+        if (!Objects.equals(previousStatus, reservoir.getStatus())) {
+            invalidateList(ListType.STATUS, previousStatus);
+        }
+        if (ReservoirStatusThresholds.CRITICAL.equals(reservoir.getStatus())
+                || ReservoirStatusThresholds.CRITICAL.equals(previousStatus)) {
+            invalidateList(ListType.CRITICAL, null);
+        }
+        generation.incrementAndGet();
+    }
+    
+    /**
+     * Drop every cached entry, for writes that touch many reservoirs at once
+     */
+    public void invalidateAll() {
+        // Pages still loading were keyed by the old epoch
+        listEpoch.incrementAndGet();
+        byId.invalidateAll();
+        record("reservoirs");
+        for (Map.Entry<ListType, Cache<ListKey, CursorPage<WaterReservoirDto>>> entry : lists.entrySet()) {
+            entry.getValue().invalidateAll();
+            record(cacheName(entry.getKey()));
+        }
+        generation.incrementAndGet();
+    }
+    
+    /**
+     * Number of invalidations so far; a value read before a read-through is stale once it changes
+     * @return current generation
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+    
+    /**
+     * Hit, miss and eviction counts of every cache
+     * @return one entry per cache
+     */
+    public List<CacheStatsDto> getStats() {
+        List<CacheStatsDto> result = new ArrayList<>();
+        result.add(stats("reservoirs", byId));
+        for (Map.Entry<ListType, Cache<ListKey, CursorPage<WaterReservoirDto>>> entry : lists.entrySet()) {
+            result.add(stats(cacheName(entry.getKey()), entry.getValue()));
+        }
+        return result;
+    }
+    
+    private void invalidateList(ListType type, String parameter) {
+        String key = normalize(parameter);
+        // Bump first: a page loading now is stored under the old generation, which is never read again
+        listGenerations.get(type).merge(generationKey(key), 1L, Long::sum);
+        lists.get(type).asMap().keySet().removeIf(listKey -> Objects.equals(listKey.parameter, key));
+        record(cacheName(type));
+    }
+    
+    private void record(String cacheName) {
+        invalidations.computeIfAbsent(cacheName, name -> new LongAdder()).increment();
+    }
+    
+    private CacheStatsDto stats(String name, Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        LongAdder invalidated = invalidations.get(name);
+        return new CacheStatsDto(name, cache.estimatedSize(), stats.hitCount(), stats.missCount(),
+                stats.hitRate(), stats.evictionCount(), invalidated == null ? 0 : invalidated.sum());
+    }
+    
+    private static String cacheName(ListType type) {
+        return type.name().toLowerCase(Locale.ROOT).replace('_', '-') + "-lists";
+    }
+    
+    private static String normalize(String parameter) {
+        return parameter == null ? null : parameter.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    private static String generationKey(String parameter) {
+        // Only the critical list has no parameter
+        return parameter == null ? "" : parameter;
+    }
+    
+    private static <K, V> Cache<K, V> build(long maximumSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+    
+    /**
+     * Key of one cached page of a list query
+     */
+    private static final class ListKey {
+        private final String parameter;
+        private final String cursor;
+        private final int limit;
+        private final long epoch;
+        private final long generation;
+        
+        private ListKey(String parameter, String cursor, int limit, long epoch, long generation) {
+            this.parameter = parameter;
+            this.cursor = cursor;
+            this.limit = limit;
+            this.epoch = epoch;
+            this.generation = generation;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ListKey)) {
+                return false;
+            }
+            ListKey other = (ListKey) o;
+            return limit == other.limit && epoch == other.epoch && generation == other.generation
+                    && Objects.equals(parameter, other.parameter) && Objects.equals(cursor, other.cursor);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(parameter, cursor, limit, epoch, generation);
+        }
+    }
+}
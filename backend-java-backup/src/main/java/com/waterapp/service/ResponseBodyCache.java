@@ -0,0 +1,243 @@
+package com.waterapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.waterapp.dto.CacheStatsDto;
+import com.waterapp.dto.CursorPage;
+import com.waterapp.index.ReservoirIndexManager;
+import com.waterapp.index.StatusCounterIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized and gzip-compressed JSON bodies of the hot read endpoints, so repeated requests
+ * between writes are answered with stored bytes instead of a query, DTO mapping, serialization
+ * and compression.
+ * Each body is tagged with the dataset version (which includes write-behind readings), the
+ * {@link ReservoirCache} generation, the index rebuild count and the status counter epoch, all
+ * read before it is rendered. A body whose tag no longer matches is rendered again on the next
+ * request, so a write invalidates every body at once and they are rebuilt lazily, once per key
+ * however many requests are waiting. The render runs outside the cache's locks; requests for a
+ * key being rendered wait on its future. Bodies are bounded by total size and evicted with
+ * W-TinyLFU. Only gzip is stored: Brotli would need a native encoder, which the JDK does not ship.
+ */
+@Component
+public class ResponseBodyCache {
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private WaterReservoirService waterReservoirService;
+    
+    @Autowired
+    private ReservoirCache reservoirCache;
+    
+    @Autowired
+    private ReservoirIndexManager reservoirIndexManager;
+    
+    @Autowired
+    private StatusCounterIndex statusCounterIndex;
+    
+    private final boolean enabled;
+    private final int gzipMinBytes;
+    private final Cache<String, Body> bodies;
+    // key -> render in progress
+    private final Map<String, CompletableFuture<Body>> rendering = new ConcurrentHashMap<>();
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    // bodies rendered again because a write made them stale
+    private final LongAdder stale = new LongAdder();
+    
+    public ResponseBodyCache(@Value("${reservoir.response-cache.enabled:true}") boolean enabled,
+                             @Value("${reservoir.response-cache.max-size:64MB}") DataSize maxSize,
+                             @Value("${reservoir.response-cache.ttl:1m}") Duration ttl,
+                             @Value("${reservoir.response-cache.gzip-min-size:1KB}") DataSize gzipMinSize) {
+        this.enabled = enabled;
+        this.gzipMinBytes = (int) gzipMinSize.toBytes();
+        this.bodies = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String key, Body body) -> body.weight())
+                // Also bounds how long a body rendered from a stale list cache page can be served
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Get the body of a page of reservoirs, rendering it when missing or stale
+     * @param key endpoint and parameters
+     * @param loader loads the page
+     * @return stored body; its next cursor belongs in the response headers
+     */
+    public Body getPage(String key, Supplier<? extends CursorPage<?>> loader) {
+        return get(key, () -> {
+            CursorPage<?> page = loader.get();
+            return render(page.getItems(), page.getNextCursor());
+        });
+    }
+    
+    /**
+     * Get a response body, rendering it when missing or stale
+     * @param key endpoint and parameters
+     * @param loader produces the response object
+     * @return stored body
+     */
+    public Body getObject(String key, Supplier<?> loader) {
+        return get(key, () -> render(loader.get(), null));
+    }
+    
+    /**
+     * Hit, miss and stale counts of the cached bodies
+     * @return statistics in the format of the other caches
+     */
+    public CacheStatsDto getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+        return new CacheStatsDto("response-bodies", bodies.estimatedSize(), hitCount, missCount,
+                requests == 0 ? 1.0 : (double) hitCount / requests, bodies.stats().evictionCount(), stale.sum());
+    }
+    
+    private Body get(String key, Supplier<Body> renderer) {
+        while (true) {
+            // Read before rendering: a write that lands during the render leaves the body stale
+            long version = waterReservoirService.getDatasetVersion().getRevision();
+            // The counters only grow, so their sum changes whenever any of them does
+            long generation = reservoirCache.getGeneration() + reservoirIndexManager.getRebuildCount()
+                    + statusCounterIndex.getEpoch();
+            Body cached = bodies.getIfPresent(key);
+            if (cached != null && cached.matches(version, generation)) {
+                hits.increment();
+                return cached;
+            }
+            // Concurrent requests for a stale body wait for one render instead of each rendering it
+            CompletableFuture<Body> render = new CompletableFuture<>();
+            CompletableFuture<Body> inProgress = rendering.putIfAbsent(key, render);
+            if (inProgress != null) {
+                Body body = await(inProgress);
+                if (body.matches(version, generation)) {
+                    hits.increment();
+                    return body;
+                }
+                // Rendered from an older tag; check again
+                continue;
+            }
+            try {
+                misses.increment();
+                if (cached != null) {
+                    stale.increment();
+                }
+                Body body = renderer.get().tagged(version, generation);
+                bodies.put(key, body);
+                render.complete(body);
+                return body;
+            } catch (RuntimeException | Error e) {
+                render.completeExceptionally(e);
+                throw e;
+            } finally {
+                rendering.remove(key, render);
+            }
+        }
+    }
+    
+    private static Body await(CompletableFuture<Body> render) {
+        try {
+            return render.join();
+        } catch (CompletionException e) {
+            // Fail like the request that rendered
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+    
+    private Body render(Object content, String nextCursor) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(content);
+            return new Body(json, json.length >= gzipMinBytes ? gzip(json) : null, nextCursor, 0, 0);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize response body", e);
+        }
+    }
+    
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+    
+    /**
+     * Serialized response body with its optional gzip encoding
+     */
+    public static final class Body {
+        private final byte[] json;
+        private final byte[] gzip;
+        private final String nextCursor;
+        private final long version;
+        private final long generation;
+        
+        private Body(byte[] json, byte[] gzip, String nextCursor, long version, long generation) {
+            this.json = json;
+            this.gzip = gzip;
+            this.nextCursor = nextCursor;
+            this.version = version;
+            this.generation = generation;
+        }
+        
+        private Body tagged(long version, long generation) {
+            return new Body(json, gzip, nextCursor, version, generation);
+        }
+        
+        private boolean matches(long version, long generation) {
+            return this.version == version && this.generation == generation;
+        }
+        
+        private int weight() {
+            return json.length + (gzip == null ? 0 : gzip.length);
+        }
+        
+        public byte[] getJson() {
+            return json;
+        }
+        
+        /**
+         * @return gzip-compressed body, null if the body is too small to be worth compressing
+         */
+        public byte[] getGzip() {
+            return gzip;
+        }
+        
+        /**
+         * @return cursor of the next page, null on the last page or for non-list bodies
+         */
+        public String getNextCursor() {
+            return nextCursor;
+        }
+    }
+}
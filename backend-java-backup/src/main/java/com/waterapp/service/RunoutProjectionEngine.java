@@ -0,0 +1,89 @@
+package com.waterapp.service;
+
+import com.waterapp.entity.WaterReservoir;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Derives each reservoir's depletion rate from successive level readings and projects the
+ * date at which it will run dry.
+ * The rate is an exponentially weighted moving average of the per-reading rates, weighted by
+ * the time between readings so that bursts of closely spaced readings do not dominate it.
+ */
+@Component
+public class RunoutProjectionEngine {
+    
+    private static final double MILLIS_PER_DAY = 86_400_000.0;
+    
+    private final double halfLifeDays;
+    private final long horizonDays;
+    
+    public RunoutProjectionEngine(@Value("${reservoir.runout.rate-half-life-days:7}") double halfLifeDays,
+                                  @Value("${reservoir.runout.horizon-days:3650}") long horizonDays) {
+        this.halfLifeDays = halfLifeDays;
+        this.horizonDays = horizonDays;
+    }
+    
+    /**
+     * Fold a new level reading into the reservoir's depletion rate and runout projection.
+     * Must be called before the new level is applied to the entity.
+     * @param reservoir reservoir still holding the previous reading
+     * @param newLevelM3 new current level in cubic meters
+     * @param readingTime time of the new reading
+     */
+    public void applyReading(WaterReservoir reservoir, BigDecimal newLevelM3, LocalDateTime readingTime) {
+        BigDecimal previousLevel = reservoir.getCurrentLevelM3();
+        LocalDateTime previousTime = reservoir.getLastUpdated();
+        if (previousLevel != null && previousTime != null) {
+            long elapsedMillis = Duration.between(previousTime, readingTime).toMillis();
+            if (elapsedMillis > 0) {
+                double elapsedDays = elapsedMillis / MILLIS_PER_DAY;
+                double sample = (previousLevel.doubleValue() - newLevelM3.doubleValue()) / elapsedDays;
+                BigDecimal currentRate = reservoir.getDepletionRateM3PerDay();
+                double rate = sample;
+                if (currentRate != null) {
+                    double alpha = 1 - Math.pow(0.5, elapsedDays / halfLifeDays);
+                    rate = currentRate.doubleValue() + alpha * (sample - currentRate.doubleValue());
+                }
+                reservoir.setDepletionRateM3PerDay(BigDecimal.valueOf(rate).setScale(2, RoundingMode.HALF_UP));
+            }
+        }
+        projectRunout(reservoir, newLevelM3, readingTime);
+    }
+    
+    /**
+     * Project the runout date from a level and the reservoir's current depletion rate
+     * @param reservoir reservoir whose estimatedRunoutDate is set
+     * @param levelM3 level in cubic meters to project from
+     * @param from time of that level
+     */
+    public void projectRunout(WaterReservoir reservoir, BigDecimal levelM3, LocalDateTime from) {
+        reservoir.setEstimatedRunoutDate(projectRunout(reservoir.getDepletionRateM3PerDay(), levelM3, from));
+    }
+    
+    /**
+     * Project the runout date from a level and a depletion rate
+     * @param rateM3PerDay depletion rate in cubic meters per day, null if unknown
+     * @param levelM3 level in cubic meters to project from
+     * @param from time of that level
+     * @return projected runout date, null if none is expected within the horizon
+     */
+    public LocalDateTime projectRunout(BigDecimal rateM3PerDay, BigDecimal levelM3, LocalDateTime from) {
+        if (levelM3.signum() <= 0) {
+            return from;
+        }
+        if (rateM3PerDay == null || rateM3PerDay.signum() <= 0) {
+            // Stable or filling: no runout in sight
+            return null;
+        }
+        double days = levelM3.doubleValue() / rateM3PerDay.doubleValue();
+        if (days > horizonDays) {
+            return null;
+        }
+        return from.plus(Duration.ofMillis((long) (days * MILLIS_PER_DAY)));
+    }
+}
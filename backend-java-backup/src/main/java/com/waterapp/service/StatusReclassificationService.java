@@ -0,0 +1,103 @@
+package com.waterapp.service;
+
+import com.waterapp.entity.ReservoirStatusThresholds;
+import com.waterapp.index.ReservoirIndexManager;
+import com.waterapp.repository.WaterReservoirRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Service
+public class StatusReclassificationService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(StatusReclassificationService.class);
+    
+    @Autowired
+    private WaterReservoirRepository waterReservoirRepository;
+    
+    @Autowired
+    private ReservoirIndexManager reservoirIndexManager;
+    
+    @Autowired
+    private ReservoirCache reservoirCache;
+    
+    @Value("${reservoir.status.reclassification-batch-size:1000}")
+    private int batchSize;
+    
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean pending = new AtomicBoolean();
+    
+    private volatile LocalDateTime lastCompletedAt;
+    private volatile long lastUpdatedRows;
+    
+    /**
+     * Change the status thresholds; persisted statuses are brought up to date by {@link #reclassifyAll()}
+     * @param good minimum percentage for GOOD
+     * @param warning minimum percentage for WARNING
+     * @throws IllegalArgumentException unless 0 <= warning <= good <= 100
+     */
+    public void changeThresholds(BigDecimal good, BigDecimal warning) {
+        ReservoirStatusThresholds.set(good, warning);
+        logger.info("Status thresholds changed to GOOD >= {}, WARNING >= {}", good, warning);
+    }
+    
+    /**
+     * Recompute the persisted status of every reservoir in id-range batches, each in its own
+     * transaction. Requests made while a run is in progress are coalesced into one more run.
+     */
+    @Async
+    public void reclassifyAll() {
+        pending.set(true);
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            while (pending.getAndSet(false)) {
+                runBatches();
+            }
+        } finally {
+            running.set(false);
+        }
+        // A request may have arrived between the last check and releasing the flag
+        if (pending.get()) {
+            reclassifyAll();
+        }
+    }
+    
+    private void runBatches() {
+        BigDecimal good = ReservoirStatusThresholds.getGood();
+        BigDecimal warning = ReservoirStatusThresholds.getWarning();
+        Long minId = waterReservoirRepository.findMinId();
+        Long maxId = waterReservoirRepository.findMaxId();
+        long updated = 0;
+        if (minId != null) {
+            for (long fromId = minId; fromId <= maxId; fromId += batchSize) {
+                updated += waterReservoirRepository.reclassifyStatus(good, warning, fromId, fromId + batchSize - 1);
+            }
+        }
+        // Bulk updates bypass the entity change events, so refresh the in-memory indexes and caches
+        reservoirIndexManager.rebuildAll();
+        reservoirCache.invalidateAll();
+        lastUpdatedRows = updated;
+        lastCompletedAt = LocalDateTime.now();
+        logger.info("Reclassified {} reservoirs with GOOD >= {}, WARNING >= {}", updated, good, warning);
+    }
+    
+    public boolean isRunning() {
+        return running.get();
+    }
+    
+    public LocalDateTime getLastCompletedAt() {
+        return lastCompletedAt;
+    }
+    
+    public long getLastUpdatedRows() {
+        return lastUpdatedRows;
+    }
+}
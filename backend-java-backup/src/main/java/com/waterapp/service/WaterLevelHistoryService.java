@@ -0,0 +1,162 @@
+package com.waterapp.service;
+
+import com.waterapp.dto.DownsampledHistoryDto;
+import com.waterapp.dto.WaterLevelBucketDto;
+import com.waterapp.dto.WaterLevelPointDto;
+import com.waterapp.history.LevelBucket;
+import com.waterapp.history.WaterLevelHistoryStore;
+import com.waterapp.history.WaterLevelReading;
+import com.waterapp.history.WaterLevelRollupStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+public class WaterLevelHistoryService {
+    
+    @Autowired
+    private WaterLevelHistoryStore waterLevelHistoryStore;
+    
+    @Autowired
+    private WaterLevelRollupStore waterLevelRollupStore;
+    
+    @Value("${reservoir.history.default-range-days:30}")
+    private int defaultRangeDays;
+    
+    @Value("${reservoir.history.max-points:10000}")
+    private int maxPoints;
+    
+    /**
+     * Get the recorded water levels of a reservoir
+     * @param id reservoir ID
+     * @param from start of the range (inclusive), null for the first reading
+     * @param to end of the range (inclusive), null for the last reading
+     * @param limit maximum number of readings
+     * @return readings in time order
+     */
+    public List<WaterLevelPointDto> getHistory(Long id, LocalDateTime from, LocalDateTime to, int limit) {
+        long fromMillis = from == null ? Long.MIN_VALUE : toMillis(from);
+        long toMillis = to == null ? Long.MAX_VALUE : toMillis(to);
+        if (fromMillis > toMillis) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        return waterLevelHistoryStore.read(id, fromMillis, toMillis, limit).stream()
+                .map(WaterLevelHistoryService::toDto)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Get the water levels of a reservoir at the coarsest resolution that still yields the
+     * requested number of points. Daily buckets are used when the range spans at least that many
+     * days, then hourly buckets, then the raw readings. Raw readings are only used when the range
+     * lies within the raw retention window; older ranges fall back to hourly buckets. When that
+     * yields more than the requested number of points, consecutive buckets are merged into that
+     * many equal slices of the range, so the whole range is always covered.
+     * @param id reservoir ID
+     * @param from start of the range (inclusive), null for the default range before to
+     * @param to end of the range (inclusive), null for now
+     * @param points number of points wanted
+     * @return resolution used and at most the requested number of points in time order
+     */
+    public DownsampledHistoryDto getDownsampledHistory(Long id, LocalDateTime from, LocalDateTime to, int points) {
+        if (points < 1 || points > maxPoints) {
+            throw new IllegalArgumentException("points must be between 1 and " + maxPoints);
+        }
+        LocalDateTime end = to == null ? LocalDateTime.now() : to;
+        LocalDateTime start = from == null ? end.minusDays(defaultRangeDays) : from;
+        long fromMillis = toMillis(start);
+        long toMillis = toMillis(end);
+        if (fromMillis > toMillis) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        long span = toMillis - fromMillis;
+        boolean rawAvailable = fromMillis >= waterLevelHistoryStore.getRawRetentionStart();
+        
+        WaterLevelRollupStore.Resolution resolution = null;
+        for (WaterLevelRollupStore.Resolution candidate : new WaterLevelRollupStore.Resolution[] {
+                WaterLevelRollupStore.Resolution.DAY, WaterLevelRollupStore.Resolution.HOUR}) {
+            if (span / candidate.getMillis() >= points) {
+                resolution = candidate;
+                break;
+            }
+        }
+        if (resolution == null && !rawAvailable) {
+            resolution = WaterLevelRollupStore.Resolution.HOUR;
+        }
+        
+        List<LevelBucket> buckets;
+        if (resolution == null) {
+            buckets = waterLevelHistoryStore.read(id, fromMillis, toMillis, Integer.MAX_VALUE).stream()
+                    .map(reading -> LevelBucket.of(reading, reading.getTimestamp()))
+                    .collect(Collectors.toList());
+        } else {
+            buckets = waterLevelRollupStore.read(id, resolution, fromMillis, toMillis, Integer.MAX_VALUE);
+        }
+        List<WaterLevelBucketDto> result = downsample(buckets, fromMillis, toMillis, points).stream()
+                .map(WaterLevelHistoryService::toDto)
+                .collect(Collectors.toList());
+        return new DownsampledHistoryDto(resolution == null ? "RAW" : resolution.name(), result);
+    }
+    
+    /**
+     * Merge buckets into at most the given number of equal slices of a time range
+     * @param buckets buckets in time order
+     * @return buckets unchanged if there are few enough, otherwise one merged bucket per non-empty slice
+     */
+    private static List<LevelBucket> downsample(List<LevelBucket> buckets, long fromMillis, long toMillis, int points) {
+        if (buckets.size() <= points) {
+            return buckets;
+        }
+        long span = toMillis - fromMillis + 1;
+        List<LevelBucket> merged = new ArrayList<>(points);
+        LevelBucket current = null;
+        long currentSlice = -1;
+        for (LevelBucket bucket : buckets) {
+            // A bucket may start before the range when the range starts mid-bucket
+            long slice = Math.min(points - 1, Math.max(0, (bucket.getStart() - fromMillis) * points / span));
+            if (current != null && slice == currentSlice) {
+                current = current.merge(bucket);
+            } else {
+                if (current != null) {
+                    merged.add(current);
+                }
+                current = bucket;
+                currentSlice = slice;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+    
+    private static WaterLevelBucketDto toDto(LevelBucket bucket) {
+        return new WaterLevelBucketDto(toLocalDateTime(bucket.getStart()), bucket.getCount(),
+                decimal(bucket.getMinLevelM3()), decimal(bucket.getMaxLevelM3()),
+                decimal(bucket.getAvgLevelM3()), decimal(bucket.getLastLevelM3()),
+                decimal(bucket.getMinLevelPercentage()), decimal(bucket.getMaxLevelPercentage()),
+                decimal(bucket.getAvgLevelPercentage()), decimal(bucket.getLastLevelPercentage()));
+    }
+    
+    private static WaterLevelPointDto toDto(WaterLevelReading reading) {
+        return new WaterLevelPointDto(toLocalDateTime(reading.getTimestamp()), decimal(reading.getLevelM3()), decimal(reading.getLevelPercentage()));
+    }
+    
+    private static BigDecimal decimal(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+    
+    private static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+    
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,367 @@
+package com.waterapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.waterapp.dto.WaterLevelItemResult;
+import com.waterapp.dto.WaterLevelReadingDto;
+import com.waterapp.entity.WaterReservoir;
+import com.waterapp.event.ReservoirChangedEvent;
+import com.waterapp.event.WriteBehindFlushRequestedEvent;
+import com.waterapp.repository.WaterReservoirRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Applies many water-level readings at once. Readings are processed in chunks: each chunk loads
+ * its reservoirs with one IN query and is written in a single transaction, which Hibernate
+ * flushes as JDBC batch updates (hibernate.jdbc.batch_size). Every reading gets its own result,
+ * a bad reading never fails the others in its chunk.
+ * Readings accepted by the {@link WriteBehindBuffer} are written through the same path.
+ */
+@Service
+public class WaterLevelIngestionService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(WaterLevelIngestionService.class);
+    
+    @Autowired
+    private WaterReservoirRepository waterReservoirRepository;
+    
+    @Autowired
+    private WaterReservoirService waterReservoirService;
+    
+    @Autowired
+    private ReservoirCache reservoirCache;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private WriteBehindBuffer writeBehindBuffer;
+    
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+    
+    private final TransactionTemplate transactionTemplate;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    
+    @Value("${reservoir.ingestion.chunk-size:500}")
+    private int chunkSize;
+    
+    // How far a client clock may run ahead of ours before its readings are rejected
+    @Value("${reservoir.ingestion.max-clock-skew:5m}")
+    private Duration maxClockSkew;
+    
+    public WaterLevelIngestionService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    /**
+     * Apply a list of readings
+     * @param readings readings in request order
+     * @return one result per reading, in request order
+     */
+    public List<WaterLevelItemResult> ingest(List<WaterLevelReadingDto> readings) {
+        List<WaterLevelItemResult> results = new ArrayList<>(readings.size());
+        for (int from = 0; from < readings.size(); from += chunkSize) {
+            List<WaterLevelReadingDto> chunk = readings.subList(from, Math.min(from + chunkSize, readings.size()));
+            results.addAll(processChunk(chunk, from));
+        }
+        return results;
+    }
+    
+    /**
+     * Apply readings sent as newline-delimited JSON, one chunk at a time as lines arrive
+     * @param in request body, one reading object per line
+     * @return one result per non-blank line, in request order
+     * @throws IOException if reading the body fails
+     */
+    public List<WaterLevelItemResult> ingestNdjson(InputStream in) throws IOException {
+        ObjectReader reader = objectMapper.readerFor(WaterLevelReadingDto.class);
+        List<WaterLevelItemResult> results = new ArrayList<>();
+        List<WaterLevelReadingDto> chunk = new ArrayList<>(chunkSize);
+        // index of the first reading in chunk
+        int chunkStart = 0;
+        int index = 0;
+        BufferedReader lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            WaterLevelReadingDto reading;
+            try {
+                reading = reader.readValue(line);
+            } catch (JsonProcessingException e) {
+                // Keep the malformed line's slot so results stay in request order
+                reading = null;
+            }
+            chunk.add(reading);
+            index++;
+            if (chunk.size() == chunkSize) {
+                results.addAll(processChunk(chunk, chunkStart));
+                chunk.clear();
+                chunkStart = index;
+            }
+        }
+        if (!chunk.isEmpty()) {
+            results.addAll(processChunk(chunk, chunkStart));
+        }
+        return results;
+    }
+    
+    /**
+     * Write the readings held by the write-behind buffer
+     */
+    @Scheduled(fixedDelayString = "${reservoir.write-behind.flush-interval-ms:1000}")
+    public void flushWriteBehind() {
+        if (!writeBehindBuffer.isEnabled()) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            flush(writeBehindBuffer.drain());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    /**
+     * Write the buffered readings of one reservoir now
+     * @param id reservoir ID
+     */
+    public void flushWriteBehind(Long id) {
+        flushLock.lock();
+        try {
+            flush(writeBehindBuffer.drain(id));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    /**
+     * Write the buffered readings early once the buffer reached its flush size
+     * @param event flush request
+     */
+    @Async
+    @EventListener(condition = "#event.reservoirId == null")
+    public void onFlushRequested(WriteBehindFlushRequestedEvent event) {
+        flushWriteBehind();
+    }
+    
+    /**
+     * Write the buffered readings of a reservoir on the requesting thread
+     * @param event flush request
+     */
+    @EventListener(condition = "#event.reservoirId != null")
+    public void onReservoirFlushRequested(WriteBehindFlushRequestedEvent event) {
+        flushWriteBehind(event.getReservoirId());
+    }
+    
+    /**
+     * Write the remaining buffered readings on shutdown, before the history and alert beans are destroyed
+     * @param event context closed event
+     */
+    @EventListener
+    public void onContextClosed(ContextClosedEvent event) {
+        flushWriteBehind();
+    }
+    
+    /**
+     * Write a drained batch. A reservoir's readings always share a chunk, so each reservoir is
+     * written with one UPDATE holding its latest reading, while the earlier readings only advance
+     * the depletion rate and go to the history. Readings of a chunk that failed to commit are put
+     * back in the buffer; readings rejected by validation can never be written and are dropped.
+     */
+    private void flush(Map<Long, List<WaterLevelReadingDto>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<Long, List<WaterLevelReadingDto>> done = new LinkedHashMap<>();
+        try {
+            Map<Long, List<WaterLevelReadingDto>> chunk = new LinkedHashMap<>();
+            int size = 0;
+            for (Map.Entry<Long, List<WaterLevelReadingDto>> entry : batch.entrySet()) {
+                chunk.put(entry.getKey(), entry.getValue());
+                size += entry.getValue().size();
+                if (size >= chunkSize) {
+                    flushChunk(chunk, done);
+                    chunk = new LinkedHashMap<>();
+                    size = 0;
+                }
+            }
+            if (!chunk.isEmpty()) {
+                flushChunk(chunk, done);
+            }
+        } finally {
+            writeBehindBuffer.completeFlush(done);
+            batch.keySet().removeAll(done.keySet());
+            writeBehindBuffer.requeue(batch);
+        }
+    }
+    
+    private void flushChunk(Map<Long, List<WaterLevelReadingDto>> chunk, Map<Long, List<WaterLevelReadingDto>> done) {
+        List<WaterLevelReadingDto> readings = chunk.values().stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+        WaterLevelItemResult[] results = new WaterLevelItemResult[readings.size()];
+        try {
+            applyChunk(readings, 0, results, true);
+        } catch (RuntimeException e) {
+            logger.warn("Write-behind flush of {} readings failed, keeping them buffered", readings.size(), e);
+            return;
+        }
+        long rejected = Arrays.stream(results).filter(result -> !result.isSuccess()).count();
+        if (rejected > 0) {
+            logger.warn("Dropped {} of {} write-behind readings rejected by validation", rejected, readings.size());
+        }
+        done.putAll(chunk);
+    }
+    
+    private List<WaterLevelItemResult> processChunk(List<WaterLevelReadingDto> chunk, int firstIndex) {
+        WaterLevelItemResult[] results = new WaterLevelItemResult[chunk.size()];
+        try {
+            applyChunk(chunk, firstIndex, results, false);
+        } catch (RuntimeException e) {
+            logger.warn("Bulk water-level chunk starting at {} failed", firstIndex, e);
+            for (int i = 0; i < chunk.size(); i++) {
+                if (results[i] == null || results[i].isSuccess()) {
+                    results[i] = WaterLevelItemResult.failure(firstIndex + i, chunk.get(i).getId(),
+                            "Update failed: " + e.getMessage());
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+    
+    /**
+     * Validate and write a chunk in one transaction, filling in a result per reading
+     * @param buffered whether the readings come from the write-behind buffer; those were accepted
+     *                 in arrival order and are written in that order even if another write has
+     *                 since recorded a later timestamp
+     * @throws RuntimeException if the transaction failed; no reading of the chunk was written
+     */
+    private void applyChunk(List<WaterLevelReadingDto> chunk, int firstIndex, WaterLevelItemResult[] results,
+                            boolean buffered) {
+        List<Integer> valid = new ArrayList<>(chunk.size());
+        LocalDateTime receivedAt = LocalDateTime.now();
+        for (int i = 0; i < chunk.size(); i++) {
+            WaterLevelReadingDto reading = chunk.get(i);
+            String error = validate(reading, receivedAt);
+            if (error != null) {
+                results[i] = WaterLevelItemResult.failure(firstIndex + i, reading == null ? null : reading.getId(), error);
+            } else {
+                valid.add(i);
+            }
+        }
+        // Apply each reservoir's readings oldest first
+        valid.sort(Comparator.comparing(i -> timestamp(chunk.get(i), receivedAt)));
+        
+        Map<Long, String> previousStatuses = new HashMap<>();
+        Map<Long, WaterReservoir> written = new LinkedHashMap<>();
+        // A chunk that raced a concurrent write on one of its reservoirs is reloaded and reapplied
+        optimisticRetry.run(() -> {
+            previousStatuses.clear();
+            written.clear();
+            transactionTemplate.executeWithoutResult(transaction -> {
+                List<Long> ids = valid.stream()
+                        .map(i -> chunk.get(i).getId())
+                        .distinct()
+                        .collect(Collectors.toList());
+                Map<Long, WaterReservoir> reservoirs = waterReservoirRepository.findAllById(ids).stream()
+                        .collect(Collectors.toMap(WaterReservoir::getId, Function.identity()));
+                for (int i : valid) {
+                    WaterLevelReadingDto reading = chunk.get(i);
+                    WaterReservoir reservoir = reservoirs.get(reading.getId());
+                    LocalDateTime readingTime = timestamp(reading, receivedAt);
+                    String error = check(reservoir, reading, readingTime, buffered);
+                    if (error != null) {
+                        results[i] = WaterLevelItemResult.failure(firstIndex + i, reading.getId(), error);
+                        continue;
+                    }
+                    previousStatuses.putIfAbsent(reservoir.getId(), reservoir.getStatus());
+                    waterReservoirService.applyReading(reservoir, reading.getCurrentLevelM3(), readingTime);
+                    written.put(reservoir.getId(), reservoir);
+                    results[i] = WaterLevelItemResult.success(firstIndex + i, reading.getId(), reservoir.getStatus());
+                }
+                for (WaterReservoir reservoir : written.values()) {
+                    // Delivered to the indexes once the transaction commits
+                    eventPublisher.publishEvent(new ReservoirChangedEvent(reservoir));
+                }
+            });
+            return null;
+        });
+        for (WaterReservoir reservoir : written.values()) {
+            reservoirCache.invalidate(reservoir, previousStatuses.get(reservoir.getId()));
+        }
+    }
+    
+    private String validate(WaterLevelReadingDto reading, LocalDateTime receivedAt) {
+        if (reading == null) {
+            return "Malformed reading";
+        }
+        if (reading.getId() == null) {
+            return "Reservoir ID is required";
+        }
+        if (reading.getCurrentLevelM3() == null) {
+            return "Current level is required";
+        }
+        if (reading.getCurrentLevelM3().signum() < 0) {
+            return "Current level must not be negative";
+        }
+        if (reading.getTimestamp() != null && reading.getTimestamp().isAfter(receivedAt.plus(maxClockSkew))) {
+            return "Reading timestamp is in the future";
+        }
+        return null;
+    }
+    
+    private static String check(WaterReservoir reservoir, WaterLevelReadingDto reading, LocalDateTime readingTime,
+                                boolean buffered) {
+        if (reservoir == null) {
+            return "Reservoir not found";
+        }
+        BigDecimal capacity = reservoir.getTotalCapacityM3();
+        if (capacity != null && reading.getCurrentLevelM3().compareTo(capacity) > 0) {
+            return "Current level exceeds total capacity";
+        }
+        if (!buffered && reservoir.getLastUpdated() != null && readingTime.isBefore(reservoir.getLastUpdated())) {
+            return "Reading is older than the last update";
+        }
+        return null;
+    }
+    
+    private static LocalDateTime timestamp(WaterLevelReadingDto reading, LocalDateTime receivedAt) {
+        return reading.getTimestamp() == null ? receivedAt : reading.getTimestamp();
+    }
+}
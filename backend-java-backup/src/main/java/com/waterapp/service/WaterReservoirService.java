@@ -1,31 +1,226 @@
 package com.waterapp.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.waterapp.dto.CursorPage;
+import com.waterapp.dto.GeoPointDto;
+import com.waterapp.dto.MapClusterDto;
+import com.waterapp.dto.NearestBatchRequest;
+import com.waterapp.dto.NearestReservoirsResult;
+import com.waterapp.dto.ReservoirDistanceDto;
+import com.waterapp.dto.ReservoirLevelDto;
 import com.waterapp.dto.WaterReservoirDto;
+import com.waterapp.entity.ReservoirStatusThresholds;
 import com.waterapp.entity.WaterReservoir;
+import com.waterapp.event.ReservoirChangedEvent;
+import com.waterapp.event.WriteBehindFlushRequestedEvent;
+import com.waterapp.event.WaterLevelRecordedEvent;
+import com.waterapp.index.DistanceMatch;
+import com.waterapp.index.KdTreeIndex;
+import com.waterapp.index.MapClusterIndex;
+import com.waterapp.index.RegionRollupIndex;
+import com.waterapp.index.RegionStatistics;
+import com.waterapp.index.ReservoirColumnStore;
+import com.waterapp.index.ReservoirStateStore;
+import com.waterapp.index.ReservoirVersionIndex;
+import com.waterapp.index.SpatialGridIndex;
+import com.waterapp.index.StatusCounterIndex;
+import com.waterapp.index.TrigramIndex;
 import com.waterapp.repository.WaterReservoirRepository;
+import com.waterapp.util.CursorCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiFunction;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class WaterReservoirService {
     
+    private static final Logger logger = LoggerFactory.getLogger(WaterReservoirService.class);
+    
+    // Lower bound for the first page of the runout-ordered keyset
+    private static final LocalDateTime RUNOUT_CURSOR_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    
+    // Ids per IN query when loading many reservoirs by id
+    private static final int ID_CHUNK_SIZE = 500;
+    
     @Autowired
     private WaterReservoirRepository waterReservoirRepository;
     
+    @Autowired
+    private SpatialGridIndex spatialGridIndex;
+    
+    @Autowired
+    private KdTreeIndex kdTreeIndex;
+    
+    @Autowired
+    private TrigramIndex trigramIndex;
+    
+    @Autowired
+    private StatusCounterIndex statusCounterIndex;
+    
+    @Autowired
+    private RegionRollupIndex regionRollupIndex;
+    
+    @Autowired
+    private RunoutProjectionEngine runoutProjectionEngine;
+    
+    @Autowired
+    private ReservoirVersionIndex reservoirVersionIndex;
+    
+    @Autowired
+    private ReservoirCache reservoirCache;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private WriteBehindBuffer writeBehindBuffer;
+    
+    @Autowired
+    private ReservoirStateStore reservoirStateStore;
+    
+    @Autowired
+    private ReservoirColumnStore reservoirColumnStore;
+    
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+    
+    @Autowired
+    private MapClusterIndex mapClusterIndex;
+    
+    private final TransactionTemplate transactionTemplate;
+    
+    public WaterReservoirService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
     /**
-     * Get all active reservoirs
-     * @return List of all active reservoirs
+     * Get active reservoirs, one page at a time
+     * @param cursor cursor of the previous page, null for the first page
+     * @param limit maximum page size
+     * @return page of active reservoirs ordered by id
      */
-    public List<WaterReservoirDto> getAllActiveReservoirs() {
-        List<WaterReservoir> reservoirs = waterReservoirRepository.findByIsActiveTrue();
-        return reservoirs.stream()
-                .map(WaterReservoirDto::new)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPage<WaterReservoirDto> getAllActiveReservoirs(String cursor, int limit) {
+        return writeBehindBuffer.overlay(idPage(cursor, limit, waterReservoirRepository::findActiveDtos));
+    }
+    
+    /**
+     * Write every active reservoir to a stream as a JSON array, without holding the result in memory
+     * @param out response stream
+     * @throws IOException if writing fails
+     */
+    @Transactional(readOnly = true)
+    public void exportActiveReservoirs(OutputStream out) throws IOException {
+        try (Stream<WaterReservoirDto> reservoirs = waterReservoirRepository.streamActiveDtos();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            Iterator<WaterReservoirDto> iterator = reservoirs.iterator();
+            while (iterator.hasNext()) {
+                generator.writeObject(writeBehindBuffer.overlay(iterator.next()));
+            }
+            generator.writeEndArray();
+        }
+    }
+    
+    /**
+     * Write every reservoir matching a location search to a stream as a JSON array, best matches first
+     * @param searchTerm search term
+     * @param out response stream
+     * @throws IOException if writing fails
+     */
+    @Transactional(readOnly = true)
+    public void exportSearchResults(String searchTerm, OutputStream out) throws IOException {
+        if (searchTerm == null || searchTerm.trim().isEmpty()) {
+            exportActiveReservoirs(out);
+            return;
+        }
+        List<TrigramIndex.SearchHit> hits = trigramIndex.search(searchTerm,
+                EnumSet.allOf(TrigramIndex.Field.class), null, Integer.MAX_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            // Load and write the ranked hits a chunk at a time
+            for (int from = 0; from < hits.size(); from += ID_CHUNK_SIZE) {
+                List<Long> ids = hits.subList(from, Math.min(from + ID_CHUNK_SIZE, hits.size())).stream()
+                        .map(TrigramIndex.SearchHit::getReservoirId)
+                        .collect(Collectors.toList());
+                for (WaterReservoirDto reservoir : loadInOrder(ids)) {
+                    generator.writeObject(reservoir);
+                }
+                generator.flush();
+            }
+            generator.writeEndArray();
+        }
+    }
+    
+    /**
+     * Get the current version of a reservoir without touching the database
+     * @param id reservoir ID
+     * @return version, null if the reservoir is unknown
+     */
+    public ReservoirVersionIndex.Version getReservoirVersion(Long id) {
+        return reservoirVersionIndex.get(id);
+    }
+    
+    /**
+     * Get the current version of the whole dataset without touching the database
+     * @return dataset version
+     */
+    public ReservoirVersionIndex.Version getDatasetVersion() {
+        return reservoirVersionIndex.getDatasetVersion();
+    }
+    
+    /**
+     * Get the ETag value of a dataset version, unique across restarts
+     * @param version dataset version
+     * @return ETag value without quotes
+     */
+    public String getDatasetTag(ReservoirVersionIndex.Version version) {
+        return "d" + reservoirVersionIndex.getEpoch() + "." + version.getRevision();
+    }
+    
+    /**
+     * Get the current level and status of a reservoir without touching the database
+     * @param id reservoir ID
+     * @return Optional containing the level if the reservoir is known
+     */
+    public Optional<ReservoirLevelDto> getCurrentLevel(Long id) {
+        ReservoirStateStore.State state = reservoirStateStore.get(id);
+        if (state == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new ReservoirLevelDto(state.getId(), state.getCurrentLevelM3(),
+                state.getCurrentLevelPercentage(), state.getStatus(), state.getLastUpdated(), state.getRevision()));
     }
     
     /**
@@ -33,84 +228,171 @@ public class WaterReservoirService {
      * @param id reservoir ID
      * @return Optional containing reservoir if found
      */
+    @Transactional(readOnly = true)
     public Optional<WaterReservoirDto> getReservoirById(Long id) {
-        Optional<WaterReservoir> reservoir = waterReservoirRepository.findById(id);
-        return reservoir.map(WaterReservoirDto::new);
+        return Optional.ofNullable(reservoirStateStore.overlay(writeBehindBuffer.overlay(reservoirCache.getById(id,
+                key -> waterReservoirRepository.findDtoById(key).orElse(null)))));
     }
     
     /**
      * Search reservoirs by location (county, sub-county, ward, or name)
      * @param searchTerm search term
-     * @return List of matching reservoirs
+     * @param cursor cursor of the previous page, null for the first page
+     * @param limit maximum page size
+     * @return page of matching reservoirs, best matches first
      */
-    public List<WaterReservoirDto> searchReservoirsByLocation(String searchTerm) {
+    @Transactional(readOnly = true)
+    public CursorPage<WaterReservoirDto> searchReservoirsByLocation(String searchTerm, String cursor, int limit) {
         if (searchTerm == null || searchTerm.trim().isEmpty()) {
-            return getAllActiveReservoirs();
+            return getAllActiveReservoirs(cursor, limit);
         }
         
-        List<WaterReservoir> reservoirs = waterReservoirRepository.searchReservoirs(searchTerm.trim());
-        return reservoirs.stream()
-                .map(WaterReservoirDto::new)
-                .collect(Collectors.toList());
+        return searchPage(searchTerm, EnumSet.allOf(TrigramIndex.Field.class), cursor, limit);
     }
     
     /**
      * Get reservoirs by county
      * @param county county name
-     * @return List of reservoirs in the specified county
+     * @param cursor cursor of the previous page, null for the first page
+     * @param limit maximum page size
+     * @return page of reservoirs in the specified county ordered by id
      */
-    public List<WaterReservoirDto> getReservoirsByCounty(String county) {
-        List<WaterReservoir> reservoirs = waterReservoirRepository.findByCountyIgnoreCase(county);
-        return reservoirs.stream()
-                .map(WaterReservoirDto::new)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPage<WaterReservoirDto> getReservoirsByCounty(String county, String cursor, int limit) {
+        return writeBehindBuffer.overlay(reservoirCache.getList(ReservoirCache.ListType.COUNTY, county, cursor, limit, () ->
+                idPage(cursor, limit, (afterId, pageLimit) ->
+                        waterReservoirRepository.findDtosByCounty(county, afterId, pageLimit))));
     }
     
     /**
      * Get reservoirs by sub-county
      * @param subCounty sub-county name
-     * @return List of reservoirs in the specified sub-county
+     * @param cursor cursor of the previous page, null for the first page
+     * @param limit maximum page size
+     * @return page of reservoirs in the specified sub-county ordered by id
      */
-    public List<WaterReservoirDto> getReservoirsBySubCounty(String subCounty) {
-        List<WaterReservoir> reservoirs = waterReservoirRepository.findBySubCountyIgnoreCase(subCounty);
-        return reservoirs.stream()
-                .map(WaterReservoirDto::new)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPage<WaterReservoirDto> getReservoirsBySubCounty(String subCounty, String cursor, int limit) {
+        return writeBehindBuffer.overlay(reservoirCache.getList(ReservoirCache.ListType.SUB_COUNTY, subCounty, cursor, limit, () ->
+                idPage(cursor, limit, (afterId, pageLimit) ->
+                        waterReservoirRepository.findDtosBySubCounty(subCounty, afterId, pageLimit))));
     }
     
     /**
      * Get reservoirs by ward
      * @param ward ward name
-     * @return List of reservoirs in the specified ward
+     * @param cursor cursor of the previous page, null for the first page
+     * @param limit maximum page size
+     * @return page of reservoirs in the specified ward ordered by id
      */
-    public List<WaterReservoirDto> getReservoirsByWard(String ward) {
-        List<WaterReservoir> reservoirs = waterReservoirRepository.findByWardIgnoreCase(ward);
-        return reservoirs.stream()
-                .map(WaterReservoirDto::new)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPage<WaterReservoirDto> getReservoirsByWard(String ward, String cursor, int limit) {
+        return writeBehindBuffer.overlay(reservoirCache.getList(ReservoirCache.ListType.WARD, ward, cursor, limit, () ->
+                idPage(cursor, limit, (afterId, pageLimit) ->
+                        waterReservoirRepository.findDtosByWard(ward, afterId, pageLimit))));
     }
     
     /**
      * Get reservoirs by name
      * @param name reservoir name or part of it
-     * @return List of reservoirs matching the name
+     * @param cursor cursor of the previous page, null for the first page
+     * @param limit maximum page size
+     * @return page of reservoirs matching the name, best matches first
      */
-    public List<WaterReservoirDto> getReservoirsByName(String name) {
-        List<WaterReservoir> reservoirs = waterReservoirRepository.findByNameContainingIgnoreCase(name);
-        return reservoirs.stream()
-                .map(WaterReservoirDto::new)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPage<WaterReservoirDto> getReservoirsByName(String name, String cursor, int limit) {
+        return searchPage(name, EnumSet.of(TrigramIndex.Field.NAME), cursor, limit);
     }
     
     /**
      * Get reservoirs by status
      * @param status GOOD, WARNING, or CRITICAL
-     * @return List of reservoirs with the specified status
+     * @param cursor cursor of the previous page, null for the first page
+     * @param limit maximum page size
+     * @return page of reservoirs with the specified status ordered by id
      */
-    public List<WaterReservoirDto> getReservoirsByStatus(String status) {
-        List<WaterReservoir> reservoirs = waterReservoirRepository.findByStatus(status.toUpperCase());
-        return reservoirs.stream()
-                .map(WaterReservoirDto::new)
+    @Transactional(readOnly = true)
+    public CursorPage<WaterReservoirDto> getReservoirsByStatus(String status, String cursor, int limit) {
+        return reservoirStateStore.overlay(writeBehindBuffer.overlay(reservoirCache.getList(ReservoirCache.ListType.STATUS,
+                status, cursor, limit, () -> idPage(cursor, limit, (afterId, pageLimit) ->
+                        waterReservoirRepository.findDtosByStatus(status.toUpperCase(), afterId, pageLimit)))));
+    }
+    
+    /**
+     * Filter active reservoirs by region, status, water quality and fill percentage over the
+     * in-memory column store; only the returned page is loaded from the database
+     * @param county county name, null for any
+     * @param subCounty sub-county name, null for any
+     * @param ward ward name, null for any
+     * @param status comma-separated statuses, null for any
+     * @param quality comma-separated water qualities, null for any
+     * @param minPercentage minimum fill percentage (inclusive), null for none
+     * @param maxPercentage maximum fill percentage (inclusive), null for none
+     * @param cursor cursor of the previous page, null for the first page
+     * @param limit maximum page size
+     * @return page of matching reservoirs ordered by id
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<WaterReservoirDto> filterReservoirs(String county, String subCounty, String ward, String status,
+                                                          String quality, BigDecimal minPercentage,
+                                                          BigDecimal maxPercentage, String cursor, int limit) {
+        ReservoirColumnStore.Filter filter = columnFilter(county, subCounty, ward, status, quality,
+                minPercentage, maxPercentage);
+        long afterId = cursor == null ? 0 : parseLong(CursorCodec.decode(cursor, 1)[0]);
+        long[] matches = reservoirColumnStore.filter(filter, afterId, limit + 1);
+        String nextCursor = null;
+        int count = matches.length;
+        if (count > limit) {
+            count = limit;
+            nextCursor = CursorCodec.encode(matches[limit - 1]);
+        }
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(matches[i]);
+        }
+        return new CursorPage<>(loadInOrder(ids), nextCursor);
+    }
+    
+    /**
+     * Aggregate the active reservoirs matching a filter over the in-memory column store
+     * @param county county name, null for any
+     * @param subCounty sub-county name, null for any
+     * @param ward ward name, null for any
+     * @param status comma-separated statuses, null for any
+     * @param quality comma-separated water qualities, null for any
+     * @param minPercentage minimum fill percentage (inclusive), null for none
+     * @param maxPercentage maximum fill percentage (inclusive), null for none
+     * @return statistics of the matching reservoirs
+     */
+    public RegionStatistics getFilterStatistics(String county, String subCounty, String ward, String status,
+                                                String quality, BigDecimal minPercentage, BigDecimal maxPercentage) {
+        return reservoirColumnStore.aggregate(columnFilter(county, subCounty, ward, status, quality,
+                minPercentage, maxPercentage));
+    }
+    
+    /**
+     * Get map clusters of the active reservoirs in a viewport from the in-memory cluster index
+     * @param minLatitude southern edge
+     * @param maxLatitude northern edge
+     * @param minLongitude western edge
+     * @param maxLongitude eastern edge
+     * @param zoom map zoom level
+     * @return clusters with centroid, count and worst status; single reservoirs carry their id
+     */
+    public List<MapClusterDto> getViewportClusters(double minLatitude, double maxLatitude, double minLongitude,
+                                                   double maxLongitude, int zoom) {
+        if (minLatitude < -90 || maxLatitude > 90 || minLatitude > maxLatitude) {
+            throw new IllegalArgumentException("Latitudes must satisfy -90 <= minLat <= maxLat <= 90");
+        }
+        if (minLongitude < -180 || maxLongitude > 180 || minLongitude > maxLongitude) {
+            throw new IllegalArgumentException("Longitudes must satisfy -180 <= minLon <= maxLon <= 180");
+        }
+        if (zoom < 0) {
+            throw new IllegalArgumentException("Zoom must not be negative");
+        }
+        return mapClusterIndex.findInViewport(minLatitude, maxLatitude, minLongitude, maxLongitude, zoom).stream()
+                .map(cluster -> new MapClusterDto(cluster.getLatitude(), cluster.getLongitude(), cluster.getCount(),
+                        cluster.getWorstStatus(), cluster.getReservoirId()))
                 .collect(Collectors.toList());
     }
     
@@ -119,78 +401,482 @@ public class WaterReservoirService {
      * @param latitude center latitude
      * @param longitude center longitude
      * @param radiusKm radius in kilometers
-     * @return List of reservoirs within the specified radius
+     * @param cursor cursor of the previous page, null for the first page
+     * @param limit maximum page size
+     * @return page of reservoirs within the specified radius, nearest first
      */
-    public List<WaterReservoirDto> getReservoirsWithinRadius(BigDecimal latitude, BigDecimal longitude, double radiusKm) {
-        List<WaterReservoir> reservoirs = waterReservoirRepository.findReservoirsWithinRadius(latitude, longitude, radiusKm);
-        return reservoirs.stream()
-                .map(WaterReservoirDto::new)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPage<WaterReservoirDto> getReservoirsWithinRadius(BigDecimal latitude, BigDecimal longitude,
+                                                                   double radiusKm, String cursor, int limit) {
+        DistanceMatch after = null;
+        if (cursor != null) {
+            String[] key = CursorCodec.decode(cursor, 2);
+            after = new DistanceMatch(parseLong(key[1]), parseDouble(key[0]));
+        }
+        List<DistanceMatch> matches = spatialGridIndex.findWithinRadius(
+                latitude.doubleValue(), longitude.doubleValue(), radiusKm, after, limit + 1);
+        String nextCursor = null;
+        if (matches.size() > limit) {
+            matches = matches.subList(0, limit);
+            DistanceMatch last = matches.get(limit - 1);
+            nextCursor = CursorCodec.encode(last.getDistanceKm(), last.getReservoirId());
+        }
+        return new CursorPage<>(toDtosWithDistance(matches), nextCursor);
     }
     
     /**
-     * Get critical reservoirs (water level below 40%)
-     * @return List of critical reservoirs
+     * Get the k reservoirs closest to a point
+     * @param latitude query latitude
+     * @param longitude query longitude
+     * @param k maximum number of reservoirs to return
+     * @param status comma-separated statuses to accept, null for any
+     * @param active required active flag, null for any
+     * @return List of the nearest matching reservoirs, nearest first
+     * @throws IllegalArgumentException if a status is unknown
      */
-    public List<WaterReservoirDto> getCriticalReservoirs() {
-        List<WaterReservoir> reservoirs = waterReservoirRepository.findCriticalReservoirs();
-        return reservoirs.stream()
-                .map(WaterReservoirDto::new)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public List<WaterReservoirDto> getNearestReservoirs(BigDecimal latitude, BigDecimal longitude, int k,
+                                                        String status, Boolean active) {
+        List<DistanceMatch> matches = kdTreeIndex.findNearest(
+                latitude.doubleValue(), longitude.doubleValue(), k, parseStatusMask(status), active);
+        return toDtosWithDistance(matches);
+    }
+    
+    /**
+     * Answer a k-nearest query for many points at once
+     * @param request points and filters
+     * @return one result per requested point, in request order
+     * @throws IllegalArgumentException if a status is unknown
+     */
+    @Transactional(readOnly = true)
+    public List<NearestReservoirsResult> getNearestReservoirsBatch(NearestBatchRequest request) {
+        List<GeoPointDto> points = request.getPoints();
+        double[] latitudes = new double[points.size()];
+        double[] longitudes = new double[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            latitudes[i] = points.get(i).getLatitude().doubleValue();
+            longitudes[i] = points.get(i).getLongitude().doubleValue();
+        }
+        
+        List<List<DistanceMatch>> batch = kdTreeIndex.findNearestBatch(latitudes, longitudes, request.getK(),
+                parseStatusMask(request.getStatus()), request.getActive());
+        
+        // Load every distinct reservoir once for the whole batch
+        Set<Long> ids = new HashSet<>();
+        for (List<DistanceMatch> matches : batch) {
+            for (DistanceMatch match : matches) {
+                ids.add(match.getReservoirId());
+            }
+        }
+        Map<Long, WaterReservoirDto> reservoirsById = loadById(ids);
+        
+        List<NearestReservoirsResult> results = new ArrayList<>(points.size());
+        for (int i = 0; i < points.size(); i++) {
+            List<ReservoirDistanceDto> reservoirs = new ArrayList<>();
+            for (DistanceMatch match : batch.get(i)) {
+                WaterReservoirDto reservoir = reservoirsById.get(match.getReservoirId());
+                if (reservoir != null) {
+                    reservoirs.add(new ReservoirDistanceDto(reservoir.getId(), reservoir.getName(),
+                            reservoir.getStatus(), match.getDistanceKm()));
+                }
+            }
+            GeoPointDto point = points.get(i);
+            results.add(new NearestReservoirsResult(point.getLatitude(), point.getLongitude(), reservoirs));
+        }
+        return results;
+    }
+    
+    /**
+     * Get critical reservoirs (water level below the warning threshold), lowest level first
+     * @param cursor cursor of the previous page, null for the first page
+     * @param limit maximum page size
+     * @return page of critical reservoirs ordered by level and id
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<WaterReservoirDto> getCriticalReservoirs(String cursor, int limit) {
+        return reservoirStateStore.overlay(writeBehindBuffer.overlay(reservoirCache.getList(ReservoirCache.ListType.CRITICAL,
+                null, cursor, limit, () -> loadCriticalReservoirs(cursor, limit))));
+    }
+    
+    private CursorPage<WaterReservoirDto> loadCriticalReservoirs(String cursor, int limit) {
+        BigDecimal afterPercentage = new BigDecimal("-1");
+        long afterId = 0;
+        if (cursor != null) {
+            String[] key = CursorCodec.decode(cursor, 2);
+            afterPercentage = parseDecimal(key[0]);
+            afterId = parseLong(key[1]);
+        }
+        List<WaterReservoirDto> reservoirs = waterReservoirRepository.findCriticalReservoirs(
+                afterPercentage, afterId, Limit.of(limit + 1));
+        String nextCursor = null;
+        if (reservoirs.size() > limit) {
+            reservoirs = reservoirs.subList(0, limit);
+            WaterReservoirDto last = reservoirs.get(limit - 1);
+            nextCursor = CursorCodec.encode(last.getCurrentLevelPercentage().toPlainString(), last.getId());
+        }
+        return new CursorPage<>(reservoirs, nextCursor);
     }
     
     /**
      * Get reservoirs that are estimated to run out soon
      * @param days number of days to check
-     * @return List of reservoirs running out soon
+     * @param cursor cursor of the previous page, null for the first page
+     * @param limit maximum page size
+     * @return page of reservoirs running out within the given days, soonest first
      */
-    public List<WaterReservoirDto> getReservoirsRunningOutSoon(int days) {
-        List<WaterReservoir> reservoirs = waterReservoirRepository.findReservoirsRunningOutSoon(days);
-        return reservoirs.stream()
-                .map(WaterReservoirDto::new)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPage<WaterReservoirDto> getReservoirsRunningOutSoon(int days, String cursor, int limit) {
+        LocalDateTime afterDate = RUNOUT_CURSOR_START;
+        long afterId = 0;
+        if (cursor != null) {
+            String[] key = CursorCodec.decode(cursor, 2);
+            afterDate = parseDateTime(key[0]);
+            afterId = parseLong(key[1]);
+        }
+        LocalDateTime cutoff = LocalDateTime.now().plusDays(days);
+        List<WaterReservoirDto> reservoirs = waterReservoirRepository.findReservoirsRunningOutSoon(
+                cutoff, afterDate, afterId, Limit.of(limit + 1));
+        String nextCursor = null;
+        if (reservoirs.size() > limit) {
+            reservoirs = reservoirs.subList(0, limit);
+            WaterReservoirDto last = reservoirs.get(limit - 1);
+            nextCursor = CursorCodec.encode(last.getEstimatedRunoutDate(), last.getId());
+        }
+        return writeBehindBuffer.overlay(new CursorPage<>(reservoirs, nextCursor));
     }
     
     /**
-     * Update reservoir water level
+     * Update reservoir water level. A save based on a copy that a concurrent update has changed
+     * fails its version check and is retried on a fresh copy, so no update is lost.
      * @param id reservoir ID
      * @param currentLevelM3 new current water level
      * @return Updated reservoir DTO
+     * @throws IllegalArgumentException if the level is negative or exceeds the total capacity
      */
     public Optional<WaterReservoirDto> updateWaterLevel(Long id, BigDecimal currentLevelM3) {
-        Optional<WaterReservoir> reservoirOpt = waterReservoirRepository.findById(id);
+        if (currentLevelM3.signum() < 0) {
+            throw new IllegalArgumentException("Current level must not be negative");
+        }
+        if (writeBehindBuffer.isEnabled()) {
+            // Accept the reading now; WaterLevelIngestionService writes it with the next batch
+            Optional<WaterReservoirDto> current = getReservoirById(id);
+            if (current.isEmpty()) {
+                return Optional.empty();
+            }
+            checkCapacity(current.get().getTotalCapacityM3(), currentLevelM3);
+            WaterReservoirDto updated = writeBehindBuffer.add(current.get(), currentLevelM3, LocalDateTime.now());
+            if (!Objects.equals(updated.getStatus(), current.get().getStatus())) {
+                // A status change moves the reservoir between lists and counters: write it through
+                eventPublisher.publishEvent(new WriteBehindFlushRequestedEvent(id));
+                return getReservoirById(id);
+            }
+            // The indexes, counters, alerts and subscribers see the reading before it is written.
+            // The cached entries stay: reads overlay the buffered level, and the flush evicts them
+            // once the reading has committed.
+            eventPublisher.publishEvent(new ReservoirChangedEvent(toEntity(updated)));
+            return Optional.of(updated);
+        }
         
-        if (reservoirOpt.isPresent()) {
-            WaterReservoir reservoir = reservoirOpt.get();
-            reservoir.setCurrentLevelM3(currentLevelM3);
-            reservoir.setLastUpdated(LocalDateTime.now());
+        // Reject unknown reservoirs and impossible levels from memory before opening a transaction
+        Optional<WaterReservoirDto> known = getReservoirById(id);
+        if (known.isEmpty()) {
+            return Optional.empty();
+        }
+        checkCapacity(known.get().getTotalCapacityM3(), currentLevelM3);
+        
+        return optimisticRetry.run(() -> {
+            String[] previousStatus = new String[1];
+            // Events are delivered on commit, so a failed attempt records nothing
+            WaterReservoir updatedReservoir = transactionTemplate.execute(transaction -> {
+                Optional<WaterReservoir> reservoirOpt = waterReservoirRepository.findById(id);
+                if (reservoirOpt.isEmpty()) {
+                    return null;
+                }
+                WaterReservoir reservoir = reservoirOpt.get();
+                checkCapacity(reservoir.getTotalCapacityM3(), currentLevelM3);
+                previousStatus[0] = reservoir.getStatus();
+                applyReading(reservoir, currentLevelM3, LocalDateTime.now());
+                
+                WaterReservoir saved = waterReservoirRepository.save(reservoir);
+                eventPublisher.publishEvent(new ReservoirChangedEvent(saved));
+                return saved;
+            });
             
-            WaterReservoir updatedReservoir = waterReservoirRepository.save(reservoir);
+            if (updatedReservoir == null) {
+                return Optional.empty();
+            }
+            reservoirCache.invalidate(updatedReservoir, previousStatus[0]);
             return Optional.of(new WaterReservoirDto(updatedReservoir));
+        });
+    }
+    
+    private static void checkCapacity(BigDecimal capacity, BigDecimal currentLevelM3) {
+        if (capacity != null && currentLevelM3.compareTo(capacity) > 0) {
+            throw new IllegalArgumentException("Current level exceeds total capacity");
         }
-        
-        return Optional.empty();
     }
     
     /**
-     * Get reservoir statistics
+     * Detached reservoir holding the state of a DTO, for the indexes
+     * @param reservoir reservoir DTO
+     * @return entity that is not attached to the persistence context
+     */
+    private static WaterReservoir toEntity(WaterReservoirDto reservoir) {
+        WaterReservoir entity = new WaterReservoir();
+        entity.setId(reservoir.getId());
+        entity.setName(reservoir.getName());
+        entity.setCounty(reservoir.getCounty());
+        entity.setSubCounty(reservoir.getSubCounty());
+        entity.setWard(reservoir.getWard());
+        entity.setSpecificLocation(reservoir.getSpecificLocation());
+        entity.setLatitude(reservoir.getLatitude());
+        entity.setLongitude(reservoir.getLongitude());
+        entity.setTotalCapacityM3(reservoir.getTotalCapacityM3());
+        entity.setCurrentLevelM3(reservoir.getCurrentLevelM3());
+        entity.setCurrentLevelPercentage(reservoir.getCurrentLevelPercentage());
+        entity.setWaterQuality(reservoir.getWaterQuality());
+        entity.setLastUpdated(reservoir.getLastUpdated());
+        entity.setEstimatedRunoutDate(reservoir.getEstimatedRunoutDate());
+        entity.setDepletionRateM3PerDay(reservoir.getDepletionRateM3PerDay());
+        entity.setIsActive(reservoir.getIsActive());
+        entity.setDescription(reservoir.getDescription());
+        entity.setManagedBy(reservoir.getManagedBy());
+        entity.setContactPhone(reservoir.getContactPhone());
+        entity.setContactEmail(reservoir.getContactEmail());
+        entity.setRevision(reservoir.getRevision());
+        return entity;
+    }
+    
+    /**
+     * Apply a level reading to a loaded reservoir: projects the runout date, sets the level,
+     * bumps the revision and publishes the reading for the history. The caller saves the reservoir.
+     * @param reservoir reservoir to update
+     * @param currentLevelM3 new current level in cubic meters
+     * @param readingTime time the reading was taken
+     */
+    void applyReading(WaterReservoir reservoir, BigDecimal currentLevelM3, LocalDateTime readingTime) {
+        runoutProjectionEngine.applyReading(reservoir, currentLevelM3, readingTime);
+        reservoir.setCurrentLevelM3(currentLevelM3);
+        reservoir.setLastUpdated(readingTime);
+        reservoir.setRevision(reservoir.getRevision() + 1);
+        if (reservoir.getId() != null) {
+            eventPublisher.publishEvent(new WaterLevelRecordedEvent(reservoir.getId(), readingTime,
+                    reservoir.getCurrentLevelM3(), reservoir.getCurrentLevelPercentage()));
+        }
+    }
+    
+    /**
+     * Get reservoir statistics from the incrementally maintained status counters
      * @return Statistics about reservoirs
      */
     public ReservoirStatistics getReservoirStatistics() {
-        List<WaterReservoir> allReservoirs = waterReservoirRepository.findByIsActiveTrue();
-        
-        long totalReservoirs = allReservoirs.size();
-        long goodReservoirs = allReservoirs.stream()
-                .filter(r -> r.getStatus().equals("GOOD"))
-                .count();
-        long warningReservoirs = allReservoirs.stream()
-                .filter(r -> r.getStatus().equals("WARNING"))
-                .count();
-        long criticalReservoirs = allReservoirs.stream()
-                .filter(r -> r.getStatus().equals("CRITICAL"))
-                .count();
+        return new ReservoirStatistics(statusCounterIndex.total(),
+                statusCounterIndex.count(ReservoirStatusThresholds.GOOD),
+                statusCounterIndex.count(ReservoirStatusThresholds.WARNING),
+                statusCounterIndex.count(ReservoirStatusThresholds.CRITICAL));
+    }
+    
+    /**
+     * Get the aggregates of a county, sub-county or ward
+     * @param level hierarchy level: county, subcounty or ward
+     * @param name region name, case-insensitive
+     * @param drillDown whether to include the whole subtree below the region
+     * @return Optional containing the region statistics if the region has active reservoirs
+     */
+    public Optional<RegionStatistics> getRegionStatistics(String level, String name, boolean drillDown) {
+        return regionRollupIndex.find(RegionRollupIndex.Level.fromPathName(level), name, drillDown);
+    }
+    
+    /**
+     * Get the aggregates of every county with their sub-counties and wards
+     * @return county statistics ordered by name
+     */
+    public List<RegionStatistics> getAllRegionStatistics() {
+        return regionRollupIndex.findAll();
+    }
+    
+    /**
+     * Correct any drift in the statistics counters with a single aggregate query. The counters
+     * are moved by the difference to a snapshot taken before the query, and only when no
+     * transition was applied while it ran, so concurrent writes are never overwritten.
+     */
+    @Scheduled(fixedDelayString = "${reservoir.statistics.reconcile-interval-ms:300000}",
+               initialDelayString = "${reservoir.statistics.reconcile-interval-ms:300000}")
+    @Transactional(readOnly = true)
+    public void reconcileStatistics() {
+        StatusCounterIndex.Snapshot before = statusCounterIndex.snapshot();
+        Map<String, Long> counts = new HashMap<>();
+        for (Object[] row : waterReservoirRepository.countActiveByStatus()) {
+            counts.put((String) row[0], (Long) row[1]);
+        }
+        if (!statusCounterIndex.reconcile(counts, before)) {
+            logger.debug("Statistics changed while they were counted, reconciling next time");
+        }
+    }
+    
+    /**
+     * Parse a comma-separated status filter
+     * @param status statuses such as "GOOD,WARNING", may be null
+     * @return status mask for {@link KdTreeIndex}, 0 for no filter
+     */
+    private int parseStatusMask(String status) {
+        if (status == null || status.trim().isEmpty()) {
+            return 0;
+        }
+        return KdTreeIndex.statusMask(Arrays.asList(status.split(",")));
+    }
+    
+    private ReservoirColumnStore.Filter columnFilter(String county, String subCounty, String ward, String status,
+                                                    String quality, BigDecimal minPercentage,
+                                                    BigDecimal maxPercentage) {
+        int qualityMask = quality == null || quality.trim().isEmpty() ? 0
+                : ReservoirColumnStore.qualityMask(Arrays.asList(quality.split(",")));
+        return new ReservoirColumnStore.Filter(county, subCounty, ward, parseStatusMask(status), qualityMask,
+                minPercentage, maxPercentage);
+    }
+    
+    /**
+     * Run an id-ordered keyset query and turn the rows into a page
+     * @param cursor cursor of the previous page, null for the first page
+     * @param limit maximum page size
+     * @param query repository query taking the last seen id and a row limit
+     * @return page of DTOs
+     */
+    private CursorPage<WaterReservoirDto> idPage(String cursor, int limit,
+                                                 BiFunction<Long, Limit, List<WaterReservoirDto>> query) {
+        long afterId = cursor == null ? 0 : parseLong(CursorCodec.decode(cursor, 1)[0]);
+        // Fetch one extra row to find out whether another page exists
+        List<WaterReservoirDto> reservoirs = query.apply(afterId, Limit.of(limit + 1));
+        String nextCursor = null;
+        if (reservoirs.size() > limit) {
+            reservoirs = reservoirs.subList(0, limit);
+            nextCursor = CursorCodec.encode(reservoirs.get(limit - 1).getId());
+        }
+        return new CursorPage<>(reservoirs, nextCursor);
+    }
+    
+    /**
+     * Run a trigram search and turn the ranked hits into a page
+     * @param term search term
+     * @param fields fields to search
+     * @param cursor cursor of the previous page, null for the first page
+     * @param limit maximum page size
+     * @return page of DTOs, best matches first
+     */
+    private CursorPage<WaterReservoirDto> searchPage(String term, Set<TrigramIndex.Field> fields,
+                                                     String cursor, int limit) {
+        TrigramIndex.SearchHit after = null;
+        if (cursor != null) {
+            String[] key = CursorCodec.decode(cursor, 3);
+            after = new TrigramIndex.SearchHit(parseLong(key[2]), parseInt(key[0]), parseInt(key[1]));
+        }
+        List<TrigramIndex.SearchHit> hits = trigramIndex.search(term, fields, after, limit + 1);
+        String nextCursor = null;
+        if (hits.size() > limit) {
+            hits = hits.subList(0, limit);
+            TrigramIndex.SearchHit last = hits.get(limit - 1);
+            nextCursor = CursorCodec.encode(last.getScore(), last.getLength(), last.getReservoirId());
+        }
+        List<Long> ids = hits.stream()
+                .map(TrigramIndex.SearchHit::getReservoirId)
+                .collect(Collectors.toList());
+        return new CursorPage<>(loadInOrder(ids), nextCursor);
+    }
+    
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+    
+    private static int parseInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+    
+    private static double parseDouble(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+    
+    private static LocalDateTime parseDateTime(String value) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+    
+    private static BigDecimal parseDecimal(String value) {
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+    
+    /**
+     * Load reservoirs by id, keeping the order of the given ids
+     * @param ids reservoir ids, typically ranked by an index
+     * @return reservoirs that still exist, in id order
+     */
+    private List<WaterReservoirDto> loadInOrder(List<Long> ids) {
+        Map<Long, WaterReservoirDto> reservoirsById = loadById(ids);
+        List<WaterReservoirDto> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            WaterReservoirDto reservoir = reservoirsById.get(id);
+            if (reservoir != null) {
+                result.add(reservoir);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Load reservoirs by id as DTOs, at most {@link #ID_CHUNK_SIZE} ids per query
+     * @param ids reservoir ids
+     * @return DTOs keyed by id
+     */
+    private Map<Long, WaterReservoirDto> loadById(Collection<Long> ids) {
+        Map<Long, WaterReservoirDto> result = new HashMap<>();
+        List<Long> distinct = new ArrayList<>(new HashSet<>(ids));
+        for (int from = 0; from < distinct.size(); from += ID_CHUNK_SIZE) {
+            List<Long> chunk = distinct.subList(from, Math.min(from + ID_CHUNK_SIZE, distinct.size()));
+            for (WaterReservoirDto reservoir : waterReservoirRepository.findDtosByIdIn(chunk)) {
+                result.put(reservoir.getId(), writeBehindBuffer.overlay(reservoir));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Load the reservoirs behind index matches, keeping the match order
+     * @param matches index matches sorted by distance
+     * @return DTOs with their distance set
+     */
+    private List<WaterReservoirDto> toDtosWithDistance(List<DistanceMatch> matches) {
+        List<Long> ids = matches.stream()
+                .map(DistanceMatch::getReservoirId)
+                .collect(Collectors.toList());
+        Map<Long, WaterReservoirDto> reservoirsById = loadById(ids);
         
-        return new ReservoirStatistics(totalReservoirs, goodReservoirs, warningReservoirs, criticalReservoirs);
+        List<WaterReservoirDto> result = new ArrayList<>(matches.size());
+        for (DistanceMatch match : matches) {
+            WaterReservoirDto reservoir = reservoirsById.get(match.getReservoirId());
+            if (reservoir != null) {
+                reservoir.setDistanceKm(match.getDistanceKm());
+                result.add(reservoir);
+            }
+        }
+        return result;
     }
     
     /**
@@ -202,7 +888,7 @@ public class WaterReservoirService {
         private final long warningReservoirs;
         private final long criticalReservoirs;
         
-        public ReservoirStatistics(long totalReservoirs, long goodReservoirs, 
+        public ReservoirStatistics(long totalReservoirs, long goodReservoirs,
                                  long warningReservoirs, long criticalReservoirs) {
             this.totalReservoirs = totalReservoirs;
             this.goodReservoirs = goodReservoirs;
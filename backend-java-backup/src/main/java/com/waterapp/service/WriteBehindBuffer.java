@@ -0,0 +1,242 @@
+package com.waterapp.service;
+
+import com.waterapp.dto.CursorPage;
+import com.waterapp.dto.WaterLevelReadingDto;
+import com.waterapp.dto.WaterReservoirDto;
+import com.waterapp.entity.ReservoirStatusThresholds;
+import com.waterapp.event.WriteBehindFlushRequestedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Opt-in write-behind buffer for single water-level updates.
+ * Accepted readings are kept per reservoir and written by
+ * {@link WaterLevelIngestionService#flushWriteBehind()} in batches, on an interval or once the
+ * buffer holds flush-size readings. Every reading is kept so the history and depletion rate see
+ * all of them, and reads overlay the latest buffered level until the flush has committed.
+ * Each buffered reading counts as one revision, matching the revision the flush will write, so
+ * ETags change as soon as a reading is accepted. Readings whose flush failed are put back ahead
+ * of the readings accepted since, and written with the next flush.
+ */
+@Component
+public class WriteBehindBuffer {
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    private final boolean enabled;
+    private final int flushSize;
+    
+    // reservoir id -> readings accepted since the last flush started
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    // reservoir id -> readings of the flush in progress
+    private final Map<Long, Pending> flushing = new ConcurrentHashMap<>();
+    private final AtomicLong bufferedReadings = new AtomicLong();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    
+    public WriteBehindBuffer(@Value("${reservoir.write-behind.enabled:false}") boolean enabled,
+                             @Value("${reservoir.write-behind.flush-size:5000}") int flushSize) {
+        this.enabled = enabled;
+        this.flushSize = flushSize;
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Accept a reading for a reservoir
+     * @param current current state of the reservoir, including buffered readings
+     * @param currentLevelM3 new level in cubic meters
+     * @param readingTime time of the reading
+     * @return reservoir state with the reading applied
+     */
+    public WaterReservoirDto add(WaterReservoirDto current, BigDecimal currentLevelM3, LocalDateTime readingTime) {
+        WaterLevelReadingDto reading = new WaterLevelReadingDto(current.getId(), currentLevelM3, readingTime);
+        long baseRevision = current.getRevision() == null ? 0 : current.getRevision();
+        long[] revision = new long[1];
+        pending.compute(current.getId(), (id, existing) -> {
+            Pending result = existing == null ? new Pending(baseRevision) : existing;
+            result.add(reading);
+            // Taken under the entry so concurrent readings of a reservoir get distinct revisions
+            revision[0] = result.expectedRevision();
+            return result;
+        });
+        if (bufferedReadings.incrementAndGet() >= flushSize && flushRequested.compareAndSet(false, true)) {
+            eventPublisher.publishEvent(new WriteBehindFlushRequestedEvent(null));
+        }
+        return withReading(current, reading, revision[0]);
+    }
+    
+    /**
+     * Take the buffered readings for writing; they stay visible to reads until
+     * {@link #completeFlush(Map)}
+     * @return reservoir id -> readings in arrival order
+     */
+    Map<Long, List<WaterLevelReadingDto>> drain() {
+        flushRequested.set(false);
+        Map<Long, List<WaterLevelReadingDto>> batch = new LinkedHashMap<>();
+        for (Long id : new ArrayList<>(pending.keySet())) {
+            take(id, batch);
+        }
+        return batch;
+    }
+    
+    /**
+     * Take the buffered readings of one reservoir for writing
+     * @param id reservoir ID
+     * @return reservoir id -> readings in arrival order, empty if none are buffered
+     */
+    Map<Long, List<WaterLevelReadingDto>> drain(Long id) {
+        Map<Long, List<WaterLevelReadingDto>> batch = new LinkedHashMap<>();
+        take(id, batch);
+        return batch;
+    }
+    
+    /**
+     * Forget readings once their flush has committed
+     * @param batch written part of a batch returned by {@link #drain()}
+     */
+    void completeFlush(Map<Long, List<WaterLevelReadingDto>> batch) {
+        long readings = 0;
+        for (Map.Entry<Long, List<WaterLevelReadingDto>> entry : batch.entrySet()) {
+            flushing.remove(entry.getKey());
+            readings += entry.getValue().size();
+        }
+        bufferedReadings.addAndGet(-readings);
+    }
+    
+    /**
+     * Put back readings whose flush failed, ahead of the readings accepted since it started
+     * @param batch failed part of a batch returned by {@link #drain()}
+     */
+    void requeue(Map<Long, List<WaterLevelReadingDto>> batch) {
+        for (Long id : batch.keySet()) {
+            Pending failed = flushing.get(id);
+            if (failed == null) {
+                continue;
+            }
+            // Back in pending before it leaves flushing, so reads never miss it
+            pending.compute(id, (key, newer) -> newer == null ? failed : failed.followedBy(newer));
+            flushing.remove(id);
+        }
+    }
+    
+    private void take(Long id, Map<Long, List<WaterLevelReadingDto>> batch) {
+        Pending taken = pending.get(id);
+        if (taken != null) {
+            // Published as flushing before it leaves pending, so reads never miss it
+            flushing.put(id, taken);
+            pending.remove(id, taken);
+            batch.put(id, new ArrayList<>(taken.readings));
+        }
+    }
+    
+    /**
+     * Apply buffered readings to a reservoir read from the database or cache
+     * @param reservoir reservoir, may be null
+     * @return the reservoir, or a copy holding its latest buffered reading
+     */
+    public WaterReservoirDto overlay(WaterReservoirDto reservoir) {
+        if (reservoir == null || bufferedReadings.get() == 0) {
+            return reservoir;
+        }
+        Pending latest = pending.get(reservoir.getId());
+        if (latest == null) {
+            latest = flushing.get(reservoir.getId());
+        }
+        long revision = reservoir.getRevision() == null ? 0 : reservoir.getRevision();
+        if (latest == null || revision >= latest.expectedRevision()) {
+            // Nothing buffered, or the flush has already been committed
+            return reservoir;
+        }
+        return withReading(reservoir, latest.latest, latest.expectedRevision());
+    }
+    
+    /**
+     * Apply buffered readings to a list of reservoirs
+     * @param reservoirs reservoirs
+     * @return reservoirs with their latest buffered readings
+     */
+    public List<WaterReservoirDto> overlay(List<WaterReservoirDto> reservoirs) {
+        if (bufferedReadings.get() == 0) {
+            return reservoirs;
+        }
+        return reservoirs.stream().map(this::overlay).collect(Collectors.toList());
+    }
+    
+    /**
+     * Apply buffered readings to a page of reservoirs
+     * @param page page
+     * @return page with the latest buffered readings
+     */
+    public CursorPage<WaterReservoirDto> overlay(CursorPage<WaterReservoirDto> page) {
+        if (bufferedReadings.get() == 0) {
+            return page;
+        }
+        return new CursorPage<>(overlay(page.getItems()), page.getNextCursor());
+    }
+    
+    private static WaterReservoirDto withReading(WaterReservoirDto reservoir, WaterLevelReadingDto reading, long revision) {
+        BigDecimal level = reading.getCurrentLevelM3();
+        BigDecimal percentage = reservoir.getCurrentLevelPercentage();
+        BigDecimal capacity = reservoir.getTotalCapacityM3();
+        if (capacity != null && capacity.signum() > 0) {
+            // Same rounding as WaterReservoir.setCurrentLevelM3
+            percentage = level.divide(capacity, 2, RoundingMode.HALF_UP).multiply(new BigDecimal("100"));
+        }
+        return new WaterReservoirDto(reservoir.getId(), reservoir.getName(), reservoir.getCounty(),
+                reservoir.getSubCounty(), reservoir.getWard(), reservoir.getSpecificLocation(),
+                reservoir.getLatitude(), reservoir.getLongitude(), capacity, level, percentage,
+                reservoir.getWaterQuality(), reading.getTimestamp(), reservoir.getEstimatedRunoutDate(),
+                reservoir.getDepletionRateM3PerDay(), reservoir.getIsActive(), reservoir.getDescription(),
+                reservoir.getManagedBy(), reservoir.getContactPhone(), reservoir.getContactEmail(),
+                ReservoirStatusThresholds.classify(percentage), revision);
+    }
+    
+    /**
+     * Readings of one reservoir waiting to be written
+     */
+    private static final class Pending {
+        private final long baseRevision;
+        private final Queue<WaterLevelReadingDto> readings = new ConcurrentLinkedQueue<>();
+        private final AtomicLong count = new AtomicLong();
+        private volatile WaterLevelReadingDto latest;
+        
+        private Pending(long baseRevision) {
+            this.baseRevision = baseRevision;
+        }
+        
+        private void add(WaterLevelReadingDto reading) {
+            readings.add(reading);
+            latest = reading;
+            count.incrementAndGet();
+        }
+        
+        private Pending followedBy(Pending newer) {
+            Pending merged = new Pending(baseRevision);
+            readings.forEach(merged::add);
+            newer.readings.forEach(merged::add);
+            return merged;
+        }
+        
+        private long expectedRevision() {
+            return baseRevision + count.get();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.waterapp.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.regex.Pattern;
+
+/**
+ * Encodes keyset pagination cursors as opaque URL-safe strings
+ */
+public final class CursorCodec {
+    
+    private static final String SEPARATOR = "|";
+    
+    private CursorCodec() {
+    }
+    
+    /**
+     * Encode the sort key of the last row of a page
+     * @param keyParts sort key values, in sort order
+     * @return opaque cursor
+     */
+    public static String encode(Object... keyParts) {
+        StringBuilder key = new StringBuilder();
+        for (Object part : keyParts) {
+            if (key.length() > 0) {
+                key.append(SEPARATOR);
+            }
+            key.append(part);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(key.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Decode a cursor produced by {@link #encode(Object...)}
+     * @param cursor opaque cursor
+     * @param expectedParts number of sort key values
+     * @return sort key values as strings
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static String[] decode(String cursor, int expectedParts) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = key.split(Pattern.quote(SEPARATOR), -1);
+            if (parts.length != expectedParts) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.waterapp.util;
+
+/**
+ * Geographic helper functions
+ */
+public final class GeoUtil {
+    
+    public static final double EARTH_RADIUS_KM = 6371.0;
+    
+    /** Length of one degree of latitude in kilometers */
+    public static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180.0;
+    
+    private GeoUtil() {
+    }
+    
+    /**
+     * Great-circle distance using the haversine formula
+     * @param lat1 first latitude in degrees
+     * @param lon1 first longitude in degrees
+     * @param lat2 second latitude in degrees
+     * @param lon2 second longitude in degrees
+     * @return distance in kilometers
+     */
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+    
+    /**
+     * Half-width in degrees of longitude covering the given distance at a latitude
+     * @param latitude latitude in degrees
+     * @param distanceKm distance in kilometers
+     * @return longitude delta in degrees (180 near the poles)
+     */
+    public static double longitudeDelta(double latitude, double distanceKm) {
+        double cos = Math.cos(Math.toRadians(latitude));
+        if (cos < 1e-6) {
+            return 180.0;
+        }
+        return Math.min(180.0, distanceKm / (KM_PER_DEGREE * cos));
+    }
+}